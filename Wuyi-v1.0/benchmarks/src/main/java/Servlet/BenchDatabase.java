@@ -0,0 +1,163 @@
+package Servlet;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import datebase.ConnectionPool;
+import datebase.DbUtil;
+import datebase.PoolConfig;
+
+/**
+ * 基准测试与负载测试（LoadTest）用数据库：按迁移完成后的表结构建表、写入样例数据，并把 DbUtil 的 DataSource 换成指向该库的连接池，
+ * 被测 DAO / Servlet 无需修改即从这里取连接。
+ * 默认使用 H2 内存库（MSSQLServer 模式），只能执行标准 SQL 的读路径；交易路径用到表变量、OUTPUT 与 MERGE，
+ * 需用 -Dwuyi.bench.url 指向本机 SQL Server 的空库（表会被删除重建），账号见 wuyi.bench.user / wuyi.bench.password。
+ */
+final class BenchDatabase {
+
+    static final String H2_URL = "jdbc:h2:mem:wuyi;MODE=MSSQLServer;DB_CLOSE_DELAY=-1";
+
+    private static final DateTimeFormatter TEXT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // 与生产库迁移到 V4 后的结构一致（H2 不支持 INCLUDE 列，索引只保留键列）
+    private static final String[] DDL = {
+            "DROP TABLE IF EXISTS Trade",
+            "DROP TABLE IF EXISTS Reservation",
+            "DROP TABLE IF EXISTS Works",
+            "DROP TABLE IF EXISTS SalesStats",
+            "DROP TABLE IF EXISTS IdBlock",
+            "CREATE TABLE Works (work_id INT NOT NULL PRIMARY KEY, work_status VARCHAR(10) NOT NULL, " +
+                    "work_name NVARCHAR(50), work_description NVARCHAR(200), work_image VARCHAR(200), " +
+                    "work_price DECIMAL(18,2) NOT NULL)",
+            "CREATE TABLE Reservation (order_id VARCHAR(10) NOT NULL PRIMARY KEY, buyer_name NVARCHAR(50), " +
+                    "buyer_phonenumber VARCHAR(20), trading_address NVARCHAR(100), trading_time VARCHAR(30), " +
+                    "order_time VARCHAR(30), work_id INT NOT NULL, trading_at DATETIME2(0), ordered_at DATETIME2(0))",
+            "CREATE TABLE Trade (trade_id VARCHAR(30) NOT NULL PRIMARY KEY, order_id VARCHAR(10) NOT NULL, " +
+                    "work_id INT NOT NULL, work_status VARCHAR(10) NOT NULL)",
+            "CREATE TABLE SalesStats (period_type CHAR(1) NOT NULL, period_start DATE NOT NULL, " +
+                    "trade_count INT NOT NULL DEFAULT 0, sold_count INT NOT NULL DEFAULT 0, " +
+                    "sold_amount DECIMAL(18,2) NOT NULL DEFAULT 0, PRIMARY KEY (period_type, period_start))",
+            "CREATE TABLE IdBlock (name VARCHAR(50) NOT NULL PRIMARY KEY, next_value BIGINT NOT NULL)",
+            "CREATE INDEX IX_Reservation_trading_at ON Reservation (trading_at DESC, order_id DESC)",
+            "CREATE INDEX IX_Reservation_work_id ON Reservation (work_id)",
+            "CREATE INDEX IX_Trade_order_id ON Trade (order_id)",
+    };
+
+    private BenchDatabase() {
+    }
+
+    static String url() {
+        return System.getProperty("wuyi.bench.url", H2_URL);
+    }
+
+    static boolean isSqlServer() {
+        return url().startsWith("jdbc:sqlserver:");
+    }
+
+    /**
+     * 建表并写入 orders 条预订（每条对应一件商品），然后让 DbUtil 使用指向该库的连接池
+     * @param allAvailable true 时全部商品为 available（交易基准）；否则 available/frozen/sold 各占三分之一，
+     *                     frozen 与 sold 的商品带一条 Trade 记录
+     */
+    static ConnectionPool install(int orders, boolean allAvailable) throws SQLException {
+        if (orders < 1 || orders > 99999) {
+            throw new IllegalArgumentException("订单号为 DD+5 位数字，orders 需在 1~99999 之间：" + orders);
+        }
+        String url = url();
+        String user = System.getProperty("wuyi.bench.user", "sa");
+        String password = System.getProperty("wuyi.bench.password", "");
+        try (Connection con = DriverManager.getConnection(url, user, password)) {
+            try (Statement st = con.createStatement()) {
+                for (String ddl : DDL) {
+                    st.execute(ddl);
+                }
+            }
+            seed(con, orders, allAvailable);
+        }
+        PoolConfig config = new PoolConfig();
+        config.setUrl(url);
+        config.setUser(user);
+        config.setPassword(password);
+        // 表结构已按迁移后的状态建好，LoadTest 部署 web.xml 时 DbPoolListener 不再执行迁移（系统属性覆盖 db.properties）
+        System.setProperty("schema.migrateOnStartup", "false");
+        ConnectionPool pool = new ConnectionPool(config, () -> DriverManager.getConnection(url, user, password));
+        DbUtil.setDataSource(pool);
+        return pool;
+    }
+
+    /**
+     * 交易基准每轮迭代前调用：清空 Trade 与统计，商品全部恢复为 available
+     */
+    static void resetTrades() throws SQLException {
+        try (Connection con = DbUtil.getCon(); Statement st = con.createStatement()) {
+            st.executeUpdate("DELETE FROM Trade");
+            st.executeUpdate("DELETE FROM SalesStats");
+            st.executeUpdate("UPDATE Works SET work_status = 'available' WHERE work_status <> 'available'");
+        }
+    }
+
+    static String orderId(int n) {
+        return String.format("DD%05d", n);
+    }
+
+    private static void seed(Connection con, int orders, boolean allAvailable) throws SQLException {
+        con.setAutoCommit(false);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        try (PreparedStatement works = con.prepareStatement("INSERT INTO Works VALUES (?,?,?,?,?,?)");
+             PreparedStatement reservations = con.prepareStatement(
+                     "INSERT INTO Reservation VALUES (?,?,?,?,?,?,?,?,?)");
+             PreparedStatement trades = con.prepareStatement("INSERT INTO Trade VALUES (?,?,?,?)")) {
+            for (int i = 1; i <= orders; i++) {
+                String status = allAvailable || i % 3 == 0 ? "available" : i % 3 == 1 ? "frozen" : "sold";
+                works.setInt(1, i);
+                works.setString(2, status);
+                works.setString(3, "岩茶" + i);
+                works.setString(4, "大红袍 125g");
+                works.setString(5, "img/" + i + ".jpg");
+                works.setBigDecimal(6, BigDecimal.valueOf((100 + i % 900) * 100L + 50, 2));
+                works.addBatch();
+
+                LocalDateTime tradingAt = base.plusMinutes(i);
+                LocalDateTime orderedAt = tradingAt.minusHours(2);
+                reservations.setString(1, orderId(i));
+                reservations.setString(2, "买家" + i);
+                reservations.setString(3, "1380000" + String.format("%04d", i % 10000));
+                reservations.setString(4, "武夷山市茶博园" + (i % 50) + "号");
+                reservations.setString(5, TEXT_TIME.format(tradingAt));
+                reservations.setString(6, TEXT_TIME.format(orderedAt));
+                reservations.setInt(7, i);
+                reservations.setTimestamp(8, Timestamp.valueOf(tradingAt));
+                reservations.setTimestamp(9, Timestamp.valueOf(orderedAt));
+                reservations.addBatch();
+
+                if (!"available".equals(status)) {
+                    trades.setString(1, "TD" + i);
+                    trades.setString(2, orderId(i));
+                    trades.setInt(3, i);
+                    trades.setString(4, status);
+                    trades.addBatch();
+                }
+                if (i % 1000 == 0 || i == orders) {
+                    works.executeBatch();
+                    reservations.executeBatch();
+                    trades.executeBatch();
+                }
+            }
+            // 新预订的订单号从样例数据之后开始分配（OrderIdAllocator）
+            try (PreparedStatement ids = con.prepareStatement("INSERT INTO IdBlock VALUES ('order', ?)")) {
+                ids.setLong(1, orders + 1);
+                ids.executeUpdate();
+            }
+            con.commit();
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package Servlet;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import datebase.Buyer;
+import datebase.BuyerDaoimpl;
+import datebase.DbUtil;
+import datebase.Works;
+import datebase.WorksCache;
+import datebase.WorksDaoIplm;
+
+/**
+ * 读路径端到端开销（含连接池借还、预编译语句缓存、SQL 执行与行映射）：
+ * 购买人列表 showAllBuyers、历史页 countOrders / queryOrders（首页、深页、关键字搜索）、商品目录 serachAll（缓存命中与未命中）。
+ * 默认在 H2 内存库上运行；-Dwuyi.bench.url 指向本机 SQL Server 时测的是真实驱动与执行计划，见 BenchDatabase。
+ * 运行：java -jar target/benchmarks.jar HotPathBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+
+    @Param({ "10000" })
+    int orders;
+
+    private final HistoryProductsServlet history = new HistoryProductsServlet();
+    private final BuyerDaoimpl buyers = new BuyerDaoimpl();
+    private WorksCache cache;
+    private WorksDaoIplm works;
+    private int deepPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.install(orders, false);
+        cache = new WorksCache(orders * 2);
+        works = new WorksDaoIplm(cache);
+        deepPage = Math.max(1, orders / 10 / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DbUtil.shutdown();
+    }
+
+    @Benchmark
+    public List<Buyer> showAllBuyers() throws SQLException {
+        return buyers.showAllBuyers(Collections.emptyList());
+    }
+
+    @Benchmark
+    public int historyCount() {
+        return history.countOrders(null, "sold", null, null);
+    }
+
+    @Benchmark
+    public Object historyFirstPage() {
+        return history.queryOrders(null, null, null, null, 1, 10);
+    }
+
+    /** 第 orders/20 页：OFFSET 需要跳过一半的数据 */
+    @Benchmark
+    public Object historyDeepPage() {
+        return history.queryOrders(null, null, null, null, deepPage, 10);
+    }
+
+    /** 关键字前后都带 %，订单号与商品名都无法走索引 */
+    @Benchmark
+    public Object historySearch() {
+        return history.queryOrders("岩茶12", null, null, null, 1, 10);
+    }
+
+    @Benchmark
+    public List<Works> serachAllCached() throws SQLException {
+        try (Connection con = DbUtil.getCon()) {
+            return works.serachAll(con);
+        }
+    }
+
+    @Benchmark
+    public List<Works> serachAllUncached() throws SQLException {
+        cache.invalidateAll();
+        try (Connection con = DbUtil.getCon()) {
+            return works.serachAll(con);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package Servlet;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import datebase.SnowflakeIdGenerator;
+
+/**
+ * 交易号生成器的吞吐与唯一性：16 个线程共用一个 SnowflakeIdGenerator，每轮每个线程各取 250,000 个编号，
+ * 一轮共 4,000,000 个；报告的是单个编号的平均耗时（含线程间 CAS 竞争）。
+ * 每轮结束时检查各线程内编号严格递增，并合并排序全部编号，出现重复即报错。
+ * 单元测试 testSnowflakeIdsUniqueAndMonotonicAcrossThreads 只取少量编号，供 CI 快速运行。
+ * 运行：java -jar target/benchmarks.jar IdGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(IdGeneratorBenchmark.THREADS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class IdGeneratorBenchmark {
+
+    static final int THREADS = 16;
+    static final int IDS_PER_THREAD = 250_000;
+
+    private final SnowflakeIdGenerator generator = new SnowflakeIdGenerator("TD", 1);
+    // 各线程的取号记录，每轮结束时统一检查
+    private final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+    private long checked;
+
+    /** 单个线程本轮取到的编号（按取号顺序） */
+    @State(Scope.Thread)
+    public static class Recorder {
+        final long[] values = new long[IDS_PER_THREAD];
+
+        @Setup(Level.Trial)
+        public void register(IdGeneratorBenchmark benchmark) {
+            benchmark.recorders.add(this);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IDS_PER_THREAD)
+    public void nextValue(Recorder recorder) {
+        long[] values = recorder.values;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = generator.nextValue();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifyUnique() {
+        long[] all = new long[recorders.size() * IDS_PER_THREAD];
+        int pos = 0;
+        for (Recorder r : recorders) {
+            long[] values = r.values;
+            for (int i = 1; i < values.length; i++) {
+                if (values[i] <= values[i - 1]) {
+                    throw new IllegalStateException("同一线程内编号未递增：" + values[i - 1] + " → " + values[i]);
+                }
+            }
+            System.arraycopy(values, 0, all, pos, values.length);
+            pos += values.length;
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                throw new IllegalStateException("编号重复：" + all[i] + "（本轮共 " + all.length + " 个编号）");
+            }
+        }
+        checked += all.length;
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.println("IdGeneratorBenchmark：" + recorders.size() + " 个线程共检查 " + checked + " 个编号，无重复");
+    }
+}
@@ -0,0 +1,299 @@
+package Servlet;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+
+import datebase.DbUtil;
+import datebase.JdbcTemplate;
+
+/**
+ * 负载测试：嵌入式 Tomcat 部署 src/main/webapp（web.xml 中的全部 Servlet、过滤器、监听器与 JSP），
+ * 多个虚拟用户各自循环发请求（闭环模型，无思考时间），按固定比例混合买家预订、订单查询、历史页、
+ * 商家购买人列表与交易，预热结束后统计各接口的吞吐量、p50/p90/p99 延迟与错误率，以及订单号冲突数。
+ * 错误指连接失败或 HTTP 状态码 >= 400；交易时商品已被他人冻结属于正常业务结果，不计为错误。
+ * 订单号冲突：Reservation 中重复的 order_id，加上因主键冲突而失败的预订。
+ *
+ * 预订与交易的 SQL 为 T-SQL，须用 -Dwuyi.bench.url 指向本机 SQL Server 空库（见 BenchDatabase）；
+ * 使用默认的 H2 内存库时只发送查询类请求。在 benchmarks 目录下运行：
+ *   java -Dwuyi.bench.url="jdbc:sqlserver://localhost:1433;databaseName=WuyiBench;encrypt=false" \
+ *        -Dwuyi.bench.user=sa -Dwuyi.bench.password=... -cp target/benchmarks.jar Servlet.LoadTest
+ * 其他系统属性：wuyi.load.users（并发用户数，默认 32）、wuyi.load.seconds（统计时长，默认 60）、
+ * wuyi.load.warmup（预热秒数，默认 10）、wuyi.load.orders（样例订单数，默认 10000）、
+ * wuyi.webapp（webapp 目录，默认 ../src/main/webapp）
+ */
+public final class LoadTest {
+
+    /** 请求类型及其在混合流量中的权重 */
+    enum Op {
+        HISTORY("历史页", 40, false),
+        CHECK_ORDER("订单查询", 25, false),
+        BOOKING("买家预订", 20, true),
+        BUYER_LIST("购买人列表", 10, false),
+        TRADE("交易", 5, true);
+
+        final String label;
+        final int weight;
+        final boolean needsSqlServer;
+
+        Op(String label, int weight, boolean needsSqlServer) {
+            this.label = label;
+            this.weight = weight;
+            this.needsSqlServer = needsSqlServer;
+        }
+    }
+
+    /** 单个用户线程的记录（只由该线程写入，结束后合并） */
+    private static final class Recorder {
+        final Map<Op, long[]> latencies = new EnumMap<>(Op.class);
+        final Map<Op, Integer> counts = new EnumMap<>(Op.class);
+        final Map<Op, Integer> errors = new EnumMap<>(Op.class);
+        int bookings;
+        int duplicateKeys;
+
+        void record(Op op, long nanos, boolean error) {
+            int n = counts.getOrDefault(op, 0);
+            long[] a = latencies.computeIfAbsent(op, k -> new long[1024]);
+            if (n == a.length) {
+                a = Arrays.copyOf(a, n * 2);
+                latencies.put(op, a);
+            }
+            a[n] = nanos;
+            counts.put(op, n + 1);
+            if (error) {
+                errors.merge(op, 1, Integer::sum);
+            }
+        }
+    }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String base;
+    private final int orders;
+    private final Op[] mix;
+
+    private LoadTest(String base, int orders, boolean sqlServer) {
+        this.base = base;
+        this.orders = orders;
+        List<Op> slots = new ArrayList<>();
+        for (Op op : Op.values()) {
+            if (sqlServer || !op.needsSqlServer) {
+                for (int i = 0; i < op.weight; i++) {
+                    slots.add(op);
+                }
+            }
+        }
+        this.mix = slots.toArray(new Op[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("wuyi.load.users", 32);
+        int seconds = Integer.getInteger("wuyi.load.seconds", 60);
+        int warmup = Integer.getInteger("wuyi.load.warmup", 10);
+        int orders = Integer.getInteger("wuyi.load.orders", 10000);
+        File webapp = new File(System.getProperty("wuyi.webapp", "../src/main/webapp"));
+        if (!new File(webapp, "WEB-INF/web.xml").isFile()) {
+            throw new IllegalArgumentException("找不到 web.xml，请用 -Dwuyi.webapp 指定 webapp 目录：" + webapp.getAbsolutePath());
+        }
+        boolean sqlServer = BenchDatabase.isSqlServer();
+        if (!sqlServer) {
+            System.out.println("未指定 SQL Server（-Dwuyi.bench.url），使用 H2 内存库，只发送查询类请求");
+        }
+        BenchDatabase.install(orders, false);
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("wuyi-load").toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        Context ctx = tomcat.addWebapp("", webapp.getAbsolutePath());
+        // 客户端不保存 Cookie，BuyServlet 每次请求都会新建会话，缩短超时（分钟）避免会话堆积
+        ctx.setSessionTimeout(1);
+        tomcat.start();
+        try {
+            String base = "http://localhost:" + tomcat.getConnector().getLocalPort();
+            System.out.println("已部署 " + base + "，用户数 " + users + "，预热 " + warmup + " 秒，统计 " + seconds + " 秒");
+            new LoadTest(base, orders, sqlServer).run(users, warmup, seconds);
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+            DbUtil.shutdown();
+        }
+    }
+
+    private void run(int users, int warmupSeconds, int seconds) throws InterruptedException, SQLException {
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        List<Recorder> recorders = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < users; u++) {
+                Recorder r = new Recorder();
+                recorders.add(r);
+                pool.submit(() -> userLoop(r, measureFrom, deadline));
+            }
+        }
+        report(recorders, seconds);
+    }
+
+    private void userLoop(Recorder r, long measureFrom, long deadline) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            Op op = mix[rnd.nextInt(mix.length)];
+            HttpRequest request = build(op, rnd);
+            boolean error;
+            String body = "";
+            try {
+                HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                error = resp.statusCode() >= 400;
+                body = resp.body();
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                error = true;
+            }
+            long elapsed = System.nanoTime() - now;
+            if (now < measureFrom) {
+                continue;
+            }
+            r.record(op, elapsed, error);
+            if (op == Op.BOOKING) {
+                if (!error) {
+                    r.bookings++;
+                } else if (body.toUpperCase().contains("PRIMARY KEY")) {
+                    r.duplicateKeys++;
+                }
+            }
+        }
+    }
+
+    private HttpRequest build(Op op, ThreadLocalRandom rnd) {
+        switch (op) {
+            case HISTORY: {
+                StringBuilder q = new StringBuilder("/HistoryProductsServlet?page=").append(1 + rnd.nextInt(20));
+                int filter = rnd.nextInt(10);
+                if (filter < 2) {
+                    q.append("&search=").append(encode("岩茶" + rnd.nextInt(100)));
+                } else if (filter < 4) {
+                    q.append("&status=").append(rnd.nextBoolean() ? "sold" : "frozen");
+                }
+                return get(q.toString());
+            }
+            case CHECK_ORDER:
+                return post("/Buyercheck_ordermessage", "action=query&order_id=" + randomOrderId(rnd));
+            case BOOKING:
+                return post("/Buyer_message_servlet",
+                        "buyer_name=" + encode("买家" + rnd.nextInt(100))
+                        + "&buyer_phonenumber=139" + String.format("%08d", rnd.nextInt(100_000_000))
+                        + "&trading_address=" + encode("武夷山市茶博园" + rnd.nextInt(50) + "号")
+                        + "&trading_time=2025-06-01T10%3A00");
+            case BUYER_LIST:
+                return get("/BuyServlet");
+            case TRADE:
+            default:
+                // 样例数据中 work_id 为 3 的倍数的商品为 available，多个用户会争抢同一件商品
+                int n = 3 * (1 + rnd.nextInt(Math.max(1, orders / 3)));
+                return post("/BuyServlet", "method=trade&orderId=" + BenchDatabase.orderId(n));
+        }
+    }
+
+    private String randomOrderId(ThreadLocalRandom rnd) {
+        return BenchDatabase.orderId(1 + rnd.nextInt(orders));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest post(String path, String form) {
+        return HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(form, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private void report(List<Recorder> recorders, int seconds) throws SQLException {
+        System.out.println();
+        System.out.println(String.format("%-10s %10s %10s %10s %10s %10s %10s %8s",
+                "接口", "请求数", "请求/秒", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)", "错误率"));
+        long total = 0, totalErrors = 0;
+        for (Op op : Op.values()) {
+            int n = 0, errors = 0;
+            for (Recorder r : recorders) {
+                n += r.counts.getOrDefault(op, 0);
+                errors += r.errors.getOrDefault(op, 0);
+            }
+            if (n == 0) {
+                continue;
+            }
+            long[] all = new long[n];
+            int pos = 0;
+            for (Recorder r : recorders) {
+                int c = r.counts.getOrDefault(op, 0);
+                if (c > 0) {
+                    System.arraycopy(r.latencies.get(op), 0, all, pos, c);
+                    pos += c;
+                }
+            }
+            Arrays.sort(all);
+            System.out.println(String.format("%-10s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %7.2f%%",
+                    op.label, n, (double) n / seconds, millis(percentile(all, 0.50)), millis(percentile(all, 0.90)),
+                    millis(percentile(all, 0.99)), millis(all[n - 1]), errors * 100.0 / n));
+            total += n;
+            totalErrors += errors;
+        }
+        System.out.println(String.format("合计：%d 个请求，%.1f 请求/秒，错误率 %.2f%%",
+                total, (double) total / seconds, total == 0 ? 0.0 : totalErrors * 100.0 / total));
+
+        int bookings = 0, duplicateKeys = 0;
+        for (Recorder r : recorders) {
+            bookings += r.bookings;
+            duplicateKeys += r.duplicateKeys;
+        }
+        try (Connection con = DbUtil.getCon()) {
+            int duplicates = JdbcTemplate.queryInt(con,
+                    "SELECT COUNT(*) - COUNT(DISTINCT order_id) FROM Reservation");
+            System.out.println("订单号冲突：" + (duplicates + duplicateKeys) + "（表中重复 " + duplicates
+                    + "，主键冲突导致预订失败 " + duplicateKeys + "），统计期内成功预订 " + bookings + " 个");
+        }
+        System.out.println("连接池：" + DbUtil.getPoolStats());
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
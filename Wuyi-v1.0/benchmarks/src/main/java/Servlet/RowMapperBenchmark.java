@@ -0,0 +1,143 @@
+package Servlet;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import datebase.Money;
+import datebase.Order;
+import datebase.Product;
+import datebase.User;
+
+/**
+ * 历史订单行映射的单次结果集开销：按列名逐行取值（旧 mapRowToOrder）对比 ORDER_MAPPER（列序号解析一次）
+ * 数据放在 H2 内存库中，结果集可滚动，每次调用 beforeFirst 后映射全部行，只测映射本身，不含查询执行。
+ * 运行：java -jar target/benchmarks.jar RowMapperBenchmark -prof gc（同时观察每次调用的分配量）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final String SELECT =
+            "SELECT order_id, buyer_name, buyer_phonenumber, trading_address, trading_at, ordered_at, work_id, " +
+            "work_name, work_description, work_image, work_price, work_status, trade_id FROM OrderRow";
+
+    @Param({ "10000" })
+    int rows;
+
+    private Connection conn;
+    private Statement stmt;
+    private ResultSet rs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:rowmapper;MODE=MSSQLServer;DB_CLOSE_DELAY=-1");
+        try (Statement ddl = conn.createStatement()) {
+            ddl.execute("DROP TABLE IF EXISTS OrderRow");
+            // 与 HistoryProductsServlet.ORDER_SELECT 的列一致；work_price 与 Works 表相同为 DECIMAL(18,2)（V4 迁移）
+            ddl.execute("CREATE TABLE OrderRow (order_id VARCHAR(10), buyer_name VARCHAR(50), " +
+                    "buyer_phonenumber VARCHAR(20), trading_address VARCHAR(100), trading_at DATETIME2, " +
+                    "ordered_at DATETIME2, work_id INT, work_name VARCHAR(50), work_description VARCHAR(200), " +
+                    "work_image VARCHAR(200), work_price DECIMAL(18,2), work_status VARCHAR(10), trade_id VARCHAR(20))");
+        }
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO OrderRow VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)")) {
+            for (int i = 0; i < rows; i++) {
+                ps.setString(1, String.format("DD%05d", i % 100000));
+                ps.setString(2, "买家" + i);
+                ps.setString(3, "1380000" + String.format("%04d", i % 10000));
+                ps.setString(4, "武夷山市茶博园" + (i % 50) + "号");
+                ps.setTimestamp(5, Timestamp.valueOf(base.plusMinutes(i)));
+                ps.setTimestamp(6, Timestamp.valueOf(base.plusMinutes(i).minusHours(2)));
+                ps.setInt(7, i);
+                ps.setString(8, "岩茶" + i);
+                ps.setString(9, "大红袍 125g");
+                ps.setString(10, "img/" + i + ".jpg");
+                ps.setBigDecimal(11, BigDecimal.valueOf((100 + i % 900) * 100L + 50, 2));
+                ps.setString(12, i % 3 == 0 ? "sold" : i % 3 == 1 ? "frozen" : "available");
+                ps.setString(13, i % 2 == 0 ? "TD" + i : null);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        stmt = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rs = stmt.executeQuery(SELECT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        rs.close();
+        stmt.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public List<Order> byColumnName() throws SQLException {
+        rs.beforeFirst();
+        List<Order> orders = new ArrayList<>(rows);
+        while (rs.next()) {
+            orders.add(mapByName(rs));
+        }
+        return orders;
+    }
+
+    @Benchmark
+    public List<Order> byResolvedIndex() throws SQLException {
+        rs.beforeFirst();
+        int[] col = HistoryProductsServlet.ORDER_MAPPER.resolve(rs);
+        List<Order> orders = new ArrayList<>(rows);
+        while (rs.next()) {
+            orders.add(HistoryProductsServlet.ORDER_MAPPER.mapRow(rs, col));
+        }
+        return orders;
+    }
+
+    /**
+     * 旧版 mapRowToOrder 的写法：逐列按名称取值，价格经 getObject().toString() 与 Double.parseDouble
+     * （Product 现在保存 Money，解析出的 double 再转换一次，与旧版的开销相当）
+     */
+    private static Order mapByName(ResultSet rs) throws SQLException {
+        String workStatus = rs.getString("work_status");
+        double workPrice;
+        try {
+            workPrice = rs.getObject("work_price") == null ? 0.0 : Double.parseDouble(rs.getObject("work_price").toString());
+        } catch (Exception e) {
+            workPrice = 0.0;
+        }
+        Product product = new Product(String.valueOf(rs.getInt("work_id")), rs.getString("work_name"),
+                rs.getString("work_description"), rs.getString("work_image"),
+                Money.of(BigDecimal.valueOf(workPrice)), workStatus);
+        User user = new User(rs.getString("buyer_name"), rs.getString("buyer_phonenumber"),
+                rs.getString("trading_address"));
+        return new Order(rs.getString("order_id"), rs.getString("trade_id"), product, user,
+                rs.getObject("ordered_at", LocalDateTime.class), rs.getObject("trading_at", LocalDateTime.class),
+                workStatus);
+    }
+}
@@ -0,0 +1,90 @@
+package Servlet;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import datebase.BuyerDaoimpl;
+import datebase.DbUtil;
+import datebase.SnowflakeIdGenerator;
+import datebase.TradeResult;
+
+/**
+ * 交易事务：单笔 trade（冻结商品 + 写 Trade + 累加统计，一次往返后提交）与 100 笔一批的 tradeAll。
+ * 每次调用交易一个尚未交易的订单；每轮迭代前把商品恢复为 available，一轮内订单用完后后续调用走"已冻结"分支，
+ * 因此 orders 应大于一轮的调用次数（运行结束时对比 TradeResult 的分布即可确认）。
+ * 交易 SQL 为 T-SQL，必须在 SQL Server 上运行：
+ * java -Dwuyi.bench.url="jdbc:sqlserver://localhost:1433;databaseName=WuyiBench;encrypt=false"
+ *      -Dwuyi.bench.user=sa -Dwuyi.bench.password=... -jar target/benchmarks.jar TradeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradeBenchmark {
+
+    private static final int BATCH = 100;
+
+    @Param({ "50000" })
+    int orders;
+
+    private final BuyerDaoimpl dao = new BuyerDaoimpl(new SnowflakeIdGenerator("TD", 1));
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        if (!BenchDatabase.isSqlServer()) {
+            throw new IllegalStateException("交易基准需要 SQL Server，请用 -Dwuyi.bench.url 指定本机空库");
+        }
+        BenchDatabase.install(orders, true);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetIteration() throws SQLException {
+        BenchDatabase.resetTrades();
+        next.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DbUtil.shutdown();
+    }
+
+    @Benchmark
+    public TradeResult trade() throws SQLException {
+        return dao.trade(nextOrderId());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<TradeResult> tradeBatch() throws SQLException {
+        List<String> ids = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            ids.add(nextOrderId());
+        }
+        return dao.tradeAll(ids);
+    }
+
+    private String nextOrderId() {
+        return BenchDatabase.orderId(next.getAndIncrement() % orders + 1);
+    }
+}
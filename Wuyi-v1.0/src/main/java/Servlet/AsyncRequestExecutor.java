@@ -0,0 +1,311 @@
+package Servlet;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import datebase.Log;
+import datebase.Metrics;
+import datebase.AppConfig;
+
+/**
+ * 数据库密集型 Servlet 的异步执行器（Servlet 3 startAsync + 虚拟线程）
+ * 容器线程只解析参数并 startAsync，随即返回线程池；数据库工作在虚拟线程中执行，完成后把结果写入 request 并 dispatch 到 JSP。
+ * 同时执行的请求数由信号量限制（async.maxConcurrent），等待中的请求只占一个挂起的虚拟线程；
+ * 执行中加排队的请求超过 maxConcurrent + maxQueued 时直接返回 503，超过 async.timeoutMs 未完成也返回 503。
+ * 工作代码不直接读写 request 与 session：参数在 startAsync 之前读好，结果（含 session 属性）以 View 返回，
+ * 超时后 request 可能已被容器回收复用，此时迟到的结果会被丢弃而不会写进别的请求。
+ */
+public final class AsyncRequestExecutor {
+
+    private static final Log LOG = Log.get(AsyncRequestExecutor.class);
+
+    private static volatile AsyncRequestExecutor shared;
+
+    /**
+     * 在虚拟线程中执行的数据库工作
+     */
+    @FunctionalInterface
+    public interface Work {
+        View call() throws Exception;
+    }
+
+    /**
+     * 工作结果：要转发的页面及需要放入 request / session 的属性
+     */
+    public static final class View {
+        private final String path;
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+        private final Map<String, Object> sessionAttributes = new LinkedHashMap<>();
+
+        public View(String path) {
+            this.path = path;
+        }
+
+        public View attr(String name, Object value) {
+            attributes.put(name, value);
+            return this;
+        }
+
+        /**
+         * 需要写入 session 的属性：与 request 属性一样在结果确定写出时才写入，超时被丢弃的结果不会改动 session
+         */
+        public View sessionAttr(String name, Object value) {
+            sessionAttributes.put(name, value);
+            return this;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        public Map<String, Object> getSessionAttributes() {
+            return sessionAttributes;
+        }
+
+        void applyTo(HttpServletRequest request) {
+            for (Map.Entry<String, Object> e : attributes.entrySet()) {
+                request.setAttribute(e.getKey(), e.getValue());
+            }
+            if (!sessionAttributes.isEmpty()) {
+                HttpSession session = request.getSession();
+                for (Map.Entry<String, Object> e : sessionAttributes.entrySet()) {
+                    session.setAttribute(e.getKey(), e.getValue());
+                }
+            }
+        }
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxAdmitted;
+    private final long timeoutMs;
+    // 已接收（执行中 + 排队中）的请求数
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public AsyncRequestExecutor(int maxConcurrent, int maxQueued, long timeoutMs) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxAdmitted = maxConcurrent + maxQueued;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 全局共享实例：限流参数取自 AppConfig 中的 async.*（未经 init 时按 AppConfig.get() 创建）
+     */
+    public static AsyncRequestExecutor shared() {
+        AsyncRequestExecutor e = shared;
+        if (e == null) {
+            synchronized (AsyncRequestExecutor.class) {
+                e = shared;
+                if (e == null) {
+                    e = create(AppConfig.get());
+                    shared = e;
+                }
+            }
+        }
+        return e;
+    }
+
+    /**
+     * 应用启动时调用：按启动时加载的配置创建共享实例
+     */
+    public static synchronized void init(AppConfig config) {
+        AsyncRequestExecutor old = shared;
+        shared = create(config);
+        if (old != null) {
+            old.executor.shutdown();
+        }
+    }
+
+    private static AsyncRequestExecutor create(AppConfig config) {
+        AsyncRequestExecutor e = new AsyncRequestExecutor(config.getAsyncMaxConcurrent(), config.getAsyncMaxQueued(),
+                config.getAsyncTimeoutMs());
+        e.registerMetrics();
+        return e;
+    }
+
+    /**
+     * 应用停止时调用：不再接收新请求，尚未完成的工作被中断
+     */
+    public static synchronized void shutdownShared() {
+        AsyncRequestExecutor e = shared;
+        shared = null;
+        if (e != null) {
+            e.executor.shutdownNow();
+        }
+    }
+
+    private void registerMetrics() {
+        Metrics.registerGauge("wuyi_async_requests_running", "正在执行数据库工作的异步请求数",
+                () -> maxConcurrent - permits.availablePermits());
+        Metrics.registerGauge("wuyi_async_requests_admitted", "已接收的异步请求数（执行中 + 排队中）", admitted::get);
+        Metrics.registerCounter("wuyi_async_requests_rejected_total", "排队已满被拒绝（503）的异步请求数", rejected::sum);
+        Metrics.registerCounter("wuyi_async_requests_timeouts_total", "超时（503）的异步请求数", timedOut::sum);
+    }
+
+    /**
+     * 异步执行 work，完成后转发到其返回的页面
+     * 请求不支持异步（过滤器链未声明 async-supported）时在当前线程同步执行
+     */
+    public void execute(HttpServletRequest request, HttpServletResponse response, Work work)
+            throws ServletException, IOException {
+        if (!request.isAsyncSupported()) {
+            forward(request, response, call(work));
+            return;
+        }
+        if (admitted.incrementAndGet() > maxAdmitted) {
+            admitted.decrementAndGet();
+            rejected.increment();
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "服务器繁忙，请稍后重试");
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        AsyncContext ctx = request.startAsync(request, response);
+        ctx.setTimeout(timeoutMs);
+        // 结果只能由"正常完成 / 出错 / 超时"三者之一写出
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicReference<Future<?>> task = new AtomicReference<>();
+        ctx.addListener(new Lifecycle(finished, task, response));
+        try {
+            task.set(executor.submit(() -> run(ctx, work, finished, deadline)));
+        } catch (RuntimeException e) {
+            // 执行器已关闭（应用停止中）
+            if (finished.compareAndSet(false, true)) {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                ctx.complete();
+            }
+        }
+    }
+
+    private void run(AsyncContext ctx, Work work, AtomicBoolean finished, long deadline) {
+        HttpServletResponse response = (HttpServletResponse) ctx.getResponse();
+        try {
+            long waitNanos = deadline - System.nanoTime();
+            if (!permits.tryAcquire(waitNanos, TimeUnit.NANOSECONDS)) {
+                return; // 排队超过超时时间，由 Lifecycle.onTimeout 返回 503
+            }
+            View view;
+            try {
+                view = work.call();
+            } finally {
+                permits.release();
+            }
+            if (finished.compareAndSet(false, true)) {
+                HttpServletRequest request = (HttpServletRequest) ctx.getRequest();
+                view.applyTo(request);
+                ctx.dispatch(view.getPath().startsWith("/") ? view.getPath() : "/" + view.getPath());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            // 工作自身的查询时限（如 TaskScope）先于请求超时到达，同样按繁忙返回 503
+            if (finished.compareAndSet(false, true)) {
+                timedOut.increment();
+                LOG.warn("异步请求查询超时：{}", e.getMessage());
+                try {
+                    response.setHeader("Retry-After", "1");
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "请求处理超时，请稍后重试");
+                } catch (IOException | IllegalStateException ignored) {
+                    // 响应已提交，只能直接结束
+                }
+                ctx.complete();
+            }
+        } catch (Exception e) {
+            if (finished.compareAndSet(false, true)) {
+                LOG.error("异步请求处理失败", e);
+                try {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } catch (IOException | IllegalStateException ignored) {
+                    // 响应已提交，只能直接结束
+                }
+                ctx.complete();
+            }
+        }
+    }
+
+    private static View call(Work work) throws ServletException, IOException {
+        try {
+            return work.call();
+        } catch (ServletException | IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+    }
+
+    private static void forward(HttpServletRequest request, HttpServletResponse response, View view)
+            throws ServletException, IOException {
+        view.applyTo(request);
+        request.getRequestDispatcher(view.getPath()).forward(request, response);
+    }
+
+    /** 超时时中断仍在执行或排队的工作并返回 503；请求结束（无论何种方式）时释放名额 */
+    private final class Lifecycle implements AsyncListener {
+        private final AtomicBoolean finished;
+        private final AtomicReference<Future<?>> task;
+        private final HttpServletResponse response;
+
+        Lifecycle(AtomicBoolean finished, AtomicReference<Future<?>> task, HttpServletResponse response) {
+            this.finished = finished;
+            this.task = task;
+            this.response = response;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            timedOut.increment();
+            Future<?> f = task.get();
+            if (f != null) {
+                f.cancel(true);
+            }
+            LOG.warn("异步请求超过 {}ms 未完成，返回 503", timeoutMs);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "请求处理超时，请稍后重试");
+            event.getAsyncContext().complete();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            admitted.decrementAndGet();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            finished.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -2,6 +2,7 @@ package Servlet;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.servlet.ServletException;
@@ -12,13 +13,21 @@ import javax.servlet.http.HttpSession;
 
 import datebase.BuyerDaoimpl;
 import datebase.Buyer;
+import datebase.BuyerDashboard;
+import datebase.Log;
+import datebase.TradeResult;
+import datebase.UnitOfWork;
 
 /**
  * 购买交易Servlet
- * 核心功能：查询所有购买人列表→按orderId查询用户→生成tradeId→存入数据表Trade→Works里的状态变为冻结→Session存储→跳转页面
+ * 核心功能：按orderId查询用户→生成tradeId→存入数据表Trade→Works里的状态变为冻结→查询购买人页面数据→跳转页面
+ * 页面数据由 getBuyerDashboard 一次查询取回，以只读视图模型 dashboard 放入 request；交易段包在一个 UnitOfWork 中
+ * method=tradeBatch 时对勾选的多个订单批量交易，逐单结果以 tradeResults 放入 request
+ * 数据库工作经 AsyncRequestExecutor 在虚拟线程中执行，不占用容器线程
  */
 public class BuyServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
+	private static final Log LOG = Log.get(BuyServlet.class);
 	// 初始化BuyerDaoimpl（数据库操作层）
 	private BuyerDaoimpl buyerDao = new BuyerDaoimpl();
 
@@ -39,71 +48,52 @@ public class BuyServlet extends HttpServlet {
 		response.setContentType("text/html;charset=UTF-8");
 		response.setCharacterEncoding("UTF-8");
 
-		// 2. 获取请求参数method
+		// 2. 获取请求参数（startAsync 之前读取，数据库工作中不再访问 request）
 		String method = request.getParameter("method");
-		
-		// 4. 查询所有冻结状态的trade_id、order_id和状态
-				HttpSession session = request.getSession();
-				List<String> frozenavailableTradeIds = null;
-				try {
-					frozenavailableTradeIds = buyerDao.getFrozenAndAvailableTradeIds();
-				} catch (SQLException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-				List<String> frozenavailableOrderIds = null;
+		String orderId = request.getParameter("orderId");
+		String[] orderIds = request.getParameterValues("orderId");
+		HttpSession session = request.getSession();
+		session.removeAttribute("buyerDao");
+
+		// 3~5 在虚拟线程中执行，完成后转发到列表页
+		AsyncRequestExecutor.shared().execute(request, response, () -> {
+			AsyncRequestExecutor.View view = new AsyncRequestExecutor.View("/check_buyers.jsp");
+
+			// 3. 若为trade操作，先执行交易（写操作在前，页面数据在后，保证页面展示交易后的最新状态）
+			if ("trade".equals(method)) {
 				try {
-					frozenavailableOrderIds = buyerDao.getFrozenAndAvailableOrderIds();
-				} catch (SQLException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+					Buyer selectedBuyer = trade(orderId);
+					// 将数据存入Session（随结果返回，由 AsyncRequestExecutor 在写出结果时写入）
+					view.sessionAttr("selected_buyer", selectedBuyer)
+							.sessionAttr("selectedOrderId", orderId); // 存储当前选中的订单ID
+				} catch (Exception e) {
+					// 全局异常处理：捕获所有异常，提示用户并记录日志
+					LOG.error("交易处理失败", e);
+					view.attr("errorMsg", "交易处理失败：" + e.getMessage());
 				}
-				
-				String workstatus = null;
+			} else if ("tradeBatch".equals(method)) {
 				try {
-					workstatus=buyerDao.getWorkStatusByOrderId(frozenavailableOrderIds);
-				} catch (SQLException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+					view.attr("tradeResults", tradeBatch(orderIds));
+				} catch (Exception e) {
+					LOG.error("批量交易处理失败", e);
+					view.attr("errorMsg", "批量交易处理失败：" + e.getMessage());
 				}
-				
-				session.setAttribute("frozenavailableTradeIds", frozenavailableTradeIds); // 存储冻结/可预定的trade_id列表
-				session.setAttribute("frozenavailableOrderIds", frozenavailableOrderIds); // 存储冻结/可预订的order_id列表
-				session.setAttribute("workstatus", workstatus); // 存储冻结/可预订商品的workstatus列表
-				session.setAttribute("buyerDao", buyerDao);
-
-		// 3. 先查询所有购买人列表并放入Session（无论是否为trade操作都执行，确保列表数据最新）
-		try {
-			List<Buyer> buyerList = buyerDao.showAllBuyers(frozenavailableOrderIds);
-			session.setAttribute("buyerList", buyerList);
-			System.out.println("已将" + buyerList.size() + "条购买人数据存入Session");
-		} catch (SQLException e) {
-			e.printStackTrace();
-			request.setAttribute("errorMsg", "获取购买人列表失败：" + e.getMessage());
-			request.getRequestDispatcher("/check_buyers.jsp").forward(request, response);
-			return;
-		}
-		
-		
-		
-
-		// 5. 判断是否为trade操作
-		if (method == null || !"trade".equals(method)) {
-			// 若method参数错误，直接跳转回列表页（已在Session中存入buyerList）
-			request.getRequestDispatcher("/check_buyers.jsp").forward(request, response);
-			return;
-		}
-		
-
-		// 5. 执行trade核心逻辑
-		try {
-			trade(request, response);
-		} catch (Exception e) {
-			// 6. 全局异常处理：捕获所有异常，提示用户并打印日志
-			e.printStackTrace();
-			request.setAttribute("errorMsg", "交易处理失败：" + e.getMessage());
-			request.getRequestDispatcher("/check_buyers.jsp").forward(request, response);
-		}
+			}
+
+			// 4. 构建页面视图模型：一次查询取回整页数据（Reservation ⋈ Works + Trade），放入 request 作用域
+			//    JSP 只读取该对象，渲染期间不再访问数据库；Session 中也不再存放 DAO
+			try {
+				BuyerDashboard dashboard = buyerDao.getBuyerDashboard();
+				view.attr("dashboard", dashboard);
+				LOG.debug("购买人页面数据：{}", dashboard);
+			} catch (SQLException e) {
+				LOG.error("获取购买人列表失败", e);
+				view.attr("errorMsg", "获取购买人列表失败：" + e.getMessage());
+			}
+
+			// 5. 跳转到列表页
+			return view;
+		});
 	}
 
 	/**
@@ -116,47 +106,57 @@ public class BuyServlet extends HttpServlet {
 	}
 
 	/**
-	 * 核心交易逻辑：按orderId查用户→生成tradeId→存入数据库→Session存储→跳转页面
-	 * @param request 请求对象（获取orderId参数）
-	 * @param response 响应对象（跳转页面）
+	 * 核心交易逻辑：按orderId查用户→生成tradeId→存入数据库（结果写入Session、页面跳转由doGet统一处理）
+	 * @param orderId 订单编号（从JSP的"与ta交易"按钮传递）
+	 * @return 交易的购买人
 	 * @throws SQLException 数据库操作异常
-	 * @throws ServletException 页面跳转异常
-	 * @throws IOException 流操作异常
 	 */
-	protected void trade(HttpServletRequest request, HttpServletResponse response)
-			throws SQLException, ServletException, IOException {
-		// 1. 获取前端传入的orderId参数（从JSP的"与ta交易"按钮传递）
-		String orderId = request.getParameter("orderId");
-		// 校验orderId是否为空（避免空指针）
+	protected Buyer trade(String orderId) throws SQLException {
+		// 1. 校验orderId是否为空（避免空指针）
 		if (orderId == null || orderId.trim().isEmpty()) {
 			throw new IllegalArgumentException("订单编号不能为空！");
 		}
 
-		// 2. 步骤1：根据orderId查询对应用户（调用Dao层方法）
-		Buyer selectedBuyer = buyerDao.getBuyerByOrderId(orderId);
-		// 校验是否查询到用户
-		if (selectedBuyer == null) {
-			throw new RuntimeException("未找到订单编号为【" + orderId + "】的购买人，请检查订单号是否正确！");
+		// 2~3 在同一个工作单元中执行：查询与交易共用一个连接和一个事务
+		Buyer selectedBuyer;
+		try (UnitOfWork uow = UnitOfWork.begin()) {
+			// 2. 步骤1：根据orderId查询对应用户（调用Dao层方法）
+			selectedBuyer = buyerDao.getBuyerByOrderId(orderId);
+			// 校验是否查询到用户
+			if (selectedBuyer == null) {
+				throw new RuntimeException("未找到订单编号为【" + orderId + "】的购买人，请检查订单号是否正确！");
+			}
+
+			// 3. 生成TradeID，填写Trade表信息（调用Dao层方法）
+			int affectRows = buyerDao.Trade(orderId);
+			// 校验tradeId是否保存成功（affectRows=1表示成功）
+			if (affectRows != 1) {
+				throw new RuntimeException("交易ID生成失败，请重试！");
+			}
+			// 交易只写 Trade/Works，Reservation 中的购买人信息不变，无需再查一次
+			uow.commit();
 		}
+		return selectedBuyer;
+	}
 
-		// 3. 生成TradeID，填写Trade表信息（调用Dao层方法）
-		int affectRows = buyerDao.Trade(orderId);
-		// 校验tradeId是否保存成功（affectRows=1表示成功）
-		if (affectRows != 1) {
-			throw new RuntimeException("交易ID生成失败，请重试！");
+	/**
+	 * 批量交易：页面勾选的多个 orderId 在同一事务中交易，每个订单的结果由 doGet 以 tradeResults 放入 request
+	 * @param values 请求中的多个 orderId 参数
+	 * @throws SQLException 数据库操作异常（整批回滚）
+	 */
+	protected List<TradeResult> tradeBatch(String[] values) throws SQLException {
+		List<String> orderIds = new ArrayList<>();
+		if (values != null) {
+			for (String v : values) {
+				if (v != null && !v.trim().isEmpty()) {
+					orderIds.add(v.trim());
+				}
+			}
 		}
-
-		// 4. 重新查询用户（获取最新的tradeId，因数据库已更新）
-		selectedBuyer = buyerDao.getBuyerByOrderId(orderId);
-
-		// 6. 将数据存入Session
-		HttpSession session = request.getSession();
-		session.setAttribute("selected_buyer", selectedBuyer);
-		session.setAttribute("selectedOrderId", orderId); // 存储当前选中的订单ID
-
-		// 转发跳转到BuyServlet
-		request.getRequestDispatcher("check_buyers.jsp").forward(request, response);
+		if (orderIds.isEmpty()) {
+			throw new IllegalArgumentException("请至少勾选一个订单！");
+		}
+		return buyerDao.tradeAll(orderIds);
 	}
-    
 
-}
\ No newline at end of file
+}
@@ -1,10 +1,10 @@
 package Servlet;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -14,9 +14,16 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import datebase.DbUtil;
+import datebase.Log;
+import datebase.Money;
+import datebase.OrderIdAllocator;
+import datebase.OrderSearchIndex;
+
 public class Buyer_message_servlet extends HttpServlet {
 
     private static final long serialVersionUID = -1970406637082738876L;
+    private static final Log LOG = Log.get(Buyer_message_servlet.class);
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
@@ -29,7 +36,6 @@ public class Buyer_message_servlet extends HttpServlet {
         String address = request.getParameter("trading_address");
         String time = request.getParameter("trading_time");
         time = time.replace("T", " ");
-        System.out.println(time);
         boolean isNameValid = buyerName != null && buyerName.matches("[A-Za-z0-9\\u4e00-\\u9fa5]{1,5}");
         boolean isPhoneValid = phoneNumber != null && phoneNumber.matches("\\d{11}");
         boolean isAddressValid = address != null && !address.isEmpty() && address.length() <= 20;
@@ -46,7 +52,9 @@ public class Buyer_message_servlet extends HttpServlet {
             return;
         }
         
-        try {
+        // 数据库工作在虚拟线程中执行，失败时返回 500
+        String tradingTime = time;
+        AsyncRequestExecutor.shared().execute(request, response, () -> {
             // 1. 获取最新商品的work_id和信息
             int latestWorkId = getLatestWorkId();
             if (latestWorkId == -1) {
@@ -57,15 +65,11 @@ public class Buyer_message_servlet extends HttpServlet {
             String orderTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
 
             // 3. 将预订信息（包含work_id）保存到 Reservation 表
-            saveToReservation(orderId, orderTime, buyerName, phoneNumber, address, time, latestWorkId);
+            saveToReservation(orderId, orderTime, buyerName, phoneNumber, address, tradingTime, latestWorkId);
 
             // 4. 再次获取商品信息用于在成功页面显示
-            getWorkDetailsAndForward(request, response, orderId, latestWorkId);
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new ServletException("数据库操作失败", e);
-        }
+            return getWorkDetails(orderId, latestWorkId);
+        });
     }
     
 
@@ -74,7 +78,8 @@ public class Buyer_message_servlet extends HttpServlet {
         
         Connection connection = null;
         PreparedStatement statement = null;
-        String sql = "INSERT INTO Reservation (order_id, order_time, buyer_name, buyer_phonenumber, trading_address, trading_time, work_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        // varchar 时间列保留原样，同时写入 datetime2 列 ordered_at/trading_at 供筛选与排序使用
+        String sql = "INSERT INTO Reservation (order_id, order_time, buyer_name, buyer_phonenumber, trading_address, trading_time, work_id, ordered_at, trading_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
         try {
             connection = getConnection();
@@ -87,42 +92,38 @@ public class Buyer_message_servlet extends HttpServlet {
             statement.setString(5, address);
             statement.setString(6, time);
             statement.setInt(7, workId);
+            statement.setTimestamp(8, toTimestamp(orderTime));
+            statement.setTimestamp(9, toTimestamp(time));
             
             statement.executeUpdate();
-            System.out.println("预订信息 (订单号: " + orderId + ") 已成功存入 Reservation 表。");
+            OrderSearchIndex.shared().putOrder(orderId, workId);
+            LOG.info("预订信息 (订单号: {}) 已成功存入 Reservation 表。", orderId);
         } finally {
             close(connection, statement, null);
         }
     }
 
 
-    private String generateNewOrderId() throws SQLException, ClassNotFoundException {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet rs = null;
-        String newOrderId = "DD00001"; // 默认起始ID
-
-        // 修正：应该从 Reservation 表查询最大订单号
-        String sql = "SELECT MAX(order_id) AS maxId FROM Reservation";
-
+    /**
+     * "yyyy-MM-dd HH:mm[:ss]" → Timestamp，无法解析时返回 null
+     */
+    private Timestamp toTimestamp(String value) {
+        String v = value.trim();
+        if (v.length() == 16) {
+            v += ":00";
+        }
         try {
-            connection = getConnection();
-            statement = connection.prepareStatement(sql);
-            rs = statement.executeQuery();
-            
-            if (rs.next()) {
-                String maxId = rs.getString("maxId");
-                if (maxId != null && maxId.startsWith("DD")) {
-                    int numericPart = Integer.parseInt(maxId.substring(2));
-                    numericPart++;
-                    newOrderId = String.format("DD%05d", numericPart);
-                }
-            }
-        } finally {
-            close(connection, statement, rs);
+            return Timestamp.valueOf(v);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-        
-        return newOrderId;
+    }
+
+    /**
+     * 从号段中分配订单号（DD00001 格式），不再 SELECT MAX(order_id)，并发预订不会拿到相同编号
+     */
+    private String generateNewOrderId() throws SQLException {
+        return OrderIdAllocator.shared().nextOrderId();
     }
 
     /**
@@ -152,9 +153,10 @@ public class Buyer_message_servlet extends HttpServlet {
     }
 
     /**
-     * 新增方法：获取商品详情并转发到成功页面。
+     * 新增方法：获取商品详情，作为成功页面的 request 属性返回。
      */
-    private void getWorkDetailsAndForward(HttpServletRequest request, HttpServletResponse response, String orderId, int workId) throws ServletException, IOException, SQLException, ClassNotFoundException {
+    private AsyncRequestExecutor.View getWorkDetails(String orderId, int workId) throws SQLException {
+        AsyncRequestExecutor.View view = new AsyncRequestExecutor.View("booking_information.jsp");
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet rs = null;
@@ -167,29 +169,25 @@ public class Buyer_message_servlet extends HttpServlet {
             rs = statement.executeQuery();
 
             if (rs.next()) {
-                request.setAttribute("order_id", orderId);
-                request.setAttribute("work_name", rs.getString("work_name"));
-                request.setAttribute("work_price", rs.getString("work_price"));
+                view.attr("order_id", orderId);
+                view.attr("work_name", rs.getString("work_name"));
+                view.attr("work_price", Money.of(rs.getBigDecimal("work_price")).toString());
             } else {
                 // 如果找不到商品，也设置默认值，避免页面出错
-                request.setAttribute("order_id", orderId);
-                request.setAttribute("work_name", "商品信息未知");
-                request.setAttribute("work_price", "N/A");
+                view.attr("order_id", orderId);
+                view.attr("work_name", "商品信息未知");
+                view.attr("work_price", "N/A");
             }
         } finally {
             close(connection, statement, rs);
         }
         
-        request.getRequestDispatcher("booking_information.jsp").forward(request, response);
+        return view;
     }
     
 
-    private Connection getConnection() throws SQLException, ClassNotFoundException {
-        String jdbcURL = "jdbc:sqlserver://localhost:1433;DatabaseName=Wuyi;encrypt=true;trustServerCertificate=true"; 
-        String dbUser ="sa"; 
-        String dbPassword =  "ye041017";
-        Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-        return DriverManager.getConnection(jdbcURL, dbUser, dbPassword);
+    private Connection getConnection() throws SQLException {
+        return DbUtil.getCon();
     }
 
     private void close(Connection conn, PreparedStatement pstmt, ResultSet rs) {
@@ -198,7 +196,7 @@ public class Buyer_message_servlet extends HttpServlet {
             if (pstmt != null) pstmt.close();
             if (conn != null) conn.close();
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.warn("关闭数据库资源异常：{}", e.getMessage());
         }
     }
 }
@@ -3,7 +3,6 @@ package Servlet;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -14,10 +13,15 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import datebase.DbUtil;
+import datebase.Log;
+import datebase.OrderSearchIndex;
+
 
 public class Buyercheck_ordermessage extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(Buyercheck_ordermessage.class);
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -116,7 +120,7 @@ public class Buyercheck_ordermessage extends HttpServlet {
             }
 
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("查询订单失败", e);
             request.setAttribute("errorMessage", "数据库查询出错！");
         } finally {
             close(conn, pstmt, rs);
@@ -138,13 +142,14 @@ public class Buyercheck_ordermessage extends HttpServlet {
 
             int rowsAffected = pstmt.executeUpdate();
             if (rowsAffected > 0) {
+                OrderSearchIndex.shared().removeOrder(orderId);
                 request.setAttribute("successMessage", "订单 " + orderId + " 已成功取消！");
             } else {
                 request.setAttribute("errorMessage", "取消失败，可能订单已被处理或不存在。");
             }
 
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("取消订单失败", e);
             request.setAttribute("errorMessage", "数据库操作失败！");
         } finally {
             close(conn, pstmt, null);
@@ -153,21 +158,17 @@ public class Buyercheck_ordermessage extends HttpServlet {
         request.getRequestDispatcher("check_order.jsp").forward(request, response);
     }
     
-    private Connection getConnection() throws SQLException, ClassNotFoundException {
-        String jdbcURL = "jdbc:sqlserver://localhost:1433;DatabaseName=Wuyi;encrypt=true;trustServerCertificate=true"; 
-        String dbUser ="sa"; 
-        String dbPassword =  "ye041017";
-        Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-        return DriverManager.getConnection(jdbcURL, dbUser, dbPassword);
+    private Connection getConnection() throws SQLException {
+        return DbUtil.getCon();
     }
-    
+
     private void close(Connection conn, PreparedStatement pstmt, ResultSet rs) {
         try {
             if (rs != null) rs.close();
             if (pstmt != null) pstmt.close();
             if (conn != null) conn.close();
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.warn("关闭数据库资源异常：{}", e.getMessage());
         }
     }
 }
@@ -0,0 +1,73 @@
+package Servlet;
+
+import java.sql.SQLException;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import javax.sql.DataSource;
+
+import datebase.AppConfig;
+import datebase.DbUtil;
+import datebase.Log;
+import datebase.OrderIdAllocator;
+import datebase.OrderSearchIndex;
+import datebase.SchemaMigrator;
+import datebase.SnowflakeIdGenerator;
+import datebase.WorksCache;
+
+/**
+ * 应用生命周期监听：启动时加载一次应用配置（AppConfig）并交给连接池与各共享组件，设置日志级别、预热连接池、
+ * 执行数据库迁移（失败则中止部署），并在后台构建订单搜索索引、检查热点查询的执行计划，
+ * 停止时关闭索引重建线程、异步请求执行器与连接池（避免重新部署后遗留线程和物理连接）
+ */
+public class DbPoolListener implements ServletContextListener {
+
+    private static final Log LOG = Log.get(DbPoolListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // 配置只在这里加载一次，连接池与各共享组件都使用同一份
+        AppConfig config = AppConfig.load();
+        AppConfig.set(config);
+        Log.setLevel(config.getLogLevel());
+        DataSource ds = DbUtil.getDataSource();
+        if (config.isMigrateOnStartup()) {
+            try {
+                int applied = new SchemaMigrator(ds).migrate();
+                LOG.info("数据库迁移检查完成，本次执行 {} 个脚本", applied);
+            } catch (SQLException e) {
+                // DAO 已依赖迁移后的表结构（trading_at、DECIMAL 价格等），迁移失败时不能带着旧结构继续启动
+                LOG.error("数据库迁移失败：{}", e.getMessage(), e);
+                // 启动失败时容器不会调用 contextDestroyed，这里自行关闭连接池
+                DbUtil.shutdown();
+                Log.flush();
+                throw new IllegalStateException("数据库迁移失败，应用停止启动", e);
+            }
+        }
+        WorksCache.init(config);
+        OrderIdAllocator.init(config);
+        SnowflakeIdGenerator.init(config);
+        AsyncRequestExecutor.init(config);
+        // 迁移完成后再在后台构建订单搜索索引
+        OrderSearchIndex.start(config);
+        if (config.isPlanCheckOnStartup()) {
+            // 索引建好后的执行计划检查只写日志，不阻塞启动
+            Thread.ofVirtual().name("wuyi-plan-check").start(() -> {
+                try {
+                    QueryPlanCheck.run(config.getPool());
+                } catch (SQLException | RuntimeException e) {
+                    LOG.warn("执行计划检查失败：{}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        OrderSearchIndex.shutdown();
+        AsyncRequestExecutor.shutdownShared();
+        DbUtil.shutdown();
+        Log.flush();
+    }
+}
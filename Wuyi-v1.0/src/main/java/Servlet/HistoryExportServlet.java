@@ -0,0 +1,127 @@
+package Servlet;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import datebase.DbUtil;
+import datebase.Log;
+import datebase.TableExportWriter;
+
+/**
+ * 历史购买记录导出：筛选条件与列表页相同（search、status、startTime、endTime，复用 HistoryProductsServlet.appendFilters），
+ * format=csv|xlsx（默认 csv），导出全部匹配的订单，不分页。
+ * 行从 ResultSet 读出后直接写入响应流，不构造 Order 对象也不在内存中累积，内存占用与导出行数无关：
+ * 只读、单向结果集按 fetchSize（init-param，默认 1000）分批从数据库读取，每写出一批就 flushBuffer，
+ * 响应不设 Content-Length，容器以分块传输（chunked）边查边发。
+ * 导出可能持续数分钟，不经过 AsyncRequestExecutor（其超时针对交互页面），也不设查询超时。
+ * 中途出错时响应已提交，只能中断连接，客户端得到不完整的下载而不是一份看似完整的文件。
+ */
+public class HistoryExportServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	private static final Log LOG = Log.get(HistoryExportServlet.class);
+
+	private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd_HHmm");
+
+	private static final String EXPORT_SELECT =
+			"SELECT r.order_id, t.trade_id, r.work_id, w.work_name, w.work_price, w.work_status, " +
+			"r.buyer_name, r.buyer_phonenumber, r.trading_address, r.ordered_at, r.trading_at " +
+			"FROM Reservation r " +
+			"JOIN Works w ON r.work_id = w.work_id " +
+			HistoryProductsServlet.LATEST_TRADE +
+			"WHERE 1=1 ";
+
+	private static final Object[] HEADER = {"订单号", "交易号", "商品编号", "商品名称", "价格", "商品状态",
+			"购买人", "联系电话", "交易地址", "下单时间", "交易时间"};
+
+	/** 每次从数据库取回的行数，同时也是刷新响应的间隔 */
+	private int fetchSize = 1000;
+
+	@Override
+	public void init() throws ServletException {
+		String size = getInitParameter("fetchSize");
+		if (size != null && !size.trim().isEmpty()) {
+			fetchSize = Integer.parseInt(size.trim());
+		}
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		request.setCharacterEncoding("UTF-8");
+		String search = request.getParameter("search");
+		String status = request.getParameter("status");
+		LocalDateTime startTime = HistoryProductsServlet.parseDateTime(request.getParameter("startTime"));
+		LocalDateTime endTime = HistoryProductsServlet.parseDateTime(request.getParameter("endTime"));
+
+		StringBuilder sql = new StringBuilder(EXPORT_SELECT);
+		List<Object> params = new ArrayList<>();
+		HistoryProductsServlet.appendFilters(sql, params, search, status, startTime, endTime);
+		sql.append(" ORDER BY r.trading_at DESC, r.order_id DESC");
+
+		TableExportWriter writer = TableExportWriter.forFormat(request.getParameter("format"), response.getOutputStream());
+		response.setContentType(writer.getContentType());
+		response.setHeader("Content-Disposition", "attachment; filename=\"history_orders_"
+				+ FILE_TIME.format(LocalDateTime.now()) + "." + writer.getExtension() + "\"");
+
+		long start = System.nanoTime();
+		long rows = 0;
+		try (Connection conn = DbUtil.getCon();
+			 PreparedStatement ps = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+					 ResultSet.CONCUR_READ_ONLY)) {
+			for (int i = 0; i < params.size(); i++) {
+				ps.setObject(i + 1, params.get(i));
+			}
+			ps.setFetchSize(fetchSize);
+			boolean finished = false;
+			try (ResultSet rs = ps.executeQuery()) {
+				writer.writeRow(HEADER);
+				while (rs.next()) {
+					writer.writeRow(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getString(4),
+							rs.getBigDecimal(5), HistoryProductsServlet.mapStatusToZh(rs.getString(6)),
+							rs.getString(7), rs.getString(8), rs.getString(9),
+							rs.getObject(10, LocalDateTime.class), rs.getObject(11, LocalDateTime.class));
+					if (++rows % fetchSize == 0) {
+						writer.flush();
+						response.flushBuffer();
+					}
+				}
+				finished = true;
+			} finally {
+				if (!finished) {
+					// 未读完就关闭结果集时驱动会把剩余行读完再丢弃，先取消查询
+					cancelQuietly(ps);
+				}
+			}
+			writer.close();
+			LOG.info("导出历史订单 {} 行（{}），耗时 {}ms", rows, writer.getExtension(),
+					(System.nanoTime() - start) / 1_000_000);
+		} catch (SQLException e) {
+			LOG.error("导出历史订单失败，已写出 {} 行", rows, e);
+			if (!response.isCommitted()) {
+				response.reset();
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "导出失败，请稍后重试");
+				return;
+			}
+			throw new ServletException("导出历史订单失败", e);
+		}
+	}
+
+	private static void cancelQuietly(PreparedStatement ps) {
+		try {
+			ps.cancel();
+		} catch (SQLException ignored) {
+			// 查询已结束或连接已断开
+		}
+	}
+}
@@ -4,9 +4,11 @@ import datebase.*;
 import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -20,23 +22,114 @@ import javax.servlet.http.HttpServletResponse;
  * 功能概述：
  * 1) 连接 SQL Server 数据库（库名 Wuyi），联表查询 Reservation/Works/Trade 三张表
  * 2) 支持条件筛选：关键字（订单号/商品名）、商品状态（available|frozen|sold）、时间范围（交易时间）
- * 3) 支持分页（SQL Server OFFSET/FETCH）
- * 4) 将结果集映射为领域模型 Order/Product/User，并计算基础统计数据
+ * 3) 支持分页：按页码跳转（SQL Server OFFSET/FETCH），上一页/下一页走游标（keyset/seek，按 (trading_at, order_id) 定位）
+ * 4) 将结果集映射为领域模型 Order/Product/User；无筛选条件时统计数据读取物化汇总表 SalesStats（与订单量无关），
+ *    有筛选条件时对筛选结果做一次聚合查询
  * 5) 将数据放入 Request Attribute，转发到 JSP 进行展示
+ * 6) 总记录数按筛选条件短时缓存（init-param countCacheSeconds，默认 30 秒，0 表示不缓存）
+ * 7) 总数、当前页、统计三个查询并行执行，整体时限由 init-param queryTimeoutSeconds 配置（默认 10 秒）
  */
 public class HistoryProductsServlet extends HttpServlet {
 
+    private static final Log LOG = Log.get(HistoryProductsServlet.class);
+
     /**
      * 前端 <input type="datetime-local"> 的时间格式（示例：2025-09-25T14:30）
      */
     private static final DateTimeFormatter INPUT_DT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
-    /** 数据库存储在 Reservation 表中的字符串时间格式（优先包含秒） */
-    private static final DateTimeFormatter DB_DT_SECOND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    /** 数据库存储在 Reservation 表中的字符串时间格式（仅到分钟） */
-    private static final DateTimeFormatter DB_DT_MINUTE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    /** 搜索候选改写为 IN 列表的上限，超过时该部分仍用 LIKE（SQL Server 单条语句最多 2100 个参数） */
+    private static final int SEARCH_IN_LIMIT = 500;
+    /** 总数缓存最多保留的筛选条件组合数，超出后整体清空 */
+    private static final int COUNT_CACHE_MAX_ENTRIES = 256;
+
+    /** 总记录数缓存有效期（毫秒） */
+    private long countCacheMillis = 30_000;
+    /** 并行查询（总数、当前页、统计）整体时限（毫秒） */
+    private long queryTimeoutMillis = 10_000;
+    /** 筛选条件 → 总记录数 */
+    private final Map<String, CachedCount> countCache = new java.util.concurrent.ConcurrentHashMap<>();
+    /** 预先汇总的销售统计 */
+    private final SalesStatsStore salesStats = new SalesStatsStore();
+
+    /** 缓存的总记录数及其生成时间 */
+    private static final class CachedCount {
+        final int value;
+        final long createdAt;
+
+        CachedCount(int value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /** 一页查询结果及边界行的排序键（包内可见，基准测试直接调用 queryOrders） */
+    static final class OrderPage {
+        final List<Order> orders = new ArrayList<>();
+        PageCursor first;
+        PageCursor last;
+        // 游标方向上是否还有更多数据（多取一行判断）
+        boolean hasMore;
+        // 同一连接上读取的统计卡片数据（见 loadStatistics）
+        Statistics statistics;
+    }
+
+    @Override
+    public void init() throws ServletException {
+        String seconds = getInitParameter("countCacheSeconds");
+        if (seconds != null && !seconds.trim().isEmpty()) {
+            countCacheMillis = Long.parseLong(seconds.trim()) * 1000L;
+        }
+        String timeout = getInitParameter("queryTimeoutSeconds");
+        if (timeout != null && !timeout.trim().isEmpty()) {
+            queryTimeoutMillis = Long.parseLong(timeout.trim()) * 1000L;
+        }
+    }
+
+    /** 订单最近一笔交易的交易号：同一订单交易过多次时 Trade 有多行，只取一行，保证每个订单只出现一次（游标按订单定位） */
+    static final String LATEST_TRADE =
+            "OUTER APPLY (SELECT TOP 1 tr.trade_id FROM Trade tr WHERE tr.order_id = r.order_id ORDER BY tr.trade_id DESC) t ";
+
+    /** 列表查询的公共 SELECT/FROM 部分（后接 appendFilters 拼接的条件） */
+    private static final String ORDER_SELECT =
+            "SELECT r.order_id, r.buyer_name, r.buyer_phonenumber, r.trading_address, r.trading_at, r.ordered_at, r.work_id, " +
+            "w.work_name, w.work_description, w.work_image, w.work_price, w.work_status, " +
+            "t.trade_id " +
+            "FROM Reservation r " +
+            "JOIN Works w ON r.work_id = w.work_id " +
+            LATEST_TRADE +
+            "WHERE 1=1 ";
+
+    /** 总数查询的公共部分（后接 appendFilters 拼接的条件；筛选不涉及 Trade，按订单计数不关联 Trade） */
+    private static final String COUNT_SELECT =
+            "SELECT COUNT(1) FROM Reservation r " +
+            "JOIN Works w ON r.work_id = w.work_id " +
+            "WHERE 1=1 ";
 
     /**
-     * 处理 GET：读取查询条件，执行统计与分页查询，转发到 JSP。
+     * 筛选结果的统计聚合（后接 appendFilters 拼接的条件）：交易数、已售数量与金额，以及本月与上月各自的三项，用于环比。
+     * 参数依次为本月起、下月起、上月起、本月起（trading_at 左闭右开）
+     */
+    private static final String STATS_SELECT =
+            "SELECT COUNT(1) AS trade_count, SUM(p.sold) AS sold_count, " +
+            "SUM(CASE WHEN p.sold = 1 THEN w.work_price ELSE 0 END) AS sold_amount, " +
+            "SUM(CASE WHEN p.period = 1 THEN 1 ELSE 0 END) AS cur_trades, " +
+            "SUM(CASE WHEN p.period = 1 THEN p.sold ELSE 0 END) AS cur_sold, " +
+            "SUM(CASE WHEN p.period = 1 AND p.sold = 1 THEN w.work_price ELSE 0 END) AS cur_amount, " +
+            "SUM(CASE WHEN p.period = 2 THEN 1 ELSE 0 END) AS prev_trades, " +
+            "SUM(CASE WHEN p.period = 2 THEN p.sold ELSE 0 END) AS prev_sold, " +
+            "SUM(CASE WHEN p.period = 2 AND p.sold = 1 THEN w.work_price ELSE 0 END) AS prev_amount " +
+            "FROM Reservation r " +
+            "JOIN Works w ON r.work_id = w.work_id " +
+            "CROSS APPLY (SELECT CASE WHEN r.trading_at >= ? AND r.trading_at < ? THEN 1 " +
+            "                         WHEN r.trading_at >= ? AND r.trading_at < ? THEN 2 ELSE 0 END AS period, " +
+            "                    CASE WHEN w.work_status = 'sold' THEN 1 ELSE 0 END AS sold) p " +
+            "WHERE 1=1 ";
+
+    /** 按页码分页的排序与 OFFSET/FETCH（参数：跳过行数、每页行数） */
+    private static final String PAGE_ORDER = " ORDER BY r.trading_at DESC, r.order_id DESC OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+
+    /**
+     * 处理 GET：读取查询条件，异步执行统计与分页查询，转发到 JSP。
      */
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -51,6 +144,9 @@ public class HistoryProductsServlet extends HttpServlet {
         String endTimeParam = request.getParameter("endTime");   // yyyy-MM-dd'T'HH:mm
         String pageParam = request.getParameter("page");
         String pageSizeParam = request.getParameter("pageSize");
+        // 上一页/下一页的游标（不透明令牌）与方向 next|prev；无游标时按页码查询
+        PageCursor cursor = PageCursor.decode(request.getParameter("cursor"));
+        boolean backward = "prev".equals(request.getParameter("dir"));
         
         // 解析分页参数（默认第1页，每页10条）
         int page = 1;
@@ -69,29 +165,71 @@ public class HistoryProductsServlet extends HttpServlet {
         // 解析起止时间（为空则不做时间过滤）
         LocalDateTime startTime = parseDateTime(startTimeParam);
         LocalDateTime endTime = parseDateTime(endTimeParam);
+        int currentPage = page;
+        int size = pageSize;
 
-        // 先统计总记录数（用于计算总页数），再按分页查询当前页数据
-        int totalRecords = countOrders(search, status, startTime, endTime);
+        // 查询在虚拟线程中执行，不占用容器线程；完成后转发到列表 JSP
+        AsyncRequestExecutor.shared().execute(request, response, () -> {
+            AsyncRequestExecutor.View view = loadPage(search, status, startTime, endTime, cursor, backward,
+                    currentPage, size);
+            // 将查询条件回传到前端
+            return view.attr("search", search != null ? search : "")
+                    .attr("status", status != null ? status : "")
+                    .attr("startTime", startTimeParam != null ? startTimeParam : "")
+                    .attr("endTime", endTimeParam != null ? endTimeParam : "");
+        });
+    }
+
+    /**
+     * 执行统计与分页查询，结果作为列表页的 request 属性返回。
+     * 总数与当前页互不依赖，在同一个 TaskScope 中并行执行，耗时取两者中较慢的一个；
+     * 统计紧接在当前页之后复用同一个连接（无筛选时按主键读 SalesStats 三行，有筛选时聚合筛选结果），
+     * 一次页面请求最多同时占用两个池连接。
+     * 任一查询失败或超过 queryTimeoutSeconds 时其余查询被中断，请求超时中断本线程时同样传递给各查询。
+     */
+    private AsyncRequestExecutor.View loadPage(String search, String status, LocalDateTime startTime,
+                                               LocalDateTime endTime, PageCursor cursor, boolean backward,
+                                               int page, int pageSize)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        AsyncRequestExecutor.View view = new AsyncRequestExecutor.View("history_products.jsp");
+
+        int totalRecords;
+        OrderPage orderPage;
+        Statistics statistics;
+        try (TaskScope scope = new TaskScope(queryTimeoutMillis)) {
+            // 总记录数（短时缓存，翻页不再每次全量 COUNT）
+            TaskScope.Subtask<Integer> count = scope.fork(() -> countOrdersCached(search, status, startTime, endTime));
+            // 当前页数据：有游标时从边界行继续向前/向后定位（seek），代价与第1页相同；否则按页码 OFFSET。
+            // 随后在同一连接上读取统计卡片的数据
+            TaskScope.Subtask<OrderPage> rows = scope.fork(() -> {
+                try (Connection conn = DbUtil.getCon()) {
+                    OrderPage result = cursor != null
+                            ? queryOrdersByCursor(conn, search, status, startTime, endTime, cursor, backward, pageSize)
+                            : queryOrders(conn, search, status, startTime, endTime, page, pageSize);
+                    result.statistics = loadStatistics(conn, search, status, startTime, endTime);
+                    return result;
+                }
+            });
+            scope.join();
+            totalRecords = count.get();
+            orderPage = rows.get();
+            statistics = orderPage.statistics;
+        }
         int totalPages = (int) Math.ceil((double) totalRecords / pageSize);
-        List<Order> pagedOrders = queryOrders(search, status, startTime, endTime, page, pageSize);
+        List<Order> pagedOrders = orderPage.orders;
 
-        // 计算统计数据（此处基于当前页数据；如需全量统计，可改为基于无分页查询）
-        Statistics statistics = calculateStatistics(pagedOrders, totalRecords);
-        
-        // 将数据与查询条件回传到前端
-        request.setAttribute("orders", pagedOrders);
-        request.setAttribute("statistics", statistics);
-        request.setAttribute("currentPage", page);
-        request.setAttribute("totalPages", totalPages);
-        request.setAttribute("totalRecords", totalRecords);
-        request.setAttribute("pageSize", pageSize);
-        request.setAttribute("search", search != null ? search : "");
-        request.setAttribute("status", status != null ? status : "");
-        request.setAttribute("startTime", startTimeParam != null ? startTimeParam : "");
-        request.setAttribute("endTime", endTimeParam != null ? endTimeParam : "");
-        
-        // 转发到列表 JSP
-        request.getRequestDispatcher("history_products.jsp").forward(request, response);
+        // 相邻页游标：向前翻时多取的一行说明前面还有数据；其余情况按页码判断
+        boolean hasPrev = cursor != null && backward ? orderPage.hasMore : page > 1;
+        boolean hasNext = cursor != null && !backward ? orderPage.hasMore : page < totalPages;
+        view.attr("prevCursor", hasPrev && orderPage.first != null ? orderPage.first.encode() : "");
+        view.attr("nextCursor", hasNext && orderPage.last != null ? orderPage.last.encode() : "");
+
+        return view.attr("orders", pagedOrders)
+                .attr("statistics", statistics)
+                .attr("currentPage", page)
+                .attr("totalPages", totalPages)
+                .attr("totalRecords", totalRecords)
+                .attr("pageSize", pageSize);
     }
 
     /**
@@ -133,7 +271,7 @@ public class HistoryProductsServlet extends HttpServlet {
      * @param param 形如 2025-09-25T14:30
      * @return 解析成功则返回时间，失败或为空返回 null
      */
-    private LocalDateTime parseDateTime(String param) {
+    static LocalDateTime parseDateTime(String param) {
         if (param == null || param.trim().isEmpty()) return null;
         try {
             return LocalDateTime.parse(param, INPUT_DT);
@@ -142,111 +280,278 @@ public class HistoryProductsServlet extends HttpServlet {
         }
     }
 
-    /**
-     * 解析数据库中的 varchar 日期时间（优先带秒，其次到分钟）。
-     */
-    private LocalDateTime parseDbDateTime(String value) {
-        if (value == null || value.trim().isEmpty()) return null;
-        String v = value.trim();
-        try {
-            return LocalDateTime.parse(v, DB_DT_SECOND);
-        } catch (Exception ignore) { }
-        try {
-            return LocalDateTime.parse(v, DB_DT_MINUTE);
-        } catch (Exception ignore) { }
-        // 最后尝试让 SQL Server 驱动输出的 Timestamp 再兜底（若字段类型被改为 datetime）
-        try {
-            Timestamp ts = Timestamp.valueOf(v);
-            return ts.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        } catch (Exception ignore) { }
-        return null;
-    }
-
     /**
      * 统计满足筛选条件的总记录数。
      */
-    private int countOrders(String search, String status, LocalDateTime startTime, LocalDateTime endTime) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT COUNT(1) FROM Reservation r ")
-           .append("JOIN Works w ON r.work_id = w.work_id ")
-           .append("LEFT JOIN Trade t ON r.order_id = t.order_id ")
-           .append("WHERE 1=1 ");
-
+    int countOrders(String search, String status, LocalDateTime startTime, LocalDateTime endTime) {
+        StringBuilder sql = new StringBuilder(COUNT_SELECT);
         List<Object> params = new ArrayList<>();
         appendFilters(sql, params, search, status, startTime, endTime);
 
-        try (Connection conn = DbUtil.getCon();
-             PreparedStatement ps = prepare(conn, sql.toString(), params)) {
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getInt(1);
-            }
+        try {
+            return Metrics.dao("HistoryProductsServlet.countOrders", () -> {
+                try (Connection conn = DbUtil.getCon();
+                     PreparedStatement ps = prepare(conn, sql.toString(), params);
+                     ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } catch (Exception e) {
             throw new RuntimeException("Count query failed", e);
         }
-        return 0;
     }
 
     /**
-     * 分页查询订单明细数据，并映射为领域对象。
+     * 带缓存的总记录数：同一筛选条件在有效期内复用上次 COUNT 结果（可能与实时数据有短暂偏差）。
      */
-    private List<Order> queryOrders(String search, String status, LocalDateTime startTime, LocalDateTime endTime,
-                                    int page, int pageSize) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT r.order_id, r.buyer_name, r.buyer_phonenumber, r.trading_address, r.trading_time, r.order_time, r.work_id, ")
-           .append("w.work_name, w.work_description, w.work_image, w.work_price, w.work_status, ")
-           .append("t.trade_id ")
-           .append("FROM Reservation r ")
-           .append("JOIN Works w ON r.work_id = w.work_id ")
-           .append("LEFT JOIN Trade t ON r.order_id = t.order_id ")
-           .append("WHERE 1=1 ");
+    private int countOrdersCached(String search, String status, LocalDateTime startTime, LocalDateTime endTime) {
+        if (countCacheMillis <= 0) {
+            return countOrders(search, status, startTime, endTime);
+        }
+        String key = search + '\u0001' + status + '\u0001' + startTime + '\u0001' + endTime;
+        long now = System.currentTimeMillis();
+        CachedCount cached = countCache.get(key);
+        if (cached != null && now - cached.createdAt < countCacheMillis) {
+            return cached.value;
+        }
+        int count = countOrders(search, status, startTime, endTime);
+        if (countCache.size() >= COUNT_CACHE_MAX_ENTRIES) {
+            countCache.clear();
+        }
+        countCache.put(key, new CachedCount(count, now));
+        return count;
+    }
 
+    /**
+     * 按页码分页查询订单明细数据（OFFSET/FETCH）并映射为领域对象，同时记录首尾行的排序键供上一页/下一页使用。
+     */
+    OrderPage queryOrders(String search, String status, LocalDateTime startTime, LocalDateTime endTime,
+                                     int page, int pageSize) {
+        try (Connection conn = DbUtil.getCon()) {
+            return queryOrders(conn, search, status, startTime, endTime, page, pageSize);
+        } catch (SQLException e) {
+            throw new RuntimeException("Paged query failed", e);
+        }
+    }
+
+    private OrderPage queryOrders(Connection conn, String search, String status, LocalDateTime startTime,
+                                  LocalDateTime endTime, int page, int pageSize) {
+        StringBuilder sql = new StringBuilder(ORDER_SELECT);
         List<Object> params = new ArrayList<>();
         appendFilters(sql, params, search, status, startTime, endTime);
-        sql.append(" ORDER BY r.trading_time DESC OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+        sql.append(PAGE_ORDER);
         int offset = (page - 1) * pageSize;
         params.add(offset);
         params.add(pageSize);
 
-        List<Order> result = new ArrayList<>();
-        try (Connection conn = DbUtil.getCon();
-             PreparedStatement ps = prepare(conn, sql.toString(), params)) {
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    result.add(mapRowToOrder(rs));
+        OrderPage result = new OrderPage();
+        fetchPage(conn, sql.toString(), params, pageSize, result);
+        return result;
+    }
+
+    /**
+     * 游标分页（seek）：从边界行 (trading_at, order_id) 之后/之前取一页，
+     * 不再扫描并丢弃前面的 OFFSET 行，深页与第1页代价相同。多取一行用于判断该方向上是否还有数据。
+     */
+    private OrderPage queryOrdersByCursor(Connection conn, String search, String status, LocalDateTime startTime,
+                                          LocalDateTime endTime, PageCursor cursor, boolean backward, int pageSize) {
+        StringBuilder sql = new StringBuilder(ORDER_SELECT);
+        List<Object> params = new ArrayList<>();
+        appendFilters(sql, params, search, status, startTime, endTime);
+        appendSeek(sql, params, cursor, backward, pageSize);
+
+        OrderPage result = new OrderPage();
+        fetchPage(conn, sql.toString(), params, pageSize, result);
+        if (backward) {
+            // 向前翻页按升序取出，恢复为页面的倒序展示
+            Collections.reverse(result.orders);
+            PageCursor first = result.first;
+            result.first = result.last;
+            result.last = first;
+        }
+        return result;
+    }
+
+    /**
+     * 游标定位条件与排序：取排序键在边界行之后（向前翻页时为之前）的 pageSize + 1 行。
+     * trading_at 为 NULL 的旧数据在 SQL Server 中排在 DESC 顺序的最后（ASC 的最前），定位条件按同样的顺序处理 NULL：
+     * 向后翻页时非 NULL 边界之后还包括全部 NULL 行，NULL 边界之后只有 order_id 更小的 NULL 行；向前翻页反之。
+     */
+    private static void appendSeek(StringBuilder sql, List<Object> params, PageCursor cursor, boolean backward,
+                                   int pageSize) {
+        String cmp = backward ? ">" : "<";
+        if (cursor.getTradingTime() == null) {
+            sql.append(backward
+                    ? " AND (r.trading_at IS NOT NULL OR r.order_id > ?) "
+                    : " AND (r.trading_at IS NULL AND r.order_id < ?) ");
+            params.add(cursor.getOrderId());
+        } else {
+            sql.append(" AND (r.trading_at ").append(cmp).append(" ? OR (r.trading_at = ? AND r.order_id ")
+               .append(cmp).append(" ?)").append(backward ? "" : " OR r.trading_at IS NULL").append(") ");
+            Timestamp seekTime = Timestamp.valueOf(cursor.getTradingTime());
+            params.add(seekTime);
+            params.add(seekTime);
+            params.add(cursor.getOrderId());
+        }
+        String order = backward ? "ASC" : "DESC";
+        sql.append(" ORDER BY r.trading_at ").append(order).append(", r.order_id ").append(order)
+           .append(" OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY");
+        params.add(pageSize + 1);
+    }
+
+    /**
+     * 执行分页 SQL，最多映射 limit 行；记录首尾行排序键，超出 limit 的一行只用于标记 hasMore。
+     */
+    private void fetchPage(Connection conn, String sql, List<Object> params, int limit, OrderPage page) {
+        try {
+            Metrics.dao("HistoryProductsServlet.fetchPage", p -> p.orders.size(), () -> {
+                try (PreparedStatement ps = prepare(conn, sql, params);
+                     ResultSet rs = ps.executeQuery()) {
+                    int[] col = ORDER_MAPPER.resolve(rs);
+                    while (rs.next()) {
+                        if (page.orders.size() == limit) {
+                            page.hasMore = true;
+                            break;
+                        }
+                        Order order = ORDER_MAPPER.mapRow(rs, col);
+                        PageCursor key = new PageCursor(order.getTransactionTime(), order.getOrderNumber());
+                        if (page.first == null) {
+                            page.first = key;
+                        }
+                        page.last = key;
+                        page.orders.add(order);
+                    }
                 }
-            }
+                return page;
+            });
         } catch (Exception e) {
             throw new RuntimeException("Paged query failed", e);
         }
-        return result;
     }
 
     /**
-     * 将公共筛选逻辑拼接到 SQL，并按顺序填充参数列表。
+     * 将公共筛选逻辑拼接到 SQL，并按顺序填充参数列表（导出 HistoryExportServlet 共用）。
      */
-    private void appendFilters(StringBuilder sql, List<Object> params, String search, String status,
+    static void appendFilters(StringBuilder sql, List<Object> params, String search, String status,
                                LocalDateTime startTime, LocalDateTime endTime) {
         if (search != null && !search.trim().isEmpty()) {
-            sql.append(" AND (r.order_id LIKE ? OR w.work_name LIKE ?) ");
-            String like = "%" + search.trim() + "%";
-            params.add(like);
-            params.add(like);
+            appendSearch(sql, params, search.trim());
         }
         if (status != null && !status.trim().isEmpty()) {
             sql.append(" AND w.work_status = ? ");
             params.add(status.trim());
         }
         if (startTime != null) {
-            // 将 varchar 转换为 datetime 再比较，避免直接与 Timestamp 比较导致转换错误
-            sql.append(" AND TRY_CONVERT(datetime, r.trading_time, 120) >= ? ");
+            // trading_at 为 datetime2 列，直接比较可走 IX_Reservation_trading_at 索引
+            sql.append(" AND r.trading_at >= ? ");
             params.add(Timestamp.valueOf(startTime));
         }
         if (endTime != null) {
-            sql.append(" AND TRY_CONVERT(datetime, r.trading_time, 120) <= ? ");
+            sql.append(" AND r.trading_at <= ? ");
             params.add(Timestamp.valueOf(endTime));
         }
     }
 
+    /**
+     * 关键字条件：订单号或商品名称包含关键字。
+     * 订单搜索索引可用时先在内存中查出候选，改写为 r.order_id IN (...) / r.work_id IN (...)，走索引查找而不是扫描两张表；
+     * 商品候选仍附带名称 LIKE 校验（索引里可能还留着改名前的旧名称）。某类候选超过 SEARCH_IN_LIMIT 时该部分仍用 LIKE。
+     */
+    private static void appendSearch(StringBuilder sql, List<Object> params, String keyword) {
+        String like = "%" + keyword + "%";
+        OrderSearchIndex index = OrderSearchIndex.shared();
+        if (!index.isReady()) {
+            sql.append(" AND (r.order_id LIKE ? OR w.work_name LIKE ?) ");
+            params.add(like);
+            params.add(like);
+            return;
+        }
+        OrderSearchIndex.Match match = index.match(keyword, SEARCH_IN_LIMIT);
+        List<String> parts = new ArrayList<>(2);
+        List<String> orderIds = match.getOrderIds();
+        if (orderIds == null) {
+            parts.add("r.order_id LIKE ?");
+            params.add(like);
+        } else if (!orderIds.isEmpty()) {
+            parts.add("r.order_id IN (" + placeholders(orderIds.size()) + ")");
+            params.addAll(orderIds);
+        }
+        List<Integer> workIds = match.getWorkIds();
+        if (workIds == null) {
+            parts.add("w.work_name LIKE ?");
+            params.add(like);
+        } else if (!workIds.isEmpty()) {
+            parts.add("(r.work_id IN (" + placeholders(workIds.size()) + ") AND w.work_name LIKE ?)");
+            params.addAll(workIds);
+            params.add(like);
+        }
+        if (parts.isEmpty()) {
+            // 索引中没有任何匹配
+            sql.append(" AND 1=0 ");
+        } else {
+            sql.append(" AND (").append(String.join(" OR ", parts)).append(") ");
+        }
+    }
+
+    /**
+     * 列表页各查询形态（总数、页码分页、游标翻页，不带/带状态与时间筛选）的 SQL 及示例参数，供 QueryPlanAdvisor 检查执行计划。
+     * 与实际请求走同一套拼接逻辑；关键字搜索依赖订单搜索索引的候选结果，不在此列。不带筛选的总数本身就要扫描，不报告扫描。
+     */
+    static List<QueryPlanAdvisor.Query> planQueries() {
+        LocalDateTime end = LocalDateTime.of(2025, 9, 30, 23, 59);
+        LocalDateTime start = end.minusMonths(1);
+        PageCursor cursor = new PageCursor(end.minusDays(7), "DD00100");
+        List<QueryPlanAdvisor.Query> queries = new ArrayList<>();
+        queries.add(QueryPlanAdvisor.Query.fullScan("HistoryProductsServlet.countOrders",
+                COUNT_SELECT));
+        queries.add(planQuery("HistoryProductsServlet.countOrders(status,time)",
+                COUNT_SELECT, "sold", start, end, null));
+        queries.add(planQuery("HistoryProductsServlet.queryOrders",
+                ORDER_SELECT, null, null, null, PAGE_ORDER, 20, 10));
+        StringBuilder stats = new StringBuilder(STATS_SELECT);
+        List<Object> statsParams = statsParams(YearMonth.from(end));
+        appendFilters(stats, statsParams, null, "sold", start, end);
+        queries.add(new QueryPlanAdvisor.Query("HistoryProductsServlet.aggregateStatistics(status,time)",
+                stats.toString(), statsParams.toArray()));
+        queries.add(planQuery("HistoryProductsServlet.queryOrders(status,time)",
+                ORDER_SELECT, "sold", start, end, PAGE_ORDER, 20, 10));
+        for (boolean backward : new boolean[] {false, true}) {
+            String dir = backward ? "prev" : "next";
+            StringBuilder sql = new StringBuilder(ORDER_SELECT);
+            List<Object> params = new ArrayList<>();
+            appendSeek(sql, params, cursor, backward, 10);
+            queries.add(new QueryPlanAdvisor.Query("HistoryProductsServlet.queryOrdersByCursor(" + dir + ")",
+                    sql.toString(), params.toArray()));
+            sql = new StringBuilder(ORDER_SELECT);
+            params.clear();
+            appendFilters(sql, params, null, "available", start, end);
+            appendSeek(sql, params, cursor, backward, 10);
+            queries.add(new QueryPlanAdvisor.Query("HistoryProductsServlet.queryOrdersByCursor(" + dir + ",status,time)",
+                    sql.toString(), params.toArray()));
+        }
+        return queries;
+    }
+
+    private static QueryPlanAdvisor.Query planQuery(String name, String select, String status, LocalDateTime startTime,
+                                                    LocalDateTime endTime, String suffix, Object... suffixParams) {
+        StringBuilder sql = new StringBuilder(select);
+        List<Object> params = new ArrayList<>();
+        appendFilters(sql, params, null, status, startTime, endTime);
+        if (suffix != null) {
+            sql.append(suffix);
+            params.addAll(Arrays.asList(suffixParams));
+        }
+        return new QueryPlanAdvisor.Query(name, sql.toString(), params.toArray());
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
+    }
+
     /**
      * 根据参数列表顺序绑定 PreparedStatement。
      */
@@ -260,44 +565,27 @@ public class HistoryProductsServlet extends HttpServlet {
 
     /**
      * 将一行 ResultSet 映射为领域模型 Order（包含内嵌的 Product 与 User）。
+     * 列序号每个结果集解析一次；价格按 DECIMAL 读取为 Money，不再经 getObject().toString() 与 Double.parseDouble。
      */
-    private Order mapRowToOrder(ResultSet rs) throws SQLException {
-        String orderId = rs.getString("order_id");
-        String tradeId = rs.getString("trade_id");
-
-        String workName = rs.getString("work_name");
-        String workDesc = rs.getString("work_description");
-        String workImage = rs.getString("work_image");
-        String workStatusEn = rs.getString("work_status");
-        String workIdStr = String.valueOf(rs.getInt("work_id"));
-        double workPrice; // work_price 可能为 NUMERIC/DECIMAL/字符串，这里做一次安全解析
-        try {
-            workPrice = rs.getObject("work_price") == null ? 0.0 : Double.parseDouble(rs.getObject("work_price").toString());
-        } catch (Exception e) {
-            workPrice = 0.0;
+    static final IndexedRowMapper<Order> ORDER_MAPPER = new IndexedRowMapper<Order>("order_id", "trade_id",
+            "work_id", "work_name", "work_description", "work_image", "work_price", "work_status",
+            "buyer_name", "buyer_phonenumber", "trading_address", "ordered_at", "trading_at") {
+        @Override
+        public Order mapRow(ResultSet rs, int[] col) throws SQLException {
+            String statusZh = mapStatusToZh(rs.getString(col[7]));
+            Product product = new Product(String.valueOf(rs.getInt(col[2])), rs.getString(col[3]), rs.getString(col[4]),
+                    rs.getString(col[5]), getPrice(rs, col[6]), statusZh);
+            User user = new User(rs.getString(col[8]), rs.getString(col[9]), rs.getString(col[10]));
+            // 时间取自 datetime2 列 ordered_at/trading_at（由 V1 迁移从 varchar 列回填），旧数据无法解析时为 null
+            return new Order(rs.getString(col[0]), rs.getString(col[1]), product, user,
+                    rs.getObject(col[11], LocalDateTime.class), rs.getObject(col[12], LocalDateTime.class), statusZh);
         }
-
-        Product product = new Product(workIdStr, workName, workDesc, workImage, workPrice, mapStatusToZh(workStatusEn));
-
-        String buyerName = rs.getString("buyer_name");
-        String buyerPhone = rs.getString("buyer_phonenumber");
-        String address = rs.getString("trading_address");
-        User user = new User(buyerName, buyerPhone, address);
-
-        // 注意：Reservation 中这两个时间字段是 varchar 类型，此处以字符串读取，再尝试按两种常见格式解析
-        String orderTimeStr = rs.getString("order_time");
-        String tradingTimeStr = rs.getString("trading_time");
-        LocalDateTime orderTime = parseDbDateTime(orderTimeStr);
-        LocalDateTime tradingTime = parseDbDateTime(tradingTimeStr);
-
-        String statusZh = mapStatusToZh(workStatusEn);
-        return new Order(orderId, tradeId, product, user, orderTime, tradingTime, statusZh);
-    }
+    };
 
     /**
      * 将库存状态从英文（DB 存储）映射为中文（前端展示）。
      */
-    private String mapStatusToZh(String status) {
+    static String mapStatusToZh(String status) {
         if (status == null) return "";
         switch (status) {
             case "available":
@@ -312,16 +600,58 @@ public class HistoryProductsServlet extends HttpServlet {
     }
 
     /**
-     * 计算统计数据：总记录数、当前页的已售数量与总金额。
-     * 注意：当前实现以“当前页数据”为基数进行金额与已售数统计，
-     * 如需统计全量数据，可改为基于不分页的查询结果。
+     * 统计卡片数据：没有任何筛选条件时读取 SalesStats（累计值与本月环比，按主键取三行）；
+     * 有筛选条件或 SalesStats 不可用时，对筛选结果执行一次 STATS_SELECT 聚合。
      */
-    private Statistics calculateStatistics(List<Order> pageOrders, int totalRecords) {
-        int soldProducts = (int) pageOrders.stream().filter(o -> "已售罄".equals(o.getStatus())).count();
-        double totalAmount = pageOrders.stream().mapToDouble(o -> o.getProduct().getPrice()).sum();
-        double monthlyGrowth = 0.0; // 未提供基准数据，先设为0
-        double soldGrowth = 0.0;
-        double amountGrowth = 0.0;
-        return new Statistics(totalRecords, soldProducts, totalAmount, monthlyGrowth, soldGrowth, amountGrowth);
+    private Statistics loadStatistics(Connection conn, String search, String status, LocalDateTime startTime,
+                                      LocalDateTime endTime) throws SQLException {
+        if (!hasFilter(search, status, startTime, endTime)) {
+            try {
+                return salesStats.load(conn, YearMonth.now());
+            } catch (SQLException e) {
+                LOG.warn("读取销售统计失败，改为聚合查询：{}", e.getMessage());
+            }
+        }
+        return aggregateStatistics(conn, search, status, startTime, endTime, YearMonth.now());
+    }
+
+    static boolean hasFilter(String search, String status, LocalDateTime startTime, LocalDateTime endTime) {
+        return (search != null && !search.trim().isEmpty()) || (status != null && !status.trim().isEmpty())
+                || startTime != null || endTime != null;
+    }
+
+    /**
+     * 对筛选结果聚合出交易数、已售数量与金额，并按 trading_at 计算本月相对上月的增长率
+     */
+    private Statistics aggregateStatistics(Connection conn, String search, String status, LocalDateTime startTime,
+                                           LocalDateTime endTime, YearMonth month) throws SQLException {
+        StringBuilder sql = new StringBuilder(STATS_SELECT);
+        List<Object> params = statsParams(month);
+        appendFilters(sql, params, search, status, startTime, endTime);
+        return Metrics.dao("HistoryProductsServlet.aggregateStatistics", () -> {
+            try (PreparedStatement ps = prepare(conn, sql.toString(), params);
+                 ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return new Statistics();
+                }
+                return new Statistics(rs.getInt("trade_count"), rs.getInt("sold_count"),
+                        Money.of(rs.getBigDecimal("sold_amount")),
+                        SalesStatsStore.growth(rs.getInt("cur_trades"), rs.getInt("prev_trades")),
+                        SalesStatsStore.growth(rs.getInt("cur_sold"), rs.getInt("prev_sold")),
+                        SalesStatsStore.growth(Money.of(rs.getBigDecimal("cur_amount")).getCents(),
+                                Money.of(rs.getBigDecimal("prev_amount")).getCents()));
+            }
+        });
+    }
+
+    /** STATS_SELECT 中本月、上月的时间边界参数 */
+    private static List<Object> statsParams(YearMonth month) {
+        Timestamp current = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        List<Object> params = new ArrayList<>();
+        params.add(current);
+        params.add(Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+        params.add(Timestamp.valueOf(month.minusMonths(1).atDay(1).atStartOfDay()));
+        params.add(current);
+        return params;
     }
-}
\ No newline at end of file
+}
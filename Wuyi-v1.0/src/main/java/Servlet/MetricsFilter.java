@@ -0,0 +1,94 @@
+package Servlet;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import datebase.Metrics;
+
+/**
+ * 记录每个请求的处理耗时与是否出错，按 Servlet 路径分组（见 /metrics 的 wuyi_http_request_*）
+ * JSP 按页面路径分组，其余静态资源统一记为 static；异步请求在 AsyncContext 结束时才记录
+ */
+public class MetricsFilter implements Filter {
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+        String label = label(req.getServletPath());
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncTimer(label, start, resp));
+            } else {
+                Metrics.recordRequest(label, System.nanoTime() - start, failed || resp.getStatus() >= 500);
+            }
+        }
+    }
+
+    static String label(String servletPath) {
+        if (servletPath == null || servletPath.isEmpty()) {
+            return "/";
+        }
+        if (servletPath.endsWith(".jsp")) {
+            return servletPath;
+        }
+        return servletPath.indexOf('.') >= 0 ? "static" : servletPath;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /** 异步请求完成（或超时、出错）时记录耗时 */
+    private static final class AsyncTimer implements AsyncListener {
+        private final String label;
+        private final long start;
+        private final HttpServletResponse response;
+        private boolean failed;
+
+        AsyncTimer(String label, long start, HttpServletResponse response) {
+            this.label = label;
+            this.start = start;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            Metrics.recordRequest(label, System.nanoTime() - start, failed || response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package Servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import datebase.Metrics;
+
+/**
+ * 以 Prometheus 文本格式导出运行指标（请求与 DAO 耗时、连接池、商品目录缓存等，见 Metrics）
+ * 默认只允许本机访问；由采集端通过反向代理或本机 agent 抓取，init-param allowRemote=true 时放开
+ */
+public class MetricsServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	private boolean allowRemote;
+
+	@Override
+	public void init() throws ServletException {
+		allowRemote = Boolean.parseBoolean(getInitParameter("allowRemote"));
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		if (!allowRemote && !InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress()) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+		response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+		PrintWriter out = response.getWriter();
+		Metrics.writePrometheus(out);
+		out.flush();
+	}
+}
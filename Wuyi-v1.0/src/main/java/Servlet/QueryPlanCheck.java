@@ -0,0 +1,62 @@
+package Servlet;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import datebase.AppConfig;
+import datebase.Log;
+import datebase.PoolConfig;
+import datebase.QueryPlanAdvisor;
+
+/**
+ * 热点查询的执行计划检查：BuyerDaoimpl、WorksDaoIplm 与 HistoryProductsServlet 的全部 SQL 交给 QueryPlanAdvisor，
+ * 报告扫描、缺失索引与影响索引查找的隐式转换。
+ * 启动时由 DbPoolListener 在迁移之后于后台执行（schema.planCheckOnStartup，默认关闭，CI / 预发环境打开），只写日志，不影响启动；
+ * 也可在部署后单独运行（发现问题时退出码为 1，无法连接数据库时为 2）：
+ *   java -cp WEB-INF/classes:WEB-INF/lib/* Servlet.QueryPlanCheck
+ */
+public final class QueryPlanCheck {
+
+    private static final Log LOG = Log.get(QueryPlanCheck.class);
+
+    private QueryPlanCheck() {
+    }
+
+    /**
+     * 参与检查的全部语句
+     */
+    static List<QueryPlanAdvisor.Query> queries() {
+        List<QueryPlanAdvisor.Query> queries = new ArrayList<>(QueryPlanAdvisor.daoQueries());
+        queries.addAll(HistoryProductsServlet.planQueries());
+        return queries;
+    }
+
+    /**
+     * 执行检查并把结果写入日志
+     * @return 发现的问题
+     */
+    public static List<QueryPlanAdvisor.Finding> run(PoolConfig config) throws SQLException {
+        long start = System.currentTimeMillis();
+        List<QueryPlanAdvisor.Query> queries = queries();
+        List<QueryPlanAdvisor.Finding> findings = QueryPlanAdvisor.forConfig(config).check(queries);
+        for (QueryPlanAdvisor.Finding finding : findings) {
+            LOG.warn("执行计划检查 {}", finding);
+        }
+        LOG.info("执行计划检查完成：{} 条语句，发现 {} 个问题，耗时{}ms", queries.size(), findings.size(),
+                System.currentTimeMillis() - start);
+        return findings;
+    }
+
+    public static void main(String[] args) {
+        int exitCode;
+        try {
+            exitCode = run(AppConfig.load().getPool()).isEmpty() ? 0 : 1;
+        } catch (SQLException e) {
+            LOG.error("执行计划检查失败：{}", e.getMessage(), e);
+            exitCode = 2;
+        }
+        Log.flush();
+        System.exit(exitCode);
+    }
+}
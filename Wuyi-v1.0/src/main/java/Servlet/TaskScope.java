@@ -0,0 +1,125 @@
+package Servlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 结构化并发：把一次请求内互不依赖的查询分别放到虚拟线程中并行执行，整体耗时取最慢的一个而不是逐个相加
+ * 语义与 JDK 的 StructuredTaskScope.ShutdownOnFailure 相同（该 API 在 Java 21 仍是预览特性，项目未开启 --enable-preview）：
+ * 1) 任一子任务失败，其余子任务立即被中断，join 抛出该失败
+ * 2) 超过截止时间仍未全部完成，全部中断并抛出 TimeoutException
+ * 3) 调用 join 的线程被中断（如 AsyncRequestExecutor 的请求超时），中断同样传递给全部子任务
+ * 4) close 时等待所有子任务真正结束，子任务不会比作用域活得更久
+ * 虚拟线程阻塞在 socket 读上时被中断会关闭该 socket，查询随之终止；子任务带着中断状态归还连接时，
+ * ConnectionPool 对物理连接执行 abort 并丢弃，不会把执行到一半的连接放回空闲队列。
+ * 用法：
+ * try (TaskScope scope = new TaskScope(timeoutMs)) {
+ *     TaskScope.Subtask&lt;Integer&gt; count = scope.fork(() -&gt; ...);
+ *     scope.join();
+ *     count.get();
+ * }
+ */
+public final class TaskScope implements AutoCloseable {
+
+    /** 子任务句柄：join 成功后用 get 取结果 */
+    public static final class Subtask<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private Thread thread;
+
+        public T get() {
+            if (!result.isDone() || result.isCompletedExceptionally()) {
+                throw new IllegalStateException("子任务尚未成功完成，需先调用 join");
+            }
+            return result.join();
+        }
+    }
+
+    private final long deadline;
+    private final List<Subtask<?>> subtasks = new ArrayList<>();
+    // 第一个失败的子任务；只要有一个失败，整个作用域就失败
+    private final CompletableFuture<Throwable> firstFailure = new CompletableFuture<>();
+
+    /**
+     * @param timeoutMs 从现在起全部子任务必须完成的时限（毫秒）
+     */
+    public TaskScope(long timeoutMs) {
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * 在新的虚拟线程中执行 task；只能在创建作用域的线程中、join 之前调用
+     */
+    public <T> Subtask<T> fork(Callable<T> task) {
+        Subtask<T> subtask = new Subtask<>();
+        subtasks.add(subtask);
+        subtask.thread = Thread.ofVirtual().name("wuyi-scope-" + subtasks.size()).start(() -> {
+            try {
+                subtask.result.complete(task.call());
+            } catch (Throwable e) {
+                // 先记录失败再结束子任务，join 看到全部结束时一定也能看到失败
+                firstFailure.complete(e);
+                subtask.result.completeExceptionally(e);
+            }
+        });
+        return subtask;
+    }
+
+    /**
+     * 等待全部子任务成功完成
+     * @throws ExecutionException 某个子任务失败（cause 为其异常），其余子任务已被中断
+     * @throws TimeoutException 超过时限，全部子任务已被中断
+     * @throws InterruptedException 当前线程被中断，全部子任务已被中断
+     */
+    public void join() throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<Void> all = CompletableFuture.allOf(subtasks.stream()
+                .map(s -> s.result.handle((v, e) -> null)).toArray(CompletableFuture[]::new));
+        CompletableFuture<Object> done = CompletableFuture.anyOf(all, firstFailure);
+        try {
+            done.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException | TimeoutException e) {
+            cancelAll();
+            throw e;
+        }
+        Throwable failure = firstFailure.getNow(null);
+        if (failure != null) {
+            cancelAll();
+            throw new ExecutionException(failure);
+        }
+    }
+
+    private void cancelAll() {
+        for (Subtask<?> s : subtasks) {
+            if (!s.result.isDone()) {
+                s.thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 中断尚未完成的子任务并等待它们全部退出
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        // 不能用 ExecutorService + Future.cancel：被取消的任务立即算作完成，线程可能仍在运行
+        boolean interrupted = false;
+        for (Subtask<?> s : subtasks) {
+            while (true) {
+                try {
+                    s.thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
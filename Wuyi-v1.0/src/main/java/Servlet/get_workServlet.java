@@ -2,24 +2,29 @@ package Servlet;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
 
 import javax.servlet.ServletException;
-import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
 import datebase.DbUtil;
-import datebase.Works;
+import datebase.Log;
 import datebase.WorksDaoIplm;
+import datebase.WorksPage;
 
 
-
+/**
+ * 商品管理页：按状态筛选、分页查询商品，结果以 worksPage 放入 request 后转发到 modify_good_status.jsp
+ * 参数（均可选）：status=available|frozen|sold，page（从1开始）
+ */
 public class get_workServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
+	private static final Log LOG = Log.get(get_workServlet.class);
+	/** 每页商品数 */
+	static final int PAGE_SIZE = 20;
        
    
     public get_workServlet() {
@@ -32,18 +37,37 @@ public class get_workServlet extends HttpServlet {
 		request.setCharacterEncoding("UTF-8");
 		response.setContentType("text/html; charset=UTF-8");
 		response.setCharacterEncoding("UTF-8");
-		WorksDaoIplm wkdi = new WorksDaoIplm();
-		Connection con  = null;   
-		List<Works> wklist = new ArrayList<Works>();
+		// 旧版本会把整个商品列表放进 session，这里顺手清掉
+		HttpSession session = request.getSession(false);
+		if (session != null) {
+			session.removeAttribute("wklist");
+		}
+		String status = request.getParameter("status");
+		if (status != null && !status.matches("available|frozen|sold")) {
+			status = null;
+		}
+		int page = 1;
 		try {
-			con = DbUtil.getCon();
-			wklist = wkdi.serachAll(con);
+			String pageParam = request.getParameter("page");
+			if (pageParam != null && !pageParam.isEmpty()) {
+				page = Math.max(1, Integer.parseInt(pageParam));
+			}
+		} catch (NumberFormatException e) {
+			// 忽略错误，显示第1页
+		}
+		WorksDaoIplm wkdi = new WorksDaoIplm();
+		WorksPage worksPage = new WorksPage(Collections.emptyList(), status, 1, PAGE_SIZE, 0);
+		try (Connection con = DbUtil.getCon()) {
+			int total = wkdi.count(con, status);
+			int totalPages = Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+			page = Math.min(page, totalPages);
+			worksPage = new WorksPage(wkdi.listPage(con, status, (page - 1) * PAGE_SIZE, PAGE_SIZE),
+					status, page, PAGE_SIZE, total);
 		} catch (Exception e) {
-			// TODO 自动生成的 catch 块
-			e.printStackTrace();
+			LOG.error("查询商品列表失败", e);
 		}
-		request.getSession().setAttribute("wklist", wklist);
-		response.sendRedirect("modify_good_status.jsp");
+		request.setAttribute("worksPage", worksPage);
+		request.getRequestDispatcher("modify_good_status.jsp").forward(request, response);
 	}
 
 	
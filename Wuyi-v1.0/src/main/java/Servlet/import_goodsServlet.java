@@ -0,0 +1,69 @@
+package Servlet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
+
+import datebase.ImportReport;
+import datebase.Log;
+import datebase.AppConfig;
+import datebase.UnitOfWork;
+import datebase.WorksDaoIplm;
+import datebase.WorksImportReader;
+
+/**
+ * 商品批量导入：上传 CSV 或 JSON 文件（表单字段 file，UTF-8 编码），逐行读取并按批写入 Works
+ * 整个文件在一个事务中导入，任一行格式错误或写库失败则全部回滚；
+ * 结果（导入件数、耗时、吞吐量或错误原因）以 importMsg 放入 session，重定向回商品管理页后显示一次
+ */
+public class import_goodsServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	private static final Log LOG = Log.get(import_goodsServlet.class);
+	/** 每批写入的行数，取自 AppConfig 中的 import.works.chunkSize */
+	private final int chunkSize = AppConfig.get().getImportChunkSize();
+
+	public import_goodsServlet() {
+		super();
+	}
+
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		request.setCharacterEncoding("UTF-8");
+		response.setContentType("text/html; charset=UTF-8");
+		response.setCharacterEncoding("UTF-8");
+		String msg;
+		Part file = request.getPart("file");
+		if (file == null || file.getSize() == 0) {
+			msg = "请选择要导入的 CSV 或 JSON 文件";
+		} else {
+			WorksDaoIplm wkdi = new WorksDaoIplm();
+			try (WorksImportReader reader = WorksImportReader.forFile(file.getSubmittedFileName(),
+					new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)));
+				 UnitOfWork uow = UnitOfWork.begin()) {
+				ImportReport report = wkdi.insertBatch(uow.getConnection(), reader, chunkSize);
+				uow.commit();
+				msg = report.toString();
+				LOG.info("商品批量导入（{}）：{}", file.getSubmittedFileName(), report);
+			} catch (IllegalArgumentException | UncheckedIOException e) {
+				msg = "导入失败，未写入任何商品：" + e.getMessage();
+			} catch (Exception e) {
+				LOG.error("商品批量导入失败", e);
+				msg = "导入失败，未写入任何商品：" + e.getMessage();
+			}
+		}
+		request.getSession().setAttribute("importMsg", msg);
+		response.sendRedirect("get_workServlet");
+	}
+
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		response.sendRedirect("get_workServlet");
+	}
+
+}
@@ -2,25 +2,25 @@ package Servlet;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
-import datebase.DbUtil;
+import datebase.Log;
+import datebase.Money;
+import datebase.UnitOfWork;
 import datebase.Works;
 import datebase.WorksDaoIplm;
+import datebase.WorkStateMachine;
 
 
 
 public class modify_goodStatusServlet extends HttpServlet{
 	private static final long serialVersionUID = 1L;
+	private static final Log LOG = Log.get(modify_goodStatusServlet.class);
     public modify_goodStatusServlet() {
         super();
     }
@@ -29,27 +29,49 @@ public class modify_goodStatusServlet extends HttpServlet{
 		request.setCharacterEncoding("UTF-8");
 		response.setContentType("text/html; charset=UTF-8");
 		response.setCharacterEncoding("UTF-8");
-		HttpSession session = request.getSession();
-		List<Works> wklist = (List<Works>)session.getAttribute("wklist");
 		int id = Integer.parseInt(request.getParameter("work_id"));
 		String workstatus = request.getParameter("work_status1");
 		String workname = request.getParameter("work_name1");
 		String workdes = request.getParameter("work_description1");
 		String workprice = request.getParameter("work_price1");
 		String workimg = request.getParameter("work_image1");
-		Works wk = new Works(id,workstatus,workname, workdes, workimg, workprice);
-		Connection con  = null;   
+		// 页面打开时商品的状态（比较并交换的原状态）
+		String seenStatus = request.getParameter("work_status0");
 		WorksDaoIplm wkdi = new WorksDaoIplm();
-		try {
-			con = DbUtil.getCon();
+		// 商品信息、状态变化、交易状态与销售统计在同一事务中更新
+		try (UnitOfWork uow = UnitOfWork.begin()) {
+			Connection con = uow.getConnection();
+			// 价格不是最多两位小数的非负数字时抛 IllegalArgumentException，事务回滚
+			Works wk = new Works(id,workstatus,workname, workdes, workimg, Money.parsePrice(workprice));
+			if (seenStatus == null || seenStatus.isEmpty()) {
+				Works current = wkdi.findById(con, id);
+				seenStatus = current == null ? null : current.getWork_status();
+			}
 			wkdi.update(con, wk);
-			wklist = wkdi.serachAll(con); 
+			// 状态只经状态机按原状态比较并交换：不合法的变化抛 IllegalArgumentException，
+			// 状态已被他人改变时不提交，商品信息一并回滚
+			if (seenStatus != null && workstatus != null && !workstatus.equals(seenStatus)
+					&& !new WorkStateMachine().transition(con, id, seenStatus, workstatus)) {
+				LOG.warn("商品 {} 的状态已不是 {}，本次修改未生效", id, seenStatus);
+			} else {
+				uow.commit();
+			}
 		} catch (Exception e) {
-			// TODO 自动生成的 catch 块
-			e.printStackTrace();
+			LOG.error("修改商品失败", e);
 		}
-		request.getSession().setAttribute("wklist", wklist);
-		response.sendRedirect("modify_good_status.jsp");
+		// 回到修改前所在的页码与筛选条件
+		StringBuilder back = new StringBuilder("get_workServlet");
+		String page = request.getParameter("page");
+		String status = request.getParameter("status");
+		char sep = '?';
+		if (page != null && page.matches("\\d+")) {
+			back.append(sep).append("page=").append(page);
+			sep = '&';
+		}
+		if (status != null && status.matches("available|frozen|sold")) {
+			back.append(sep).append("status=").append(status);
+		}
+		response.sendRedirect(back.toString());
 	}
 
 
@@ -3,7 +3,6 @@ package Servlet;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
@@ -14,9 +13,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import datebase.DbUtil;
+import datebase.Log;
+
 public class password_change_servlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(password_change_servlet.class);
 
     @Override
 	public void doPost(HttpServletRequest request, HttpServletResponse response)
@@ -58,10 +61,10 @@ public class password_change_servlet extends HttpServlet {
                 // 数据库更新成功后，再更新 Session 中的密码
                 session.setAttribute("merchant_password", newPasswordInput);
                 request.setAttribute("successMessage", "密码修改成功！");
-                System.out.println("商家 '" + loggedInUsername + "' 的密码已成功在数据库和Session中修改。");
+                LOG.info("商家 '{}' 的密码已成功在数据库和Session中修改。", loggedInUsername);
 
             } catch (Exception e) {
-                e.printStackTrace();
+                LOG.error("修改商家密码失败", e);
                 request.setAttribute("errorMessage", "数据库操作失败，密码未修改！");
                 // 抛出异常以便调试
                 // throw new ServletException("数据库更新失败", e);
@@ -79,18 +82,13 @@ public class password_change_servlet extends HttpServlet {
 
 
     private void updatePasswordInDatabase(String username, String newPassword) 
-        throws SQLException, ClassNotFoundException {
+        throws SQLException {
         
-        String jdbcURL = "jdbc:sqlserver://localhost:1433;DatabaseName=Wuyi;encrypt=true;trustServerCertificate=true"; 
-        String dbUser ="sa"; 
-        String dbPassword =  "ye041017";
-
-        Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
         Connection connection = null;
         PreparedStatement statement = null;
 
         try {
-            connection = DriverManager.getConnection(jdbcURL, dbUser, dbPassword);
+            connection = DbUtil.getCon();
             
             String sql = "UPDATE Merchant SET merchant_password = ? WHERE merchant_name = ?";
             statement = connection.prepareStatement(sql);
@@ -101,9 +99,9 @@ public class password_change_servlet extends HttpServlet {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("数据库中商家 '" + username + "' 的密码已更新。");
+                LOG.debug("数据库中商家 '{}' 的密码已更新。", username);
             } else {
-                System.out.println("警告: 数据库中未找到商家 '" + username + "'，密码未更新。");
+                LOG.warn("数据库中未找到商家 '{}'，密码未更新。", username);
                 // 根据业务需求，您也可以在这里抛出一个异常
                 // throw new SQLException("更新失败，数据库中未找到该用户。");
             }
@@ -0,0 +1,234 @@
+package datebase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * 应用配置：连接池（PoolConfig）之外的缓存、编号、导入、迁移、异步请求、搜索索引与日志设置
+ * 读取顺序：类路径下的 db.properties → 同名 JVM 系统属性（-Dpool.maxSize=20）覆盖。
+ * 由 DbPoolListener 在启动时加载一次并交给各共享组件（WorksCache、OrderIdAllocator、交易号生成器、
+ * AsyncRequestExecutor、OrderSearchIndex）；未经监听器启动（单元测试、命令行工具）时 get() 首次调用时加载一次。
+ */
+public class AppConfig {
+
+    private static final Log LOG = Log.get(AppConfig.class);
+
+    /** 类路径上的配置文件名 */
+    public static final String RESOURCE = "/db.properties";
+
+    /** 一个异步请求最多同时占用的连接数（历史页：总数查询 + 当前页与销售统计） */
+    public static final int ASYNC_CONNECTIONS_PER_REQUEST = 2;
+
+    private static volatile AppConfig current;
+
+    // 数据库连接与连接池
+    private PoolConfig pool = new PoolConfig();
+    // 商品目录缓存（WorksCache）最多缓存的商品数
+    private int worksCacheMaxSize = 10000;
+    // 订单号每次从数据库预留的号段大小
+    private int orderIdBlockSize = 20;
+    // 商品批量导入时每批（executeBatch）提交的行数
+    private int importChunkSize = 500;
+    // 交易号生成器的节点号（0~15，多实例部署时各实例需不同）
+    private int tradeIdNodeId = 0;
+    // 应用启动时是否执行 db/migration 下的数据库迁移脚本
+    private boolean migrateOnStartup = true;
+    // 启动时（迁移之后）在后台检查热点查询的执行计划，扫描与缺失索引写入日志；默认关闭，供 CI / 预发环境打开
+    private boolean planCheckOnStartup = false;
+    // 异步 Servlet 同时执行数据库工作的最大请求数；0 表示按连接池大小推导（maxSize / ASYNC_CONNECTIONS_PER_REQUEST）
+    private int asyncMaxConcurrent = 0;
+    // 异步 Servlet 排队等待执行的最大请求数，再多的请求直接返回 503
+    private int asyncMaxQueued = 200;
+    // 异步请求（含排队）的超时时间（毫秒），超时返回 503
+    private long asyncTimeoutMs = 30000;
+    // 是否启用订单搜索的进程内倒排索引（OrderSearchIndex），关闭时历史页搜索使用 LIKE
+    private boolean searchIndexEnabled = true;
+    // 订单搜索索引全量重建的间隔（分钟），0 表示只在启动时构建
+    private int searchIndexRebuildMinutes = 60;
+    // 日志级别：DEBUG | INFO | WARN | ERROR
+    private Log.Level logLevel = Log.Level.INFO;
+
+    public AppConfig() {}
+
+    /**
+     * 应用当前使用的配置：DbPoolListener 启动时设置；尚未设置时按 db.properties 加载一次
+     */
+    public static AppConfig get() {
+        AppConfig c = current;
+        if (c == null) {
+            synchronized (AppConfig.class) {
+                c = current;
+                if (c == null) {
+                    c = load();
+                    current = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * 设置应用当前使用的配置（DbPoolListener 启动时调用）
+     */
+    public static synchronized void set(AppConfig config) {
+        current = config;
+    }
+
+    /**
+     * 加载配置：db.properties 缺失时使用默认值
+     */
+    public static AppConfig load() {
+        Properties props = new Properties();
+        try (InputStream in = AppConfig.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (IOException e) {
+            LOG.warn("读取 {} 失败，使用默认配置：{}", RESOURCE, e.getMessage());
+        }
+        return from(props);
+    }
+
+    /**
+     * 根据属性集构建配置（系统属性优先）
+     */
+    public static AppConfig from(Properties props) {
+        AppConfig c = new AppConfig();
+        c.setPool(PoolConfig.from(props));
+        c.setWorksCacheMaxSize(Integer.parseInt(PoolConfig.value(props, "cache.works.maxSize", String.valueOf(c.getWorksCacheMaxSize()))));
+        c.setOrderIdBlockSize(Integer.parseInt(PoolConfig.value(props, "id.order.blockSize", String.valueOf(c.getOrderIdBlockSize()))));
+        c.setImportChunkSize(Integer.parseInt(PoolConfig.value(props, "import.works.chunkSize", String.valueOf(c.getImportChunkSize()))));
+        c.setTradeIdNodeId(Integer.parseInt(PoolConfig.value(props, "id.trade.nodeId", String.valueOf(c.getTradeIdNodeId()))));
+        c.setMigrateOnStartup(Boolean.parseBoolean(PoolConfig.value(props, "schema.migrateOnStartup", String.valueOf(c.isMigrateOnStartup()))));
+        c.setPlanCheckOnStartup(Boolean.parseBoolean(PoolConfig.value(props, "schema.planCheckOnStartup", String.valueOf(c.isPlanCheckOnStartup()))));
+        c.setAsyncMaxConcurrent(Integer.parseInt(PoolConfig.value(props, "async.maxConcurrent", String.valueOf(c.asyncMaxConcurrent))));
+        c.setAsyncMaxQueued(Integer.parseInt(PoolConfig.value(props, "async.maxQueued", String.valueOf(c.getAsyncMaxQueued()))));
+        c.setAsyncTimeoutMs(Long.parseLong(PoolConfig.value(props, "async.timeoutMs", String.valueOf(c.getAsyncTimeoutMs()))));
+        c.setSearchIndexEnabled(Boolean.parseBoolean(PoolConfig.value(props, "search.index.enabled", String.valueOf(c.isSearchIndexEnabled()))));
+        c.setSearchIndexRebuildMinutes(Integer.parseInt(PoolConfig.value(props, "search.index.rebuildMinutes", String.valueOf(c.getSearchIndexRebuildMinutes()))));
+        c.setLogLevel(Log.Level.valueOf(PoolConfig.value(props, "log.level", c.getLogLevel().name()).toUpperCase()));
+        if (c.asyncMaxConcurrent < 0 || c.getAsyncMaxQueued() < 0) {
+            throw new IllegalArgumentException("异步请求配置错误：需满足 async.maxConcurrent >= 0 且 async.maxQueued >= 0");
+        }
+        int asyncLimit = asyncLimit(c.pool.getMaxSize());
+        if (c.asyncMaxConcurrent > asyncLimit) {
+            // 超出连接池能同时支撑的请求数时，多出的请求只会在连接池上排队直到 acquireTimeoutMs 超时
+            throw new IllegalArgumentException("异步请求配置错误：async.maxConcurrent=" + c.asyncMaxConcurrent
+                    + " 超过连接池可支撑的并发请求数 " + asyncLimit + "（pool.maxSize=" + c.pool.getMaxSize()
+                    + "，每个请求最多占用 " + ASYNC_CONNECTIONS_PER_REQUEST + " 个连接）");
+        }
+        return c;
+    }
+
+    private static int asyncLimit(int maxSize) {
+        return Math.max(1, maxSize / ASYNC_CONNECTIONS_PER_REQUEST);
+    }
+
+    public PoolConfig getPool() {
+        return pool;
+    }
+
+    public void setPool(PoolConfig pool) {
+        this.pool = pool;
+    }
+
+    public boolean isMigrateOnStartup() {
+        return migrateOnStartup;
+    }
+
+    public void setMigrateOnStartup(boolean migrateOnStartup) {
+        this.migrateOnStartup = migrateOnStartup;
+    }
+
+    public boolean isPlanCheckOnStartup() {
+        return planCheckOnStartup;
+    }
+
+    public void setPlanCheckOnStartup(boolean planCheckOnStartup) {
+        this.planCheckOnStartup = planCheckOnStartup;
+    }
+
+    public int getWorksCacheMaxSize() {
+        return worksCacheMaxSize;
+    }
+
+    public void setWorksCacheMaxSize(int worksCacheMaxSize) {
+        this.worksCacheMaxSize = worksCacheMaxSize;
+    }
+
+    public int getOrderIdBlockSize() {
+        return orderIdBlockSize;
+    }
+
+    public void setOrderIdBlockSize(int orderIdBlockSize) {
+        this.orderIdBlockSize = orderIdBlockSize;
+    }
+
+    public int getTradeIdNodeId() {
+        return tradeIdNodeId;
+    }
+
+    public void setTradeIdNodeId(int tradeIdNodeId) {
+        this.tradeIdNodeId = tradeIdNodeId;
+    }
+
+    public int getImportChunkSize() {
+        return importChunkSize;
+    }
+
+    public void setImportChunkSize(int importChunkSize) {
+        this.importChunkSize = importChunkSize;
+    }
+
+    /**
+     * 未配置（0）时按连接池大小推导
+     */
+    public int getAsyncMaxConcurrent() {
+        return asyncMaxConcurrent > 0 ? asyncMaxConcurrent : asyncLimit(pool.getMaxSize());
+    }
+
+    public void setAsyncMaxConcurrent(int asyncMaxConcurrent) {
+        this.asyncMaxConcurrent = asyncMaxConcurrent;
+    }
+
+    public int getAsyncMaxQueued() {
+        return asyncMaxQueued;
+    }
+
+    public void setAsyncMaxQueued(int asyncMaxQueued) {
+        this.asyncMaxQueued = asyncMaxQueued;
+    }
+
+    public long getAsyncTimeoutMs() {
+        return asyncTimeoutMs;
+    }
+
+    public void setAsyncTimeoutMs(long asyncTimeoutMs) {
+        this.asyncTimeoutMs = asyncTimeoutMs;
+    }
+
+    public boolean isSearchIndexEnabled() {
+        return searchIndexEnabled;
+    }
+
+    public void setSearchIndexEnabled(boolean searchIndexEnabled) {
+        this.searchIndexEnabled = searchIndexEnabled;
+    }
+
+    public int getSearchIndexRebuildMinutes() {
+        return searchIndexRebuildMinutes;
+    }
+
+    public void setSearchIndexRebuildMinutes(int searchIndexRebuildMinutes) {
+        this.searchIndexRebuildMinutes = searchIndexRebuildMinutes;
+    }
+
+    public Log.Level getLogLevel() {
+        return logLevel;
+    }
+
+    public void setLogLevel(Log.Level logLevel) {
+        this.logLevel = logLevel;
+    }
+}
@@ -8,7 +8,12 @@ public interface BuyerDao {
 	public List<Buyer> showAllBuyers(List<String> frozenavailableOrderIds) throws SQLException;
 	public Buyer getBuyerByOrderId(String orderId) throws SQLException;
 	public int Trade(String orderId) throws SQLException;
+	/** 交易并返回明确结果（成功 / 订单不存在 / 商品已被冻结或售出） */
+	public TradeResult trade(String orderId) throws SQLException;
+	/** 批量交易：所有订单在同一事务中处理，返回每个订单的结果 */
+	public List<TradeResult> tradeAll(List<String> orderIds) throws SQLException;
 	public List<String> getFrozenAndAvailableOrderIds() throws SQLException;
 	public List<String> getFrozenAndAvailableTradeIds() throws SQLException;
 	public String getWorkStatusByOrderId(List<String> frozenavailableOrderIds) throws SQLException;
+	public BuyerDashboard getBuyerDashboard() throws SQLException;
 }
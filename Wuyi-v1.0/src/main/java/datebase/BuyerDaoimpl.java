@@ -1,7 +1,6 @@
 package datebase;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -14,29 +13,99 @@ import java.util.List;
  * 核心功能：1.查询所有购买人 2.按order_id查用户 3.生成trade_id存入数据库
  */
 public class BuyerDaoimpl implements BuyerDao {
-    // ==================== SQL Server 数据库配置 ====================
-    private static final String URL = "jdbc:sqlserver://localhost:1433;databaseName=Wuyi;encrypt=true;trustServerCertificate=true";
-    private static final String USER = "sa";
-    private static final String PASSWORD = "ye041017";
-    private static final String DRIVER = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
-
-    // ==================== 静态代码块：加载SQL Server驱动 ====================
-    static {
-        try {
-            Class.forName(DRIVER);
-            System.out.println("SQL Server 驱动加载成功！");
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("SQL Server 驱动加载失败！请检查驱动包是否引入", e);
+    private static final Log LOG = Log.get(BuyerDaoimpl.class);
+
+    // 交易号生成器（默认 Snowflake，TD 前缀）
+    private final IdGenerator tradeIdGenerator;
+    private final WorksCache cache = WorksCache.shared();
+    private final WorkStateMachine stateMachine = new WorkStateMachine(cache);
+
+    // Reservation 购买人行映射：列序号每个结果集解析一次
+    static final IndexedRowMapper<Buyer> BUYER_MAPPER = new IndexedRowMapper<Buyer>("buyer_name", "buyer_phonenumber",
+            "trading_address", "trading_time", "order_id", "order_time", "work_id") {
+        @Override
+        public Buyer mapRow(ResultSet rs, int[] col) throws SQLException {
+            Buyer buyer = new Buyer();
+            buyer.setBuyer_name(rs.getString(col[0]));
+            buyer.setBuyer_phonenumber(rs.getString(col[1]));
+            buyer.setTrading_address(rs.getString(col[2]));
+            buyer.setTrading_time(rs.getString(col[3]));
+            buyer.setOrder_id(rs.getString(col[4]));
+            buyer.setOrder_time(rs.getString(col[5]));
+            buyer.setWork_id(rs.getInt(col[6]));
+            return buyer;
+        }
+    };
+
+    // 购买人页面读模型的一行：row_kind = 0 为购买人（附带商品状态），1 为交易号
+    private static final class DashboardRow {
+        Buyer buyer;
+        String workStatus;
+        String tradeId;
+    }
+
+    // 前 7 列与 BUYER_MAPPER 顺序一致，购买人行直接交给 BUYER_MAPPER 映射
+    private static final IndexedRowMapper<DashboardRow> DASHBOARD_ROW_MAPPER = new IndexedRowMapper<DashboardRow>(
+            "buyer_name", "buyer_phonenumber", "trading_address", "trading_time", "order_id", "order_time", "work_id",
+            "row_kind", "work_status", "trade_id") {
+        @Override
+        public DashboardRow mapRow(ResultSet rs, int[] col) throws SQLException {
+            DashboardRow row = new DashboardRow();
+            if (rs.getInt(col[7]) == 1) {
+                row.tradeId = rs.getString(col[9]);
+            } else {
+                row.buyer = BUYER_MAPPER.mapRow(rs, col);
+                row.workStatus = rs.getString(col[8]);
+            }
+            return row;
         }
+    };
+
+    // 按订单号查询单个购买人（不关联 Trade 表）
+    private static final String BUYER_BY_ORDER_ID =
+            "SELECT r.buyer_name, r.buyer_phonenumber, r.trading_address, " +
+            "r.trading_time, r.order_id, r.order_time, r.work_id " +
+            "FROM Reservation r " +
+            "WHERE r.order_id = ?";
+    // 状态为 frozen 或 available 的交易号
+    private static final String OPEN_TRADE_IDS = "SELECT trade_id FROM Trade WHERE work_status IN ('frozen', 'available')";
+    // 先从 Works 里找出符合条件的 work_id，再到 Reservation 里查 order_id
+    private static final String OPEN_ORDER_IDS =
+            "SELECT DISTINCT r.order_id " +
+            "FROM Reservation r " +
+            "WHERE r.work_id IN ( " +
+            "    SELECT w.work_id " +
+            "    FROM Works w " +
+            "    WHERE w.work_status IN ('frozen', 'available')" +
+            ")";
+    private static final String WORK_ID_BY_ORDER_ID = "SELECT work_id FROM Reservation WHERE order_id = ?";
+    private static final String WORK_STATUS_BY_ID = "SELECT work_status FROM Works WHERE work_id = ?";
+    // 购买人页面读模型：购买人与交易号 UNION ALL 在同一结果集中返回（row_kind 区分）
+    private static final String DASHBOARD =
+            "SELECT 0 AS row_kind, r.buyer_name, r.buyer_phonenumber, r.trading_address, " +
+            "r.trading_time, r.order_id, r.order_time, r.work_id, w.work_status, NULL AS trade_id " +
+            "FROM Reservation r " +
+            "JOIN Works w ON r.work_id = w.work_id " +
+            "WHERE w.work_status IN ('frozen', 'available') " +
+            "UNION ALL " +
+            "SELECT 1, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, t.trade_id " +
+            "FROM Trade t " +
+            "WHERE t.work_status IN ('frozen', 'available') " +
+            "ORDER BY row_kind, order_time DESC";
+
+    public BuyerDaoimpl() {
+        this(SnowflakeIdGenerator.tradeIds());
+    }
+
+    public BuyerDaoimpl(IdGenerator tradeIdGenerator) {
+        this.tradeIdGenerator = tradeIdGenerator;
     }
 
     /**
-     * 工具方法：获取SQL Server数据库连接
+     * 工具方法：从连接池借用SQL Server数据库连接（close() 即归还）
      */
     private Connection getConnection() throws SQLException {
-        Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-        System.out.println("SQL Server 数据库连接成功！");
-        return conn;
+        return DbUtil.getCon();
     }
 
     /**
@@ -56,244 +125,188 @@ public class BuyerDaoimpl implements BuyerDao {
             // 3. 最后关Connection（仅在事务结束或查询完成后调用）
             if (conn != null && !conn.isClosed()) {
                 conn.close();
-                System.out.println("SQL Server 数据库连接已关闭！");
             }
         } catch (SQLException e) {
-            System.err.println("关闭数据库资源异常：" + e.getMessage());
-            e.printStackTrace();
+            LOG.warn("关闭数据库资源异常：{}", e.getMessage(), e);
         }
     }
 
     // ==================== 功能1：查询所有购买人信息 ====================
+    /**
+     * 购买人列表 SQL：idCount 大于 0 时按订单ID批量查询，生成与订单ID数量匹配的占位符（例如：?, ?, ?）
+     */
+    static String showAllBuyersSql(int idCount) {
+        // 基础SQL（保留原字段和表）
+        StringBuilder sql = new StringBuilder("SELECT buyer_name, buyer_phonenumber, trading_address, " +
+                "trading_time, order_id, order_time, work_id " +
+                "FROM Reservation ");
+        if (idCount > 0) {
+            sql.append("WHERE order_id IN (");
+            for (int i = 0; i < idCount; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") ");
+        }
+        return sql.append("ORDER BY order_time DESC").toString(); // 保留排序
+    }
+
     @Override
     public List<Buyer> showAllBuyers(List<String> frozenavailableOrderIds) throws SQLException {
-        List<Buyer> buyerList = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
-        try {
-            conn = getConnection();
-            // 基础SQL（保留原字段和表）
-            String sql = "SELECT buyer_name, buyer_phonenumber, trading_address, " +
-                         "trading_time, order_id, order_time, work_id " +
-                         "FROM Reservation ";
-            
-            // 处理批量订单ID查询条件
-            if (frozenavailableOrderIds != null && !frozenavailableOrderIds.isEmpty()) {
-                // 生成与订单ID数量匹配的占位符（例如：? ,? ,?）
-                StringBuilder placeholders = new StringBuilder();
-                for (int i = 0; i < frozenavailableOrderIds.size(); i++) {
-                    if (i > 0) {
-                        placeholders.append(", ");
-                    }
-                    placeholders.append("?");
-                }
-                sql += "WHERE order_id IN (" + placeholders + ") ";
-            }
-            sql += "ORDER BY order_time DESC"; // 保留排序
-            
-            ps = conn.prepareStatement(sql);
-            
-            // 设置批量参数（为每个订单ID绑定占位符）
-            if (frozenavailableOrderIds != null && !frozenavailableOrderIds.isEmpty()) {
-                for (int i = 0; i < frozenavailableOrderIds.size(); i++) {
-                    ps.setString(i + 1, frozenavailableOrderIds.get(i).trim());
-                }
-            }
-            
-            rs = ps.executeQuery();
-            
-            Buyer buyer = null;
-            while (rs.next()) {
-                buyer = new Buyer();
-                buyer.setBuyer_name(rs.getString("buyer_name"));
-                buyer.setBuyer_phonenumber(rs.getString("buyer_phonenumber"));
-                buyer.setTrading_address(rs.getString("trading_address"));
-                buyer.setTrading_time(rs.getString("trading_time"));
-                buyer.setOrder_id(rs.getString("order_id"));
-                buyer.setOrder_time(rs.getString("order_time"));
-                buyer.setWork_id(rs.getInt("work_id"));
-                
-                buyerList.add(buyer);
-            }
-            
-            // 打印查询结果提示
-            if (frozenavailableOrderIds != null && !frozenavailableOrderIds.isEmpty()) {
-                System.out.println("查询订单ID列表的购买人信息，共" + buyerList.size() + "条");
-            } else {
-                System.out.println("查询所有购买人信息，共" + buyerList.size() + "条");
-            }
-            
-            // 保持原有逻辑：无数据时返回null
-            if (buyerList.size() == 0) {
-                buyerList = null;
+        return Metrics.dao("BuyerDaoimpl.showAllBuyers", () -> {
+            // 处理批量订单ID查询条件：参数与订单ID一一对应
+            int count = frozenavailableOrderIds == null ? 0 : frozenavailableOrderIds.size();
+            String sql = showAllBuyersSql(count);
+            Object[] params = new Object[count];
+            for (int i = 0; i < count; i++) {
+                params[i] = frozenavailableOrderIds.get(i).trim();
             }
 
-        } catch (SQLException e) {
-            System.err.println("批量查询购买人异常：" + e.getMessage());
-            throw e;
-        } finally {
-            // 关闭资源
-            closeResource(rs, ps, conn);
-        }
+            try (Connection conn = getConnection()) {
+                List<Buyer> buyerList = JdbcTemplate.query(conn, sql, BUYER_MAPPER, params);
+
+                LOG.debug("查询购买人信息（订单ID {} 个），共{}条",
+                        frozenavailableOrderIds == null ? 0 : frozenavailableOrderIds.size(), buyerList.size());
 
-        return buyerList;
+                // 保持原有逻辑：无数据时返回null
+                return buyerList.isEmpty() ? null : buyerList;
+            } catch (SQLException e) {
+                LOG.warn("批量查询购买人异常：{}", e.getMessage());
+                throw e;
+            }
+        });
     }
 
     // ==================== 功能2：根据order_id查询单个购买人信息 ====================
     @Override
     public Buyer getBuyerByOrderId(String orderId) throws SQLException {
-        if (orderId == null || !orderId.matches("^[a-zA-Z]{2}\\d{5}$")) {
-            throw new IllegalArgumentException("订单编号格式错误！需符合DD00001格式（前2位字母，后5位数字）");
-        }
-
-        Buyer buyer = null;
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
-        try {
-            conn = getConnection();
-            // 移除与Trade表的关联和trade_id字段查询
-            String sql = "SELECT r.buyer_name, r.buyer_phonenumber, r.trading_address, " +
-                         "r.trading_time, r.order_id, r.order_time, r.work_id " +
-                         "FROM Reservation r " +
-                         "WHERE r.order_id = ?";
-            
-            ps = conn.prepareStatement(sql);
-            ps.setString(1, orderId);
-            rs = ps.executeQuery();
-
-            if (rs.next()) {
-                buyer = new Buyer();
-                buyer.setBuyer_name(rs.getString("buyer_name"));
-                buyer.setBuyer_phonenumber(rs.getString("buyer_phonenumber"));
-                buyer.setTrading_address(rs.getString("trading_address"));
-                buyer.setTrading_time(rs.getString("trading_time"));
-                buyer.setOrder_id(rs.getString("order_id"));
-                buyer.setOrder_time(rs.getString("order_time"));
-                buyer.setWork_id(rs.getInt("work_id"));
-
-
-                System.out.println("根据order_id=" + orderId + "查询到用户：" + buyer.getBuyer_name() +
-                                   "，商品编号：" + String.format("%04d", buyer.getWork_id()));
-            } else {
-                System.out.println("根据order_id=" + orderId + "未查询到任何用户");
+        return Metrics.dao("BuyerDaoimpl.getBuyerByOrderId", () -> {
+            if (orderId == null || !orderId.matches("^[a-zA-Z]{2}\\d{5}$")) {
+                throw new IllegalArgumentException("订单编号格式错误！需符合DD00001格式（前2位字母，后5位数字）");
             }
 
-        } catch (SQLException e) {
-            System.err.println("根据order_id查询用户异常：" + e.getMessage());
-            throw e;
-        } finally {
-            closeResource(rs, ps, conn);
-        }
-
-        return buyer;
+            try (Connection conn = getConnection()) {
+                Buyer buyer = JdbcTemplate.queryOne(conn, BUYER_BY_ORDER_ID, BUYER_MAPPER, orderId);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("根据order_id={}查询用户：{}", orderId, buyer == null ? "无"
+                            : buyer.getBuyer_name() + "，商品编号：" + String.format("%04d", buyer.getWork_id()));
+                }
+                return buyer;
+            } catch (SQLException e) {
+                LOG.warn("根据order_id查询用户异常：{}", e.getMessage());
+                throw e;
+            }
+        });
     }
+
         
 
     // ==================== 功能3：生成trade_id并创建Trade表数据 ====================
+    /**
+     * 交易：商品 available → frozen 并写入 Trade（比较并交换，一次往返）
+     * @return 1 交易成功；0 订单不存在
+     * @throws SQLException 商品已被冻结或售出（并发交易中的失败方）或数据库异常
+     */
     @Override
     public int Trade(String orderId) throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null; // 单个ps复用，避免频繁创建/关闭
-        ResultSet rs = null;
-        int affectedRows = -1;
-
-        try {
-            // 1. 获取连接并开启事务
-            conn = getConnection();
-            conn.setAutoCommit(false);
-
-            // 2. 根据order_id查work_id（复用ps，不重复关闭）
-            String queryWorkIdSql = "SELECT work_id FROM Reservation WHERE order_id = ?";
-            ps = conn.prepareStatement(queryWorkIdSql);
-            ps.setString(1, orderId);
-            rs = ps.executeQuery();
-
-            if (!rs.next()) {
-                conn.rollback();
-                System.out.println("根据order_id=" + orderId + "未查询到关联订单");
+        TradeResult result = trade(orderId);
+        switch (result.getOutcome()) {
+            case TRADED:
+                return 1;
+            case ORDER_NOT_FOUND:
                 return 0;
-            }
-            int workId = rs.getInt("work_id");
-            // 仅关闭rs（ps后续复用，conn事务中不关闭）
-            if (rs != null) rs.close();
-
-            // 3. 根据work_id查商品状态（复用ps，重新赋值SQL）
-            String queryStatusSql = "SELECT work_status FROM Works WHERE work_id = ?";
-            ps.close(); // 关闭上一个ps，避免资源冲突
-            ps = conn.prepareStatement(queryStatusSql);
-            ps.setInt(1, workId);
-            rs = ps.executeQuery();
-
-            if (!rs.next()) {
-                conn.rollback();
-                throw new SQLException("根据work_id=" + workId + "未查询到对应商品");
-            }
-            String originalWorkStatus = rs.getString("work_status");
-            if (rs != null) rs.close();
-
-            // 4. 更新商品状态为frozen（复用ps）
-            String updateStatusSql = "UPDATE Works SET work_status = 'frozen' WHERE work_id = ?";
-            ps.close();
-            ps = conn.prepareStatement(updateStatusSql);
-            ps.setInt(1, workId);
-            int updateRows = ps.executeUpdate();
-
-            if (updateRows != 1) {
-                conn.rollback();
-                throw new SQLException("更新商品状态失败：work_id=" + workId + "，影响行数=" + updateRows);
-            }
-            System.out.println("商品状态更新完成：work_id=" + workId + "，原始状态=" + originalWorkStatus + "，新状态=frozen");
-
-            // 5. 生成trade_id（修复：避免随机数重复，增加时间戳唯一性）
-            String prefix = "TD";
-            long timestamp = System.currentTimeMillis();
-            int randomNum = (int) (Math.random() * 1000);
-            String tradeId = prefix + timestamp + String.format("%03d", randomNum);
-            System.out.println("为order_id=" + orderId + "生成trade_id：" + tradeId);
-
-            // 6. 插入Trade表（确保work_status非NULL）
-            String insertTradeSql = "INSERT INTO Trade (trade_id, order_id, work_id, work_status) " +
-                                    "VALUES (?, ?, ?, ?)";
-            ps.close();
-            ps = conn.prepareStatement(insertTradeSql);
-            // 明确设置4个参数，确保无NULL
-            ps.setString(1, tradeId);
-            ps.setString(2, orderId);
-            ps.setInt(3, workId);
-            ps.setString(4, "frozen"); // 硬编码确保非NULL，与更新后状态一致
-            affectedRows = ps.executeUpdate();
-
-            // 7. 事务提交/回滚
-            if (affectedRows == 1) {
-                conn.commit();
-                System.out.println("Trade表插入成功：trade_id=" + tradeId + "，关联order_id=" + orderId + "，状态=frozen");
-            } else {
-                conn.rollback();
-                System.out.println("Trade表插入失败：affectedRows=" + affectedRows + "，已回滚事务");
-            }
+            default:
+                throw new SQLException("商品（work_id=" + result.getWorkId() + "）当前状态为"
+                        + result.getWorkStatus() + "，不能再次交易");
+        }
+    }
 
-        } catch (SQLException e) {
-            // 异常回滚
-            if (conn != null && !conn.isClosed()) {
-                try {
+    @Override
+    public TradeResult trade(String orderId) throws SQLException {
+        return Metrics.dao("BuyerDaoimpl.trade", () -> {
+            Connection conn = null;
+            try {
+                // 1. 获取连接并开启事务
+                conn = getConnection();
+                conn.setAutoCommit(false);
+
+                // 2. 生成trade_id（Snowflake：时间戳+节点号+序号，同一毫秒内也不会重复）
+                String tradeId = tradeIdGenerator.nextId();
+
+                // 3. 仅当商品仍为 available 时冻结并写入 Trade（销售统计在同一事务内累加）
+                TradeResult result = stateMachine.freezeForTrade(conn, orderId, tradeId);
+
+                // 4. 事务提交/回滚
+                if (result.isTraded()) {
+                    conn.commit();
+                    // 状态机在提交前已失效一次；提交前的并发读取可能又把旧行载入缓存，提交后再失效一次
+                    cache.invalidate(result.getWorkId());
+                    LOG.info("Trade表插入成功：trade_id={}，关联order_id={}，状态=frozen", tradeId, orderId);
+                } else {
                     conn.rollback();
-                    System.err.println("事务异常回滚完成");
-                } catch (SQLException ex) {
-                    System.err.println("事务回滚失败：" + ex.getMessage());
+                    LOG.info("order_id={}交易未生效：{}，商品状态={}", orderId, result.getOutcome(), result.getWorkStatus());
+                }
+                return result;
+
+            } catch (SQLException e) {
+                // 异常回滚
+                if (conn != null && !conn.isClosed()) {
+                    try {
+                        conn.rollback();
+                        LOG.warn("事务异常回滚完成");
+                    } catch (SQLException ex) {
+                        LOG.error("事务回滚失败：{}", ex.getMessage());
+                    }
                 }
+                LOG.error("Trade操作异常：{}", e.getMessage());
+                throw e;
+            } finally {
+                // 最终关闭所有资源（事务结束）
+                closeResource(null, null, conn);
             }
-            System.err.println("Trade操作异常：" + e.getMessage());
-            throw e;
-        } finally {
-            // 最终关闭所有资源（事务结束）
-            closeResource(rs, ps, conn);
-        }
+        });
+    }
+
+    /**
+     * 批量交易：全部订单在一个事务中以 JDBC 批处理冻结商品并写入 Trade，
+     * 往返次数与订单数无关；部分订单失败（商品已冻结/售出、订单不存在）不影响其余订单，只在结果中标明
+     */
+    @Override
+    public List<TradeResult> tradeAll(List<String> orderIds) throws SQLException {
+        return Metrics.dao("BuyerDaoimpl.tradeAll", () -> {
+            Connection conn = null;
+            try {
+                conn = getConnection();
+                conn.setAutoCommit(false);
 
-        return affectedRows;
+                List<TradeResult> results = stateMachine.freezeForTrades(conn, orderIds, tradeIdGenerator);
+
+                conn.commit();
+                int traded = 0;
+                for (TradeResult result : results) {
+                    if (result.isTraded()) {
+                        // 同 trade：提交后再失效一次，丢弃提交前被并发读取重新载入的旧行
+                        cache.invalidate(result.getWorkId());
+                        traded++;
+                    }
+                }
+                LOG.info("批量交易完成：订单{}个，成功{}个", results.size(), traded);
+                return results;
+
+            } catch (SQLException e) {
+                if (conn != null && !conn.isClosed()) {
+                    try {
+                        conn.rollback();
+                        LOG.warn("事务异常回滚完成");
+                    } catch (SQLException ex) {
+                        LOG.error("事务回滚失败：{}", ex.getMessage());
+                    }
+                }
+                LOG.error("批量交易异常：{}", e.getMessage());
+                throw e;
+            } finally {
+                closeResource(null, null, conn);
+            }
+        });
     }
     
  // ==================== 功能4 ====================
@@ -304,33 +317,20 @@ public class BuyerDaoimpl implements BuyerDao {
      */
     @Override
     public List<String> getFrozenAndAvailableTradeIds() throws SQLException {
-        List<String> tradeIds = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
-        try {
-            conn = getConnection();
-            // 查询状态为frozen或available的所有trade_id
-            String sql = "SELECT trade_id FROM Trade WHERE work_status IN ('frozen', 'available')";
-            ps = conn.prepareStatement(sql);
-            rs = ps.executeQuery();
-
-            // 遍历结果集，收集trade_id
-            while (rs.next()) {
-                tradeIds.add(rs.getString("trade_id"));
+        return Metrics.dao("BuyerDaoimpl.getFrozenAndAvailableTradeIds", () -> {
+            try (Connection conn = getConnection()) {
+                // 查询状态为frozen或available的所有trade_id
+                List<String> tradeIds = JdbcTemplate.query(conn, OPEN_TRADE_IDS, rs -> rs.getString("trade_id"));
+                LOG.debug("查询到{}条状态为冻结或可用的trade_id", tradeIds.size());
+
+                // 无数据时返回null，有数据时返回列表（保持原逻辑）
+                return tradeIds.isEmpty() ? null : tradeIds;
+
+            } catch (SQLException e) {
+                LOG.warn("查询冻结或可用状态trade_id异常：{}", e.getMessage());
+                throw e;
             }
-            System.out.println("查询到" + tradeIds.size() + "条状态为冻结或可用的trade_id");
-
-            // 无数据时返回null，有数据时返回列表（保持原逻辑）
-            return tradeIds.isEmpty() ? null : tradeIds;
-
-        } catch (SQLException e) {
-            System.err.println("查询冻结或可用状态trade_id异常：" + e.getMessage());
-            throw e;
-        } finally {
-            closeResource(rs, ps, conn);
-        }
+        });
     }
     
  // ==================== 功能5====================
@@ -342,37 +342,18 @@ public class BuyerDaoimpl implements BuyerDao {
      */
     @Override
     public List<String> getFrozenAndAvailableOrderIds() throws SQLException {
-        List<String> orderIds = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
-        try {
-            conn = getConnection();
-            // 先从 Works 里找出符合条件的 work_id，再到 Reservation 里查 order_id
-            String sql = "SELECT DISTINCT r.order_id " +
-                         "FROM Reservation r " +
-                         "WHERE r.work_id IN ( " +
-                         "    SELECT w.work_id " +
-                         "    FROM Works w " +
-                         "    WHERE w.work_status IN ('frozen', 'available')" +
-                         ")";
-            ps = conn.prepareStatement(sql);
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                orderIds.add(rs.getString("order_id"));
-            }
-            System.out.println("查询到 " + orderIds.size() + " 条状态为冻结或可用的 order_id");
+        return Metrics.dao("BuyerDaoimpl.getFrozenAndAvailableOrderIds", () -> {
+            try (Connection conn = getConnection()) {
+                List<String> orderIds = JdbcTemplate.query(conn, OPEN_ORDER_IDS, rs -> rs.getString("order_id"));
+                LOG.debug("查询到 {} 条状态为冻结或可用的 order_id", orderIds.size());
 
-            return orderIds.isEmpty() ? null : orderIds;
+                return orderIds.isEmpty() ? null : orderIds;
 
-        } catch (SQLException e) {
-            System.err.println("查询冻结或可用状态 order_id 异常：" + e.getMessage());
-            throw e;
-        } finally {
-            closeResource(rs, ps, conn);
-        }
+            } catch (SQLException e) {
+                LOG.warn("查询冻结或可用状态 order_id 异常：{}", e.getMessage());
+                throw e;
+            }
+        });
     }
 
     
@@ -384,65 +365,100 @@ public class BuyerDaoimpl implements BuyerDao {
      */
     @Override
     public String getWorkStatusByOrderId(List<String> frozenavailableOrderIds) throws SQLException {
-        // 检查订单ID列表是否为空
-        if (frozenavailableOrderIds == null || frozenavailableOrderIds.isEmpty()) {
-            System.out.println("订单ID列表为空，无法查询商品状态");
-            return null;
-        }
+        return Metrics.dao("BuyerDaoimpl.getWorkStatusByOrderId", () -> {
+            // 检查订单ID列表是否为空
+            if (frozenavailableOrderIds == null || frozenavailableOrderIds.isEmpty()) {
+                LOG.debug("订单ID列表为空，无法查询商品状态");
+                return null;
+            }
         
-        // 获取列表中的第一个订单ID
-        String firstOrderId = frozenavailableOrderIds.get(0);
-        System.out.println("获取第一个订单ID: " + firstOrderId + " 的商品状态");
+            // 获取列表中的第一个订单ID
+            String firstOrderId = frozenavailableOrderIds.get(0);
+            LOG.debug("获取第一个订单ID: {} 的商品状态", firstOrderId);
         
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        String workStatus = null;
-        String workId = null;
+            try (Connection conn = getConnection()) {
+                // 第一步：通过order_id在Reservation表查询work_id
+                Integer workId = JdbcTemplate.queryOne(conn, WORK_ID_BY_ORDER_ID, rs -> rs.getInt("work_id"), firstOrderId);
+                if (workId == null) {
+                    LOG.debug("未查询到订单ID: {} 对应的work_id", firstOrderId);
+                    return null;
+                }
+                LOG.debug("订单ID: {} 对应的work_id为: {}", firstOrderId, workId);
 
-        try {
-            conn = getConnection();
-            
-            // 第一步：通过order_id在Reservation表查询work_id
-            String sqlReservation = "SELECT work_id FROM Reservation WHERE order_id = ?";
-            ps = conn.prepareStatement(sqlReservation);
-            ps.setString(1, firstOrderId);
-            rs = ps.executeQuery();
-            
-            if (rs.next()) {
-                workId = rs.getString("work_id");
-                System.out.println("订单ID: " + firstOrderId + " 对应的work_id为: " + workId);
-                
                 // 第二步：通过work_id在Works表查询work_status
-                String sqlWorks = "SELECT work_status FROM Works WHERE work_id = ?";
-                // 关闭上一个ResultSet和PreparedStatement
-                rs.close();
-                ps.close();
-                
-                ps = conn.prepareStatement(sqlWorks);
-                ps.setString(1, workId);
-                rs = ps.executeQuery();
-                
-                if (rs.next()) {
-                    workStatus = rs.getString("work_status");
-                    System.out.println("work_id: " + workId + " 对应的商品状态为: " + workStatus);
+                String workStatus = JdbcTemplate.queryOne(conn, WORK_STATUS_BY_ID, rs -> rs.getString("work_status"), workId);
+                if (workStatus == null) {
+                    LOG.debug("未查询到work_id: {} 对应的商品状态", workId);
                 } else {
-                    System.out.println("未查询到work_id: " + workId + " 对应的商品状态");
+                    LOG.debug("work_id: {} 对应的商品状态为: {}", workId, workStatus);
                 }
-            } else {
-                System.out.println("未查询到订单ID: " + firstOrderId + " 对应的work_id");
+                return workStatus;
+
+            } catch (SQLException e) {
+                LOG.warn("查询商品状态异常：{}", e.getMessage());
+                throw e;
             }
+        });
+    }
 
-            return workStatus;
+    // ==================== 功能6：意向购买人页面读模型（一次查询） ====================
+    /**
+     * 一次往返取回购买人页面需要的全部数据，替代
+     * getFrozenAndAvailableTradeIds → getFrozenAndAvailableOrderIds → getWorkStatusByOrderId → showAllBuyers 四次查询。
+     * 购买人与交易号通过 UNION ALL 在同一结果集中返回（row_kind 区分），
+     * 参数个数固定，不随订单数量增长，不会触及 SQL Server 2100 个参数的上限。
+     * @return 页面读模型，无数据时各列表为空
+     * @throws SQLException 数据库查询异常
+     */
+    @Override
+    public BuyerDashboard getBuyerDashboard() throws SQLException {
+        return Metrics.dao("BuyerDaoimpl.getBuyerDashboard", d -> d.getBuyers().size() + d.getTradeIds().size(), () -> {
+            try (Connection conn = getConnection()) {
+                List<Buyer> buyers = new ArrayList<>();
+                List<String> tradeIds = new ArrayList<>();
+                String workStatus = null;
+                for (DashboardRow row : JdbcTemplate.query(conn, DASHBOARD, DASHBOARD_ROW_MAPPER)) {
+                    if (row.buyer == null) {
+                        tradeIds.add(row.tradeId);
+                        continue;
+                    }
+                    if (workStatus == null) {
+                        workStatus = row.workStatus;
+                    }
+                    buyers.add(row.buyer);
+                }
+                LOG.debug("查询购买人页面数据：购买人{}条，交易号{}条", buyers.size(), tradeIds.size());
+                return new BuyerDashboard(buyers, tradeIds, workStatus);
 
-        } catch (SQLException e) {
-            System.err.println("查询商品状态异常：" + e.getMessage());
-            throw e;
-        } finally {
-            closeResource(rs, ps, conn); // 复用已有的资源关闭方法
-        }
+            } catch (SQLException e) {
+                LOG.warn("查询购买人页面数据异常：{}", e.getMessage());
+                throw e;
+            }
+        });
     }
-    
-        
-    
-}
\ No newline at end of file
+
+    /**
+     * 本类（含交易时 WorkStateMachine 执行的语句）的 SQL 及示例参数，供 QueryPlanAdvisor 检查执行计划
+     */
+    static List<QueryPlanAdvisor.Query> planQueries() {
+        String orderId = "DD00001";
+        String tradeId = "TD1234567890123456";
+        List<QueryPlanAdvisor.Query> queries = new ArrayList<>();
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.showAllBuyers", showAllBuyersSql(3),
+                orderId, "DD00002", "DD00003"));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.getBuyerByOrderId", BUYER_BY_ORDER_ID, orderId));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.getFrozenAndAvailableTradeIds", OPEN_TRADE_IDS));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.getFrozenAndAvailableOrderIds", OPEN_ORDER_IDS));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.getWorkStatusByOrderId(order)", WORK_ID_BY_ORDER_ID, orderId));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.getWorkStatusByOrderId(work)", WORK_STATUS_BY_ID, 1));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.getBuyerDashboard", DASHBOARD));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.trade", WorkStateMachine.FREEZE_FOR_TRADE,
+                orderId, tradeId, orderId, orderId));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.tradeAll(freeze)", WorkStateMachine.FREEZE_BATCH, orderId));
+        queries.add(new QueryPlanAdvisor.Query("BuyerDaoimpl.tradeAll(insert)", WorkStateMachine.INSERT_TRADE_BATCH,
+                tradeId, orderId));
+        queries.add(new QueryPlanAdvisor.Query("WorkStateMachine.transition", WorkStateMachine.TRANSITION,
+                "sold", 1, "frozen", 1, "sold"));
+        return queries;
+    }
+}
@@ -0,0 +1,56 @@
+package datebase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 意向购买人页面的读模型（只读）
+ * 由 BuyerDao.getBuyerDashboard() 一次查询得到：
+ * 商品状态为 frozen/available 的预订（Reservation ⋈ Works）以及对应状态的交易号（Trade）
+ */
+public class BuyerDashboard {
+    private final List<Buyer> buyers;
+    private final List<String> orderIds;
+    private final List<String> tradeIds;
+    private final String workStatus;
+
+    /**
+     * @param buyers 购买人列表（按下单时间倒序）
+     * @param tradeIds 状态为 frozen/available 的 trade_id
+     * @param workStatus 第一条预订对应商品的状态，无预订时为 null
+     */
+    public BuyerDashboard(List<Buyer> buyers, List<String> tradeIds, String workStatus) {
+        this.buyers = Collections.unmodifiableList(new ArrayList<>(buyers));
+        LinkedHashSet<String> ids = new LinkedHashSet<>();
+        for (Buyer buyer : buyers) {
+            ids.add(buyer.getOrder_id());
+        }
+        this.orderIds = Collections.unmodifiableList(new ArrayList<>(ids));
+        this.tradeIds = Collections.unmodifiableList(new ArrayList<>(tradeIds));
+        this.workStatus = workStatus;
+    }
+
+    public List<Buyer> getBuyers() {
+        return buyers;
+    }
+
+    public List<String> getOrderIds() {
+        return orderIds;
+    }
+
+    public List<String> getTradeIds() {
+        return tradeIds;
+    }
+
+    public String getWorkStatus() {
+        return workStatus;
+    }
+
+    @Override
+    public String toString() {
+        return "BuyerDashboard [buyers=" + buyers.size() + ", orderIds=" + orderIds + ", tradeIds=" + tradeIds
+                + ", workStatus=" + workStatus + "]";
+    }
+}
@@ -0,0 +1,68 @@
+package datebase;
+
+/**
+ * 缓存运行指标快照（只读）
+ */
+public class CacheStats {
+    private final int size;
+    private final int maxSize;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long evictionCount;
+    private final long invalidationCount;
+
+    public CacheStats(int size, int maxSize, long hitCount, long missCount, long loadCount,
+                      long evictionCount, long invalidationCount) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * 命中率（0~1），尚无访问时为 0
+     */
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats [size=" + size + "/" + maxSize + ", hits=" + hitCount + ", misses=" + missCount
+                + ", loads=" + loadCount + ", evictions=" + evictionCount + ", invalidations=" + invalidationCount
+                + ", hitRate=" + String.format("%.3f", getHitRate()) + "]";
+    }
+}
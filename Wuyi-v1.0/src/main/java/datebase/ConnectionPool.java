@@ -0,0 +1,474 @@
+package datebase;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * 数据库连接池（DataSource 实现）
+ * 核心功能：
+ * 1) 复用物理连接，避免每次查询都重新做一次 TLS 握手与登录
+ * 2) minSize/maxSize 控制连接数，借连接超时抛 SQLTimeoutException
+ * 3) 长时间空闲的连接借出前用 Connection.isValid 校验，失效即丢弃重建
+ * 4) 借出超过阈值未归还时打印借用方调用栈（泄漏检测）
+ * 5) 通过 getStats() 暴露运行指标
+ * 6) 每个物理连接带一个预编译语句缓存（StatementCache），相同 SQL 复用已 prepare 的语句
+ *
+ * 借出的是代理连接：调用 close() 只是归还连接池；
+ * 归还时若仍处于手动事务中会先回滚并恢复 autoCommit，避免脏状态流入下一个使用者。
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Log LOG = Log.get(ConnectionPool.class);
+
+    /**
+     * 物理连接的创建方式（默认走 DriverManager，测试或替换驱动时可自定义）
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /** 空闲连接及其最近一次归还时间 */
+    private static final class IdleEntry {
+        final Connection raw;
+        final long returnedAt;
+
+        IdleEntry(Connection raw, long returnedAt) {
+            this.raw = raw;
+            this.returnedAt = returnedAt;
+        }
+    }
+
+    /** 借出记录：用于泄漏检测 */
+    private static final class Lease {
+        final Connection raw;
+        final long borrowedAt;
+        final Throwable borrower;
+        volatile boolean reported;
+
+        Lease(Connection raw, long borrowedAt, Throwable borrower) {
+            this.raw = raw;
+            this.borrowedAt = borrowedAt;
+            this.borrower = borrower;
+        }
+    }
+
+    private final PoolConfig config;
+    private final ConnectionFactory factory;
+    private final LinkedBlockingDeque<IdleEntry> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, Lease> leased = new ConcurrentHashMap<>();
+    // 物理连接 → 该连接上的预编译语句缓存（statementCacheSize 为 0 时不建）
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    // 许可数 = maxSize，借出与创建都必须先拿到许可
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder acquiredCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder validationFailureCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    public ConnectionPool(PoolConfig config) {
+        this(config, driverManagerFactory(config));
+    }
+
+    public ConnectionPool(PoolConfig config, ConnectionFactory factory) {
+        this.config = config;
+        this.factory = factory;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wuyi-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, config.getHousekeepingIntervalMs());
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    static ConnectionFactory driverManagerFactory(PoolConfig config) {
+        try {
+            Class.forName(config.getDriver());
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("数据库驱动加载失败！请检查驱动包是否引入：" + config.getDriver(), e);
+        }
+        return () -> DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+    }
+
+    // ==================== 借出 / 归还 ====================
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("获取数据库连接超时（" + config.getAcquireTimeoutMs() + "ms），当前连接数="
+                        + total.get() + "，等待线程数=" + permits.getQueueLength());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库连接时线程被中断", e);
+        }
+
+        Connection raw;
+        try {
+            raw = takeValidConnection();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long now = System.nanoTime();
+        Throwable borrower = config.getLeakDetectionThresholdMs() > 0 ? new Throwable("连接借出位置") : null;
+        leased.put(raw, new Lease(raw, now, borrower));
+        acquiredCount.increment();
+        acquireNanos.add(now - start);
+        Metrics.recordConnectionAcquire(now - start);
+        return wrap(raw);
+    }
+
+    /**
+     * 优先复用最近归还的空闲连接（LIFO），空闲太久的先校验；没有可用的就新建
+     */
+    private Connection takeValidConnection() throws SQLException {
+        IdleEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.returnedAt);
+            if (idleMs < config.getValidationIntervalMs() || isValid(entry.raw)) {
+                return entry.raw;
+            }
+            validationFailureCount.increment();
+            destroy(entry.raw);
+        }
+        return create();
+    }
+
+    private boolean isValid(Connection raw) {
+        try {
+            return !raw.isClosed() && raw.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection create() throws SQLException {
+        Connection raw = factory.create();
+        if (config.getStatementCacheSize() > 0) {
+            statementCaches.put(raw, new StatementCache(raw, config.getStatementCacheSize(), statementHits,
+                    statementMisses));
+        }
+        total.incrementAndGet();
+        createdCount.increment();
+        return raw;
+    }
+
+    private void destroy(Connection raw) {
+        total.decrementAndGet();
+        destroyedCount.increment();
+        StatementCache statements = statementCaches.remove(raw);
+        if (statements != null) {
+            statements.close();
+        }
+        try {
+            raw.close();
+        } catch (SQLException e) {
+            LOG.warn("关闭物理连接异常：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 代理连接 close() 时调用：复位连接状态后放回空闲队列
+     * @param interrupted 归还连接的线程处于中断状态（TaskScope 取消子任务、请求超时）：连接上可能还有执行到一半的请求
+     *                    或未读完的结果，这种连接不回滚、不复用，直接中止物理连接
+     */
+    private void release(Connection raw, boolean interrupted) {
+        leased.remove(raw);
+        if (interrupted) {
+            LOG.debug("借用线程已被中断，中止并丢弃连接");
+            try {
+                raw.abort(Runnable::run);
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("中止物理连接异常：{}", e.getMessage());
+            }
+            destroy(raw);
+            permits.release();
+            return;
+        }
+        try {
+            boolean reusable = !closed && !raw.isClosed();
+            if (reusable && !raw.getAutoCommit()) {
+                // 未提交的事务一律回滚，保证下一个借用者拿到干净连接
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            if (reusable) {
+                idle.offerFirst(new IdleEntry(raw, System.nanoTime()));
+            } else {
+                destroy(raw);
+            }
+        } catch (SQLException e) {
+            validationFailureCount.increment();
+            destroy(raw);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Connection raw) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new PooledHandler(raw));
+    }
+
+    private final class PooledHandler implements InvocationHandler {
+        private final Connection raw;
+        private final StatementCache statements;
+        private boolean returned;
+
+        PooledHandler(Connection raw) {
+            this.raw = raw;
+            this.statements = statementCaches.get(raw);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            release(raw, Thread.currentThread().isInterrupted());
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + raw + (returned ? ", returned" : "") + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("连接已归还连接池，不能继续使用");
+                    }
+                    if (statements != null && "prepareStatement".equals(method.getName())) {
+                        return statements.prepare((Connection) proxy, method, args);
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Statement) {
+                        // createStatement / prepareCall 等不缓存的语句同样包装，getConnection() 不泄露物理连接
+                        return ownedBy((Statement) result, method.getReturnType(), (Connection) proxy);
+                    }
+                    return result;
+            }
+        }
+    }
+
+    private static Object ownedBy(Statement statement, Class<?> type, Connection owner) {
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { type },
+                new OwnedStatementHandler(statement, owner));
+    }
+
+    /**
+     * 未进入语句缓存的语句：除 getConnection() 返回连接池代理连接外，全部转发给物理语句
+     */
+    private static final class OwnedStatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final Connection owner;
+
+        OwnedStatementHandler(Statement statement, Connection owner) {
+            this.statement = statement;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledStatement[" + statement + "]";
+                default:
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    // ==================== 后台维护：泄漏检测 / 空闲回收 / 补足最小连接 ====================
+
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            detectLeaks(now);
+            evictIdle(now);
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            LOG.error("连接池维护任务异常", e);
+        }
+    }
+
+    private void detectLeaks(long now) {
+        long threshold = config.getLeakDetectionThresholdMs();
+        if (threshold <= 0) {
+            return;
+        }
+        for (Lease lease : leased.values()) {
+            if (!lease.reported && TimeUnit.NANOSECONDS.toMillis(now - lease.borrowedAt) >= threshold) {
+                lease.reported = true;
+                leakCount.increment();
+                if (lease.borrower != null) {
+                    LOG.warn("疑似连接泄漏：连接借出已超过 {}ms 未归还", threshold, lease.borrower);
+                } else {
+                    LOG.warn("疑似连接泄漏：连接借出已超过 {}ms 未归还", threshold);
+                }
+            }
+        }
+    }
+
+    private void evictIdle(long now) {
+        Iterator<IdleEntry> it = idle.descendingIterator();
+        while (it.hasNext() && total.get() > config.getMinSize()) {
+            IdleEntry entry = it.next();
+            if (TimeUnit.NANOSECONDS.toMillis(now - entry.returnedAt) >= config.getIdleTimeoutMs()
+                    && idle.removeFirstOccurrence(entry)) {
+                destroy(entry.raw);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < config.getMinSize() && permits.tryAcquire()) {
+            try {
+                idle.offerLast(new IdleEntry(create(), System.nanoTime()));
+            } catch (SQLException e) {
+                LOG.warn("预建数据库连接失败：{}", e.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    // ==================== 指标与关闭 ====================
+
+    /**
+     * 当前运行指标快照
+     */
+    public PoolStats getStats() {
+        long acquired = acquiredCount.sum();
+        double avgMs = acquired == 0 ? 0.0 : acquireNanos.sum() / 1_000_000.0 / acquired;
+        return new PoolStats(total.get(), idle.size(), leased.size(), permits.getQueueLength(),
+                acquired, createdCount.sum(), destroyedCount.sum(), timeoutCount.sum(),
+                validationFailureCount.sum(), leakCount.sum(), avgMs, statementHits.sum(), statementMisses.sum());
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 关闭连接池：关闭全部空闲连接，借出中的连接在归还时关闭
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        IdleEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry.raw);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // ==================== DataSource 其余方法 ====================
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("连接池使用统一账号，不支持按用户名获取连接");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("不能转换为 " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,76 @@
+package datebase;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV 格式的表格导出（RFC 4180）：含逗号、引号或换行的字段用双引号包裹，行尾为 \r\n
+ * 以 = + - @ 开头的文本前加单引号，避免在 Excel 中被当作公式执行
+ */
+class CsvTableWriter extends TableExportWriter {
+
+    private final Writer out;
+    private boolean started;
+
+    CsvTableWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/csv; charset=UTF-8";
+    }
+
+    @Override
+    public String getExtension() {
+        return "csv";
+    }
+
+    @Override
+    public void writeRow(Object... cells) throws IOException {
+        if (!started) {
+            started = true;
+            out.write('\uFEFF');
+        }
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeField(cells[i]);
+        }
+        out.write("\r\n");
+    }
+
+    private void writeField(Object cell) throws IOException {
+        String s = text(cell);
+        if (!(cell instanceof Number) && !s.isEmpty() && "=+-@".indexOf(s.charAt(0)) >= 0) {
+            s = "'" + s;
+        }
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        out.write(s.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,105 @@
+package datebase;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV 格式的商品导入文件（RFC 4180）：首行表头，字段名不区分大小写，空行跳过
+ */
+class CsvWorksReader extends WorksImportReader {
+
+    private List<String> header;
+    // 已读到文件末尾
+    private boolean eof;
+
+    CsvWorksReader(Reader in) {
+        super(in);
+    }
+
+    @Override
+    protected Map<String, String> readRecord() throws IOException {
+        if (header == null) {
+            List<String> names = readRow();
+            if (names == null) {
+                return null;
+            }
+            header = new ArrayList<>(names.size());
+            for (String name : names) {
+                header.add(name.trim().toLowerCase());
+            }
+            if (!header.contains("work_name") || !header.contains("work_price")) {
+                throw new IllegalArgumentException("CSV 表头至少需要 work_name 和 work_price 两列：" + names);
+            }
+        }
+        List<String> row = readRow();
+        if (row == null) {
+            return null;
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size() && i < row.size(); i++) {
+            fields.put(header.get(i), row.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * 读取一行（引号内的换行不算行尾），到文件末尾时返回 null
+     */
+    private List<String> readRow() throws IOException {
+        while (!eof) {
+            List<String> row = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    eof = true;
+                    if (quoted) {
+                        throw new IllegalArgumentException("CSV 文件结尾有未闭合的引号");
+                    }
+                    break;
+                }
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        int d = read();
+                        if (d == '"') {
+                            field.append('"');
+                            continue;
+                        }
+                        quoted = false;
+                        if (d == -1) {
+                            eof = true;
+                            break;
+                        }
+                        c = d;
+                    } else {
+                        field.append((char) c);
+                        continue;
+                    }
+                }
+                if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    row.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            row.add(field.toString());
+            // 跳过空行
+            if (any && !(row.size() == 1 && row.get(0).trim().isEmpty())) {
+                return row;
+            }
+        }
+        return null;
+    }
+}
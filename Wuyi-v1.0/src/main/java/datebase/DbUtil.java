@@ -1,21 +1,88 @@
 package datebase;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
+/**
+ * 数据库连接入口
+ * 所有 DAO / Servlet / JSP 统一从这里拿连接，默认由 ConnectionPool 提供（配置见 db.properties）；
+ * 也可通过 setDataSource 换成其他 DataSource 实现。
+ */
 public class DbUtil {
-	private static String  jdbcName = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
-	
-	public static Connection getCon()throws Exception{
-		Class.forName(jdbcName);
-		Connection con=DriverManager.getConnection("jdbc:sqlserver://localhost:1433;DatabaseName=Wuyi;encrypt=true;trustServerCertificate=true","sa","ye041017");//�������û���������
-		return con;
+	private static volatile DataSource dataSource;
+
+	/**
+	 * 获取当前使用的 DataSource（首次调用时按 db.properties 创建连接池）
+	 */
+	public static DataSource getDataSource() {
+		DataSource ds = dataSource;
+		if (ds == null) {
+			synchronized (DbUtil.class) {
+				ds = dataSource;
+				if (ds == null) {
+					ds = new ConnectionPool(AppConfig.get().getPool());
+					dataSource = ds;
+				}
+			}
+		}
+		return ds;
+	}
+
+	/**
+	 * 替换 DataSource；旧的连接池会被关闭
+	 */
+	public static synchronized void setDataSource(DataSource ds) {
+		DataSource old = dataSource;
+		dataSource = ds;
+		if (old != null && old != ds && old instanceof ConnectionPool) {
+			((ConnectionPool) old).close();
+		}
+	}
+
+	/**
+	 * 从连接池借一个连接，用完 close() 即归还
+	 * 若当前线程处于 UnitOfWork 中，则返回工作单元绑定的连接（close() 不会归还）
+	 */
+	public static Connection getCon() throws SQLException {
+		Connection bound = UnitOfWork.currentConnection();
+		if (bound != null) {
+			return bound;
+		}
+		return getDataSource().getConnection();
 	}
-	
+
+	/**
+	 * UnitOfWork 使用的事务隔离级别
+	 */
+	static int getTransactionIsolation() {
+		DataSource ds = getDataSource();
+		return ds instanceof ConnectionPool ? ((ConnectionPool) ds).getConfig().getTransactionIsolation()
+				: Connection.TRANSACTION_READ_COMMITTED;
+	}
+
 	public void closeCon(Connection con)throws Exception{
 		if(con!=null) {
 			con.close();
 		}
 	}
-}
 
+	/**
+	 * 连接池指标；若当前 DataSource 不是 ConnectionPool 则返回 null
+	 */
+	public static PoolStats getPoolStats() {
+		DataSource ds = dataSource;
+		return ds instanceof ConnectionPool ? ((ConnectionPool) ds).getStats() : null;
+	}
+
+	/**
+	 * 应用停止时关闭连接池
+	 */
+	public static synchronized void shutdown() {
+		if (dataSource instanceof ConnectionPool) {
+			((ConnectionPool) dataSource).close();
+		}
+		dataSource = null;
+	}
+}
@@ -0,0 +1,12 @@
+package datebase;
+
+/**
+ * 业务编号生成器（可替换实现，如 SnowflakeIdGenerator）
+ */
+@FunctionalInterface
+public interface IdGenerator {
+    /**
+     * 生成下一个编号；实现需线程安全
+     */
+    String nextId();
+}
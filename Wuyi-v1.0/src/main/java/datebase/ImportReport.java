@@ -0,0 +1,39 @@
+package datebase;
+
+/**
+ * 一次商品批量导入的结果：导入行数、批次数与耗时（用于计算吞吐量）
+ */
+public class ImportReport {
+    private final long rows;
+    private final int batches;
+    private final long elapsedNanos;
+
+    public ImportReport(long rows, int batches, long elapsedNanos) {
+        this.rows = rows;
+        this.batches = batches;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /** 每秒导入行数 */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("导入商品%d件，分%d批写入，耗时%d毫秒（%.1f件/秒）", rows, batches, getElapsedMillis(),
+                getRowsPerSecond());
+    }
+}
@@ -0,0 +1,59 @@
+package datebase;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * 按列序号取值的行映射器
+ * 构造时声明要读取的列名（映射器通常是常量，列名数组只建一次）；每个 ResultSet 先 resolve 一次得到列序号数组，
+ * 此后每行按序号 rs.getXxx(int) 取值，不再逐行逐列做不区分大小写的列名查找。
+ * mapRow 的 col[i] 即构造时第 i 个列名对应的列序号。
+ */
+public abstract class IndexedRowMapper<T> {
+
+    private final String[] columns;
+
+    protected IndexedRowMapper(String... columns) {
+        this.columns = columns.clone();
+    }
+
+    /**
+     * 在结果集元数据中查找各列的序号（按列标签，不区分大小写）
+     * @throws SQLException 结果集中缺少某一列
+     */
+    public final int[] resolve(ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        int count = md.getColumnCount();
+        String[] labels = new String[count];
+        for (int c = 1; c <= count; c++) {
+            labels[c - 1] = md.getColumnLabel(c);
+        }
+        int[] col = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            for (int c = 0; c < count; c++) {
+                if (columns[i].equalsIgnoreCase(labels[c])) {
+                    col[i] = c + 1;
+                    break;
+                }
+            }
+            if (col[i] == 0) {
+                throw new SQLException("结果集中缺少列：" + columns[i]);
+            }
+        }
+        return col;
+    }
+
+    /**
+     * 映射当前行（不要在其中调用 rs.next()）
+     * @param col resolve 返回的列序号
+     */
+    public abstract T mapRow(ResultSet rs, int[] col) throws SQLException;
+
+    /**
+     * 读取价格列（DECIMAL(18,2)），NULL 按 0 计
+     */
+    protected static Money getPrice(ResultSet rs, int column) throws SQLException {
+        return Money.of(rs.getBigDecimal(column));
+    }
+}
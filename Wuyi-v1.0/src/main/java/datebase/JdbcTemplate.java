@@ -0,0 +1,179 @@
+package datebase;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 简化的 JDBC 模板：在调用方给定的连接上执行 SQL，语句与结果集一律在方法内关闭
+ * 连接来自 ConnectionPool 时，prepareStatement 命中该连接的预编译语句缓存，相同 SQL 不会重复 prepare。
+ * 参数按 Java 类型绑定（见 bind）；连接的借还与事务仍由调用方（DbUtil.getCon / UnitOfWork）负责。
+ */
+public final class JdbcTemplate {
+
+    /**
+     * 把结果集的当前行映射为对象（不要在其中调用 rs.next()）
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T mapRow(ResultSet rs) throws SQLException;
+    }
+
+    /** 指定 SQL 类型的 NULL 参数，见 nullOf */
+    private static final class TypedNull {
+        final int sqlType;
+
+        TypedNull(int sqlType) {
+            this.sqlType = sqlType;
+        }
+    }
+
+    private JdbcTemplate() {
+    }
+
+    /**
+     * 查询多行
+     */
+    public static <T> List<T> query(Connection con, String sql, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        checkConnection(con);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<T> list = new ArrayList<>();
+                while (rs.next()) {
+                    list.add(mapper.mapRow(rs));
+                }
+                return list;
+            }
+        }
+    }
+
+    /**
+     * 查询第一行，没有结果时返回 null
+     */
+    public static <T> T queryOne(Connection con, String sql, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        checkConnection(con);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapper.mapRow(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * 查询多行：列序号在结果集打开后解析一次，逐行按序号取值
+     */
+    public static <T> List<T> query(Connection con, String sql, IndexedRowMapper<T> mapper, Object... params)
+            throws SQLException {
+        checkConnection(con);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] col = mapper.resolve(rs);
+                List<T> list = new ArrayList<>();
+                while (rs.next()) {
+                    list.add(mapper.mapRow(rs, col));
+                }
+                return list;
+            }
+        }
+    }
+
+    /**
+     * 查询第一行，没有结果时返回 null
+     */
+    public static <T> T queryOne(Connection con, String sql, IndexedRowMapper<T> mapper, Object... params)
+            throws SQLException {
+        checkConnection(con);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapper.mapRow(rs, mapper.resolve(rs)) : null;
+            }
+        }
+    }
+
+    /**
+     * 查询单个整数（如 COUNT），没有结果时返回 0
+     */
+    public static int queryInt(Connection con, String sql, Object... params) throws SQLException {
+        Integer value = queryOne(con, sql, rs -> rs.getInt(1), params);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * 执行 INSERT / UPDATE / DELETE，返回影响行数
+     */
+    public static int update(Connection con, String sql, Object... params) throws SQLException {
+        checkConnection(con);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, params);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 指定 SQL 类型的 NULL 参数，如 nullOf(Types.INTEGER)；直接传 null 时按 VARCHAR 绑定
+     */
+    public static Object nullOf(int sqlType) {
+        return new TypedNull(sqlType);
+    }
+
+    /**
+     * 按参数的 Java 类型依次绑定：String、Integer、Long、BigDecimal、Money、Boolean、LocalDate、LocalDateTime、
+     * java.sql.Date/Timestamp、byte[]；其他类型抛 IllegalArgumentException，避免驱动自行猜测类型
+     */
+    static void bind(PreparedStatement ps, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            int index = i + 1;
+            Object p = params[i];
+            if (p == null) {
+                ps.setNull(index, Types.VARCHAR);
+            } else if (p instanceof TypedNull) {
+                ps.setNull(index, ((TypedNull) p).sqlType);
+            } else if (p instanceof String) {
+                ps.setString(index, (String) p);
+            } else if (p instanceof Integer) {
+                ps.setInt(index, (Integer) p);
+            } else if (p instanceof Long) {
+                ps.setLong(index, (Long) p);
+            } else if (p instanceof BigDecimal) {
+                ps.setBigDecimal(index, (BigDecimal) p);
+            } else if (p instanceof Money) {
+                ps.setBigDecimal(index, ((Money) p).toBigDecimal());
+            } else if (p instanceof Boolean) {
+                ps.setBoolean(index, (Boolean) p);
+            } else if (p instanceof LocalDateTime) {
+                ps.setTimestamp(index, Timestamp.valueOf((LocalDateTime) p));
+            } else if (p instanceof LocalDate) {
+                ps.setDate(index, Date.valueOf((LocalDate) p));
+            } else if (p instanceof Timestamp) {
+                ps.setTimestamp(index, (Timestamp) p);
+            } else if (p instanceof Date) {
+                ps.setDate(index, (Date) p);
+            } else if (p instanceof byte[]) {
+                ps.setBytes(index, (byte[]) p);
+            } else {
+                throw new IllegalArgumentException("不支持的参数类型（第" + index + "个）：" + p.getClass().getName());
+            }
+        }
+    }
+
+    private static void checkConnection(Connection con) throws SQLException {
+        if (con == null) {
+            throw new SQLException("数据库连接不能为null");
+        }
+    }
+}
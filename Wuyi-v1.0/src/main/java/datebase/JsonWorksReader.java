@@ -0,0 +1,184 @@
+package datebase;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON 格式的商品导入文件：顶层为对象数组，对象的值只能是字符串、数字、true/false 或 null
+ * 逐个对象解析，不构建整棵 JSON 树。
+ */
+class JsonWorksReader extends WorksImportReader {
+
+    // 0 未读到 '['；1 数组内；2 数组已结束
+    private int state;
+    // 回退的一个字符（-2 表示没有）
+    private int pushedBack = -2;
+
+    JsonWorksReader(Reader in) {
+        super(in);
+    }
+
+    @Override
+    protected Map<String, String> readRecord() throws IOException {
+        if (state == 0) {
+            expect('[');
+            state = 1;
+            int c = skipSpace();
+            if (c == ']') {
+                state = 2;
+                return null;
+            }
+            unread(c);
+        } else if (state == 1) {
+            int c = skipSpace();
+            if (c == ']') {
+                state = 2;
+                return null;
+            }
+            if (c != ',') {
+                throw error("商品对象之间缺少逗号", c);
+            }
+        } else {
+            return null;
+        }
+        expect('{');
+        Map<String, String> fields = new HashMap<>();
+        int c = skipSpace();
+        if (c == '}') {
+            return fields;
+        }
+        unread(c);
+        while (true) {
+            expect('"');
+            String name = readString();
+            expect(':');
+            fields.put(name.toLowerCase(), readValue());
+            c = skipSpace();
+            if (c == '}') {
+                return fields;
+            }
+            if (c != ',') {
+                throw error("字段之间缺少逗号", c);
+            }
+        }
+    }
+
+    private String readValue() throws IOException {
+        int c = skipSpace();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            throw new IllegalArgumentException("JSON 导入文件中商品字段不支持嵌套对象或数组");
+        }
+        StringBuilder sb = new StringBuilder();
+        while (c != -1 && c != ',' && c != '}' && !Character.isWhitespace(c)) {
+            sb.append((char) c);
+            c = read0();
+        }
+        unread(c);
+        String literal = sb.toString();
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (literal.isEmpty() || !literal.matches("true|false|-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+            throw new IllegalArgumentException("JSON 导入文件中有无法识别的值：" + literal);
+        }
+        return literal;
+    }
+
+    /**
+     * 读取字符串（开头的引号已读取）
+     */
+    private String readString() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = read0();
+            if (c == -1) {
+                throw new IllegalArgumentException("JSON 导入文件中有未闭合的字符串");
+            }
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append((char) c);
+                continue;
+            }
+            int e = read0();
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append((char) e);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    char[] hex = new char[4];
+                    for (int i = 0; i < 4; i++) {
+                        int h = read0();
+                        if (h == -1) {
+                            throw new IllegalArgumentException("JSON 导入文件中有不完整的 \\u 转义");
+                        }
+                        hex[i] = (char) h;
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(new String(hex), 16));
+                    } catch (NumberFormatException ex) {
+                        throw new IllegalArgumentException("JSON 导入文件中有错误的 \\u 转义：" + new String(hex));
+                    }
+                    break;
+                default:
+                    throw error("字符串中有错误的转义", e);
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = skipSpace();
+        if (c != expected) {
+            throw error("此处应为 '" + expected + "'", c);
+        }
+    }
+
+    private int skipSpace() throws IOException {
+        int c = read0();
+        while (c != -1 && Character.isWhitespace(c)) {
+            c = read0();
+        }
+        return c;
+    }
+
+    private int read0() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    private static IllegalArgumentException error(String message, int found) {
+        return new IllegalArgumentException("JSON 导入文件格式错误：" + message + "，实际为"
+                + (found == -1 ? "文件结尾" : "'" + (char) found + "'"));
+    }
+}
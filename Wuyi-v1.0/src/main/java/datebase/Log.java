@@ -0,0 +1,187 @@
+package datebase;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分级异步日志：调用线程只判断级别、拼接消息并放入有界队列，写控制台由后台守护线程批量完成，
+ * 请求线程不再因为 System.out 的同步锁和终端 IO 被阻塞。
+ * 消息中的 {} 依次替换为参数，最后一个参数是 Throwable 时输出其堆栈；级别未开启时不做任何拼接。
+ * 队列满时丢弃新日志并计数（见 /metrics 的 wuyi_log_dropped_total），不让日志反过来拖慢请求。
+ * 级别由 db.properties 的 log.level 配置，应用启动时由 DbPoolListener 设置，默认 INFO。
+ * 用法：private static final Log LOG = Log.get(Xxx.class);
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int DRAIN_BATCH = 256;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private static final BlockingQueue<Entry> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final Object WRITE_LOCK = new Object();
+    private static volatile Level threshold = Level.INFO;
+
+    static {
+        Thread writer = new Thread(Log::drainForever, "wuyi-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    public static Log get(Class<?> type) {
+        return new Log(type.getSimpleName());
+    }
+
+    /** 没有对应类的场合（如 JSP）按名称取日志 */
+    public static Log get(String name) {
+        return new Log(name);
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    public static Level getLevel() {
+        return threshold;
+    }
+
+    /** 因队列已满被丢弃的日志条数 */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * 在调用线程中写完队列里剩余的日志；应用停止时调用，避免守护线程随 JVM 退出丢掉最后几条
+     */
+    public static void flush() {
+        List<Entry> batch = new ArrayList<>();
+        QUEUE.drainTo(batch);
+        write(batch);
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message, Object... args) {
+        log(Level.DEBUG, message, args);
+    }
+
+    public void info(String message, Object... args) {
+        log(Level.INFO, message, args);
+    }
+
+    public void warn(String message, Object... args) {
+        log(Level.WARN, message, args);
+    }
+
+    public void error(String message, Object... args) {
+        log(Level.ERROR, message, args);
+    }
+
+    private static boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    private void log(Level level, String message, Object[] args) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        Throwable error = args.length > 0 && args[args.length - 1] instanceof Throwable
+                ? (Throwable) args[args.length - 1] : null;
+        // 参数可能是可变对象，必须在调用线程里格式化
+        Entry entry = new Entry(System.currentTimeMillis(), level, name, Thread.currentThread().getName(),
+                format(message, args), error);
+        if (!QUEUE.offer(entry)) {
+            DROPPED.increment();
+        }
+    }
+
+    /**
+     * 依次用参数替换消息中的 {}；多余的参数忽略（作为堆栈输出的 Throwable 除外）
+     */
+    static String format(String message, Object... args) {
+        if (args.length == 0 || message.indexOf("{}") < 0) {
+            return message;
+        }
+        StringBuilder sb = new StringBuilder(message.length() + 32);
+        int from = 0;
+        int arg = 0;
+        int at;
+        while (arg < args.length && (at = message.indexOf("{}", from)) >= 0) {
+            sb.append(message, from, at).append(args[arg++]);
+            from = at + 2;
+        }
+        return sb.append(message, from, message.length()).toString();
+    }
+
+    private static void drainForever() {
+        List<Entry> batch = new ArrayList<>(DRAIN_BATCH);
+        while (true) {
+            try {
+                batch.add(QUEUE.take());
+                QUEUE.drainTo(batch, DRAIN_BATCH - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // 写日志失败不能让写线程退出
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void write(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        synchronized (WRITE_LOCK) {
+            for (Entry entry : batch) {
+                PrintStream out = entry.level.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+                out.println(TIME.format(Instant.ofEpochMilli(entry.timestamp)) + ' '
+                        + String.format("%-5s", entry.level) + " [" + entry.thread + "] "
+                        + entry.logger + " - " + entry.message);
+                if (entry.error != null) {
+                    entry.error.printStackTrace(out);
+                }
+            }
+            System.out.flush();
+            System.err.flush();
+        }
+    }
+
+    private static final class Entry {
+        final long timestamp;
+        final Level level;
+        final String logger;
+        final String thread;
+        final String message;
+        final Throwable error;
+
+        Entry(long timestamp, Level level, String logger, String thread, String message, Throwable error) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.thread = thread;
+            this.message = message;
+            this.error = error;
+        }
+    }
+}
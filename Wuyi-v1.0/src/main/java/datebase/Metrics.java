@@ -0,0 +1,277 @@
+package datebase;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 热点路径指标：Servlet 请求耗时与出错次数、DAO 方法耗时 / 行数 / 出错次数、连接池借连接等待时间。
+ * 计数用 LongAdder，多线程同时记录时不争抢同一个缓存行；直方图用固定的桶（秒），导出时再累加成 Prometheus 的 le 语义。
+ * 由 MetricsServlet 以 Prometheus 文本格式导出，同时附带连接池（PoolStats）、商品目录缓存（CacheStats）与日志丢弃数。
+ */
+public final class Metrics {
+
+    /** 直方图桶上界（秒）：覆盖缓存命中的亚毫秒到慢查询的数秒 */
+    static final double[] BUCKETS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+    private static final String[] BUCKET_LABELS = new String[BUCKETS.length + 1];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            BUCKET_LABELS[i] = BigDecimal.valueOf(BUCKETS[i]).stripTrailingZeros().toPlainString();
+        }
+        BUCKET_LABELS[BUCKETS.length] = "+Inf";
+    }
+
+    /** 每个指标最多记录的标签值个数，超出的并入 other，防止异常的请求路径把内存撑大 */
+    static final int MAX_LABEL_VALUES = 200;
+    static final String OTHER = "other";
+
+    private static final Family<Histogram> HTTP_DURATION = new Family<>("wuyi_http_request_duration_seconds",
+            "Servlet 请求处理耗时", "servlet", "histogram", Histogram::new);
+    private static final Family<LongAdder> HTTP_ERRORS = new Family<>("wuyi_http_request_errors_total",
+            "Servlet 请求出错次数（抛出异常或状态码 >= 500）", "servlet", "counter", LongAdder::new);
+    private static final Family<Histogram> DAO_DURATION = new Family<>("wuyi_dao_duration_seconds",
+            "DAO 方法耗时（含借连接、缓存命中直接返回的情况）", "method", "histogram", Histogram::new);
+    private static final Family<LongAdder> DAO_ROWS = new Family<>("wuyi_dao_rows_total",
+            "DAO 方法返回或影响的行数", "method", "counter", LongAdder::new);
+    private static final Family<LongAdder> DAO_ERRORS = new Family<>("wuyi_dao_errors_total",
+            "DAO 方法抛出异常的次数", "method", "counter", LongAdder::new);
+    private static final Histogram CONNECTION_ACQUIRE = new Histogram();
+    /** 其他组件登记的取值函数（按指标名排序输出） */
+    private static final ConcurrentMap<String, Sampled> SAMPLED = new ConcurrentSkipListMap<>();
+
+    /** 默认行数：集合取大小，null 为 0，其余按 1 行计 */
+    private static final ToLongFunction<Object> DEFAULT_ROWS = result -> result == null ? 0
+            : result instanceof Collection ? ((Collection<?>) result).size() : 1;
+
+    private Metrics() {
+    }
+
+    /**
+     * 可能抛出 SQLException 的 DAO 调用
+     */
+    @FunctionalInterface
+    public interface DaoCall<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * 执行并记录一次 DAO 方法调用；行数按返回值计算（集合取大小，null 为 0，其余为 1）
+     * @param method 指标标签，格式为 类名.方法名
+     */
+    public static <T> T dao(String method, DaoCall<T> call) throws SQLException {
+        return dao(method, DEFAULT_ROWS, call);
+    }
+
+    /**
+     * 同上，行数由 rows 从返回值中取出，如批量插入的行数、更新影响的行数
+     */
+    public static <T> T dao(String method, ToLongFunction<? super T> rows, DaoCall<T> call) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            DAO_ROWS.get(method).add(rows.applyAsLong(result));
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            DAO_ERRORS.get(method).increment();
+            throw e;
+        } finally {
+            DAO_DURATION.get(method).observe(System.nanoTime() - start);
+        }
+    }
+
+    public static void recordRequest(String servlet, long elapsedNanos, boolean failed) {
+        HTTP_DURATION.get(servlet).observe(elapsedNanos);
+        if (failed) {
+            HTTP_ERRORS.get(servlet).increment();
+        }
+    }
+
+    public static void recordConnectionAcquire(long elapsedNanos) {
+        CONNECTION_ACQUIRE.observe(elapsedNanos);
+    }
+
+    /**
+     * 登记一个导出时才取值的 gauge；同名再次登记会替换之前的取值函数
+     */
+    public static void registerGauge(String name, String help, LongSupplier value) {
+        SAMPLED.put(name, new Sampled(help, "gauge", value));
+    }
+
+    /**
+     * 登记一个导出时才取值的计数器（value 需单调递增）
+     */
+    public static void registerCounter(String name, String help, LongSupplier value) {
+        SAMPLED.put(name, new Sampled(help, "counter", value));
+    }
+
+    /**
+     * 以 Prometheus 文本格式（0.0.4）写出全部指标
+     */
+    public static void writePrometheus(Appendable out) throws IOException {
+        HTTP_DURATION.write(out);
+        HTTP_ERRORS.write(out);
+        DAO_DURATION.write(out);
+        DAO_ROWS.write(out);
+        DAO_ERRORS.write(out);
+        header(out, "wuyi_db_connection_acquire_seconds", "从连接池借出连接的等待时间", "histogram");
+        CONNECTION_ACQUIRE.write(out, "wuyi_db_connection_acquire_seconds", "");
+
+        PoolStats pool = DbUtil.getPoolStats();
+        if (pool != null) {
+            gauge(out, "wuyi_db_pool_connections_active", "已借出的连接数", pool.getActiveConnections());
+            gauge(out, "wuyi_db_pool_connections_idle", "空闲连接数", pool.getIdleConnections());
+            gauge(out, "wuyi_db_pool_threads_awaiting", "正在等待连接的线程数", pool.getThreadsAwaiting());
+            counter(out, "wuyi_db_pool_acquired_total", "借出连接次数", pool.getAcquiredCount());
+            counter(out, "wuyi_db_pool_created_total", "新建物理连接次数", pool.getCreatedCount());
+            counter(out, "wuyi_db_pool_destroyed_total", "关闭物理连接次数", pool.getDestroyedCount());
+            counter(out, "wuyi_db_pool_timeouts_total", "借连接超时次数", pool.getTimeoutCount());
+            counter(out, "wuyi_db_pool_validation_failures_total", "空闲连接校验失败次数", pool.getValidationFailureCount());
+            counter(out, "wuyi_db_pool_leaks_total", "疑似连接泄漏次数", pool.getLeakCount());
+            counter(out, "wuyi_db_statement_cache_hits_total", "预编译语句缓存命中次数", pool.getStatementCacheHits());
+            counter(out, "wuyi_db_statement_cache_misses_total", "预编译语句缓存未命中次数", pool.getStatementCacheMisses());
+        }
+
+        CacheStats cache = WorksCache.shared().getStats();
+        gauge(out, "wuyi_works_cache_size", "商品目录缓存条目数", cache.getSize());
+        gauge(out, "wuyi_works_cache_max_size", "商品目录缓存容量", cache.getMaxSize());
+        counter(out, "wuyi_works_cache_hits_total", "商品目录缓存命中次数", cache.getHitCount());
+        counter(out, "wuyi_works_cache_misses_total", "商品目录缓存未命中次数", cache.getMissCount());
+        counter(out, "wuyi_works_cache_loads_total", "商品目录缓存回源次数", cache.getLoadCount());
+        counter(out, "wuyi_works_cache_evictions_total", "商品目录缓存淘汰次数", cache.getEvictionCount());
+        counter(out, "wuyi_works_cache_invalidations_total", "商品目录缓存失效次数", cache.getInvalidationCount());
+
+        counter(out, "wuyi_log_dropped_total", "日志队列已满被丢弃的条数", Log.getDroppedCount());
+
+        for (Map.Entry<String, Sampled> e : SAMPLED.entrySet()) {
+            Sampled sampled = e.getValue();
+            header(out, e.getKey(), sampled.help, sampled.type);
+            out.append(e.getKey()).append(' ').append(Long.toString(sampled.value.getAsLong())).append('\n');
+        }
+    }
+
+    private static void header(Appendable out, String name, String help, String type) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(Appendable out, String name, String help, long value) throws IOException {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(Long.toString(value)).append('\n');
+    }
+
+    private static void counter(Appendable out, String name, String help, long value) throws IOException {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(Long.toString(value)).append('\n');
+    }
+
+    static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Sampled {
+        final String help;
+        final String type;
+        final LongSupplier value;
+
+        Sampled(String help, String type, LongSupplier value) {
+            this.help = help;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 同名、按一个标签区分的一组指标
+     */
+    private static final class Family<M> {
+        private final String name;
+        private final String help;
+        private final String label;
+        private final String type;
+        private final Supplier<M> factory;
+        private final ConcurrentMap<String, M> children = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String label, String type, Supplier<M> factory) {
+            this.name = name;
+            this.help = help;
+            this.label = label;
+            this.type = type;
+            this.factory = factory;
+        }
+
+        M get(String value) {
+            M metric = children.get(value);
+            if (metric != null) {
+                return metric;
+            }
+            if (children.size() >= MAX_LABEL_VALUES) {
+                value = OTHER;
+            }
+            return children.computeIfAbsent(value, v -> factory.get());
+        }
+
+        void write(Appendable out) throws IOException {
+            header(out, name, help, type);
+            // 按标签排序输出，便于对比两次抓取
+            for (Map.Entry<String, M> child : new TreeMap<>(children).entrySet()) {
+                String labels = label + "=\"" + escapeLabel(child.getKey()) + "\"";
+                if (child.getValue() instanceof Histogram) {
+                    ((Histogram) child.getValue()).write(out, name, labels);
+                } else {
+                    out.append(name).append('{').append(labels).append("} ")
+                            .append(Long.toString(((LongAdder) child.getValue()).sum())).append('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * 固定桶直方图；各桶只记录落在本区间的次数，导出时累加，_count 取 +Inf 桶的累计值
+     */
+    static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observe(long elapsedNanos) {
+            double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+            int i = 0;
+            while (i < BUCKETS.length && seconds > BUCKETS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sum.add(seconds);
+        }
+
+        void write(Appendable out, String name, String labels) throws IOException {
+            String prefix = labels.isEmpty() ? "{" : "{" + labels + ",";
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append(name).append("_bucket").append(prefix).append("le=\"").append(BUCKET_LABELS[i]).append("\"} ")
+                        .append(Long.toString(cumulative)).append('\n');
+            }
+            String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+            out.append(name).append("_sum").append(suffix).append(' ').append(Double.toString(sum.sum())).append('\n');
+            out.append(name).append("_count").append(suffix).append(' ').append(Long.toString(cumulative)).append('\n');
+        }
+    }
+}
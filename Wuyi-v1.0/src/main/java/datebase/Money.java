@@ -0,0 +1,121 @@
+package datebase;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额（人民币，精确到分）
+ * 内部以 long 保存分，加减与比较都是整数运算，不经过 double，也不在汇总时反复解析字符串；
+ * 与数据库之间按 DECIMAL(18,2) 读写（见 V4 迁移）。不可变，可在缓存和多个线程之间共享。
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * 由 DECIMAL 列的值构造；null 按 0 计
+     * @throws ArithmeticException 超过两位小数或超出范围
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return ZERO;
+        }
+        return ofCents(amount.movePointRight(2).longValueExact());
+    }
+
+    /**
+     * 解析用户输入或导入文件中的金额，如 "128"、"88.5"、"99.99"
+     * @throws IllegalArgumentException 为空、不是数字或超过两位小数
+     */
+    public static Money parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("金额不能为空");
+        }
+        try {
+            return of(new BigDecimal(text.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("金额格式不正确：" + text);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("金额最多保留两位小数：" + text);
+        }
+    }
+
+    /**
+     * 解析商品价格：规则同 parse，另外不允许为负数
+     * @throws IllegalArgumentException 为空、不是数字、超过两位小数或小于 0
+     */
+    public static Money parsePrice(String text) {
+        Money price = parse(text);
+        if (price.signum() < 0) {
+            throw new IllegalArgumentException("价格不能为负数：" + text);
+        }
+        return price;
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    /**
+     * 带货币符号，保留两位小数，如 ¥99.99
+     */
+    public String format() {
+        return "¥" + toString();
+    }
+
+    /**
+     * 带货币符号，四舍五入到元，如 ¥10000
+     */
+    public String formatYuan() {
+        return "¥" + toBigDecimal().setScale(0, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    /**
+     * 两位小数的数字文本，如 128.00；页面回显与表单提交都使用此格式
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
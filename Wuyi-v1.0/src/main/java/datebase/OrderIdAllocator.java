@@ -0,0 +1,139 @@
+package datebase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * 订单号分配（hi/lo 号段）
+ * 每次从 IdBlock 表原子地预留 blockSize 个编号（一条 UPDATE ... OUTPUT），段内编号用 AtomicLong 在内存中分配，
+ * 不加锁、不访问数据库；号段用完时才由一个线程去预留下一段。
+ * 应用重启会丢弃当前段内未用完的编号（订单号可能不连续，但不会重复）。
+ */
+public class OrderIdAllocator {
+    /** 订单号前缀 */
+    public static final String PREFIX = "DD";
+    /** 订单号数字部分上限（DD + 5位数字，见 Buyer.setOrder_id） */
+    public static final long MAX_VALUE = 99999;
+
+    /**
+     * 号段来源：预留 size 个编号，返回号段的第一个编号
+     */
+    @FunctionalInterface
+    public interface BlockSource {
+        long reserve(int size) throws SQLException;
+    }
+
+    private static volatile OrderIdAllocator shared;
+
+    private final BlockSource source;
+    private final int blockSize;
+    private volatile Block current = new Block(0, 0);
+
+    public OrderIdAllocator(BlockSource source, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("号段大小必须大于0");
+        }
+        this.source = source;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * 全局共享实例：号段来自 IdBlock 表中的 'order' 行，号段大小取自 AppConfig 中的 id.order.blockSize
+     * （未经 init 时按 AppConfig.get() 创建）
+     */
+    public static OrderIdAllocator shared() {
+        OrderIdAllocator a = shared;
+        if (a == null) {
+            synchronized (OrderIdAllocator.class) {
+                a = shared;
+                if (a == null) {
+                    a = new OrderIdAllocator(tableSource(DbUtil.getDataSource(), "order"),
+                            AppConfig.get().getOrderIdBlockSize());
+                    shared = a;
+                }
+            }
+        }
+        return a;
+    }
+
+    /**
+     * 应用启动时调用：按启动时加载的配置创建共享实例
+     */
+    public static synchronized void init(AppConfig config) {
+        shared = new OrderIdAllocator(tableSource(DbUtil.getDataSource(), "order"), config.getOrderIdBlockSize());
+    }
+
+    /**
+     * 基于 IdBlock 表的号段来源
+     * 使用独立的自动提交连接（不加入当前 UnitOfWork），预订事务回滚也不会让号段被重复发放
+     */
+    public static BlockSource tableSource(DataSource dataSource, String name) {
+        return size -> {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "UPDATE IdBlock SET next_value = next_value + ? OUTPUT deleted.next_value WHERE name = ?")) {
+                ps.setInt(1, size);
+                ps.setString(2, name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("IdBlock 中没有号段：" + name);
+                    }
+                    return rs.getLong(1);
+                }
+            }
+        };
+    }
+
+    /**
+     * 分配下一个订单号，格式 DD00001
+     */
+    public String nextOrderId() throws SQLException {
+        return format(nextValue());
+    }
+
+    /**
+     * 分配下一个编号
+     */
+    public long nextValue() throws SQLException {
+        while (true) {
+            Block b = current;
+            long v = b.next.getAndIncrement();
+            if (v < b.end) {
+                return v;
+            }
+            synchronized (this) {
+                if (current == b) {
+                    long start = source.reserve(blockSize);
+                    current = new Block(start, start + blockSize);
+                }
+            }
+        }
+    }
+
+    static String format(long value) throws SQLException {
+        if (value < 1 || value > MAX_VALUE) {
+            throw new SQLException("订单编号已超出 " + PREFIX + "00001~" + PREFIX + MAX_VALUE + " 的范围：" + value);
+        }
+        String digits = Long.toString(value);
+        StringBuilder sb = new StringBuilder(PREFIX.length() + 5).append(PREFIX);
+        for (int i = digits.length(); i < 5; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
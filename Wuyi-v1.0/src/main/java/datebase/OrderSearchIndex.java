@@ -0,0 +1,427 @@
+package datebase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 历史订单搜索的进程内倒排索引，替代 "r.order_id LIKE '%关键字%' OR w.work_name LIKE '%关键字%'" 的全表扫描
+ * 商品名称按单字和相邻两字（1-gram、2-gram）切分，中文无需分词；订单号只按 2-gram 切分（单个字符几乎命中所有订单）。
+ * 查询时取关键字各 gram 的倒排表中最短的一个，逐个校验是否真正包含关键字，得到候选订单号与商品号，
+ * 由 HistoryProductsServlet 改写为 IN 条件走索引查找。
+ *
+ * 索引只需是数据库的"超集"：调用方在 SQL 中仍会校验商品名称，因此改名前的旧名称、已回滚的写入留在索引里不影响结果，
+ * 只有漏掉的数据才会导致搜不到。为此：
+ * 1) 启动时在后台全量构建，构建完成前 isReady() 为 false，调用方继续使用 LIKE
+ * 2) 之后随 WorksDaoIplm.insert/update/insertBatch、预订写入 Reservation、取消订单增量更新（写入在提交前登记，宁多勿少）
+ * 3) 每隔 search.index.rebuildMinutes 分钟全量重建一次，纠正其他实例写入或直接改库造成的遗漏
+ */
+public final class OrderSearchIndex {
+
+    private static final Log LOG = Log.get(OrderSearchIndex.class);
+
+    private static final int LOAD_FETCH_SIZE = 5000;
+
+    private static volatile OrderSearchIndex shared;
+    private static ScheduledExecutorService rebuilder;
+
+    /**
+     * 一次搜索的候选结果；某一类候选超过上限时为 null，调用方对该部分退回 LIKE
+     */
+    public static final class Match {
+        private final List<String> orderIds;
+        private final List<Integer> workIds;
+
+        Match(List<String> orderIds, List<Integer> workIds) {
+            this.orderIds = orderIds;
+            this.workIds = workIds;
+        }
+
+        /** 订单号包含关键字的订单 */
+        public List<String> getOrderIds() {
+            return orderIds;
+        }
+
+        /** 名称（当前或曾用名）包含关键字的商品 */
+        public List<Integer> getWorkIds() {
+            return workIds;
+        }
+    }
+
+    /** 一份完整的索引数据；全量重建时新建一份，构建完成后整体替换 */
+    private static final class Postings {
+        // gram → 订单号
+        final Map<String, Set<String>> orderGrams = new ConcurrentHashMap<>();
+        // gram → 商品号
+        final Map<String, Set<Integer>> workGrams = new ConcurrentHashMap<>();
+        // 商品号 → 名称（改名后新旧名称都保留，直到下次全量重建）
+        final Map<Integer, Set<String>> workNames = new ConcurrentHashMap<>();
+        // 商品号 → 该商品的订单号
+        final Map<Integer, Set<String>> ordersByWork = new ConcurrentHashMap<>();
+        // 订单号 → 商品号
+        final Map<String, Integer> orders = new ConcurrentHashMap<>();
+
+        void putWork(int workId, String name) {
+            if (name == null || name.isEmpty()) {
+                return;
+            }
+            workNames.computeIfAbsent(workId, k -> ConcurrentHashMap.newKeySet()).add(name);
+            for (String gram : grams(name, true)) {
+                workGrams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(workId);
+            }
+        }
+
+        void putOrder(String orderId, int workId) {
+            Integer previous = orders.put(orderId, workId);
+            if (previous != null && previous != workId) {
+                Set<String> old = ordersByWork.get(previous);
+                if (old != null) {
+                    old.remove(orderId);
+                }
+            }
+            ordersByWork.computeIfAbsent(workId, k -> ConcurrentHashMap.newKeySet()).add(orderId);
+            if (previous == null) {
+                for (String gram : grams(orderId, false)) {
+                    orderGrams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(orderId);
+                }
+            }
+        }
+
+        void removeOrder(String orderId) {
+            Integer workId = orders.remove(orderId);
+            if (workId == null) {
+                return;
+            }
+            Set<String> byWork = ordersByWork.get(workId);
+            if (byWork != null) {
+                byWork.remove(orderId);
+            }
+            for (String gram : grams(orderId, false)) {
+                Set<String> posting = orderGrams.get(gram);
+                if (posting != null) {
+                    posting.remove(orderId);
+                }
+            }
+        }
+    }
+
+    private volatile Postings current = new Postings();
+    // 全量重建进行中时的新索引；期间的增量写入同时登记到这里，避免被重建结果覆盖
+    private volatile Postings building;
+    private volatile boolean ready;
+    private volatile long lastBuildMillis;
+
+    /**
+     * 全局共享实例
+     */
+    public static OrderSearchIndex shared() {
+        OrderSearchIndex i = shared;
+        if (i == null) {
+            synchronized (OrderSearchIndex.class) {
+                i = shared;
+                if (i == null) {
+                    i = new OrderSearchIndex();
+                    OrderSearchIndex index = i;
+                    Metrics.registerGauge("wuyi_search_index_ready", "订单搜索索引是否已构建完成（1 为可用）",
+                            () -> index.isReady() ? 1 : 0);
+                    Metrics.registerGauge("wuyi_search_index_orders", "订单搜索索引中的订单数", index::orderCount);
+                    Metrics.registerGauge("wuyi_search_index_works", "订单搜索索引中的商品数", index::workCount);
+                    Metrics.registerGauge("wuyi_search_index_build_milliseconds", "最近一次全量构建耗时（毫秒）",
+                            () -> index.lastBuildMillis);
+                    shared = i;
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 应用启动时调用：在后台线程中构建共享索引，并按配置定期重建；未启用时什么也不做（搜索继续使用 LIKE）
+     */
+    public static synchronized void start(AppConfig config) {
+        if (!config.isSearchIndexEnabled() || rebuilder != null) {
+            return;
+        }
+        OrderSearchIndex index = shared();
+        rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wuyi-search-index");
+            t.setDaemon(true);
+            return t;
+        });
+        Runnable task = () -> {
+            try (Connection con = DbUtil.getCon()) {
+                index.rebuild(con);
+            } catch (SQLException | RuntimeException e) {
+                LOG.error("构建订单搜索索引失败：{}", e.getMessage(), e);
+            }
+        };
+        int minutes = config.getSearchIndexRebuildMinutes();
+        if (minutes > 0) {
+            rebuilder.scheduleWithFixedDelay(task, 0, minutes, TimeUnit.MINUTES);
+        } else {
+            rebuilder.execute(task);
+        }
+    }
+
+    /**
+     * 应用停止时调用：停止后台重建
+     */
+    public static synchronized void shutdown() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+            rebuilder = null;
+        }
+    }
+
+    /**
+     * 是否已完成首次全量构建；为 false 时调用方应直接使用 LIKE 查询
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 索引是否在维护中（已构建或正在构建）；未启用时增量登记都会被忽略，调用方可据此省去准备工作
+     */
+    public boolean isTracking() {
+        return ready || building != null;
+    }
+
+    public long orderCount() {
+        return current.orders.size();
+    }
+
+    public long workCount() {
+        return current.workNames.size();
+    }
+
+    /**
+     * 从数据库全量构建索引，完成后替换当前索引
+     * @return 索引中的订单数
+     */
+    public synchronized int rebuild(Connection con) throws SQLException {
+        long start = System.nanoTime();
+        Postings next = new Postings();
+        building = next;
+        try {
+            int orders = Metrics.dao("OrderSearchIndex.rebuild", n -> n, () -> {
+                try (PreparedStatement ps = con.prepareStatement("SELECT work_id, work_name FROM Works")) {
+                    ps.setFetchSize(LOAD_FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            next.putWork(rs.getInt(1), rs.getString(2));
+                        }
+                    }
+                }
+                int n = 0;
+                try (PreparedStatement ps = con.prepareStatement("SELECT order_id, work_id FROM Reservation")) {
+                    ps.setFetchSize(LOAD_FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            next.putOrder(rs.getString(1), rs.getInt(2));
+                            n++;
+                        }
+                    }
+                }
+                return n;
+            });
+            current = next;
+            ready = true;
+            lastBuildMillis = (System.nanoTime() - start) / 1_000_000;
+            LOG.info("订单搜索索引构建完成：{} 个商品，{} 个订单，耗时 {}ms", next.workNames.size(), orders, lastBuildMillis);
+            return orders;
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * 新增或修改商品后登记名称（改名时旧名称仍保留到下次重建）
+     */
+    public void putWork(int workId, String name) {
+        Postings b = building;
+        if (b != null) {
+            b.putWork(workId, name);
+        }
+        if (ready) {
+            current.putWork(workId, name);
+        }
+    }
+
+    /**
+     * 批量新增商品后登记 work_id 大于 afterWorkId 的商品（批量插入拿不到每行的自增主键）
+     */
+    public void loadWorksAfter(Connection con, int afterWorkId) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT work_id, work_name FROM Works WHERE work_id > ?")) {
+            ps.setInt(1, afterWorkId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    putWork(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入 Reservation 后登记订单
+     */
+    public void putOrder(String orderId, int workId) {
+        Postings b = building;
+        if (b != null) {
+            b.putOrder(orderId, workId);
+        }
+        if (ready) {
+            current.putOrder(orderId, workId);
+        }
+    }
+
+    /**
+     * 删除 Reservation 后移除订单
+     */
+    public void removeOrder(String orderId) {
+        Postings b = building;
+        if (b != null) {
+            b.removeOrder(orderId);
+        }
+        if (ready) {
+            current.removeOrder(orderId);
+        }
+    }
+
+    /**
+     * 查找订单号或商品名称包含关键字（不区分大小写）的候选
+     * @param limit 每类候选的上限，超过时该类返回 null（IN 列表过长不如直接 LIKE）
+     */
+    public Match match(String keyword, int limit) {
+        String q = keyword.trim();
+        Postings p = current;
+        List<String> orderIds = null;
+        // 单个字符的订单号搜索几乎命中全部订单，直接交给 LIKE
+        if (q.length() >= 2) {
+            orderIds = new ArrayList<>();
+            for (String orderId : candidates(p.orderGrams, q)) {
+                if (containsIgnoreCase(orderId, q)) {
+                    if (orderIds.size() == limit) {
+                        orderIds = null;
+                        break;
+                    }
+                    orderIds.add(orderId);
+                }
+            }
+        }
+        List<Integer> workIds = new ArrayList<>();
+        for (Integer workId : candidates(p.workGrams, q)) {
+            if (nameContains(p, workId, q)) {
+                if (workIds.size() == limit) {
+                    workIds = null;
+                    break;
+                }
+                workIds.add(workId);
+            }
+        }
+        return new Match(orderIds, workIds);
+    }
+
+    /**
+     * 订单号或所购商品名称包含关键字的全部订单号
+     */
+    public Set<String> searchOrderIds(String keyword) {
+        String q = keyword.trim();
+        Postings p = current;
+        Set<String> result = new LinkedHashSet<>();
+        if (q.length() >= 2) {
+            for (String orderId : candidates(p.orderGrams, q)) {
+                if (containsIgnoreCase(orderId, q)) {
+                    result.add(orderId);
+                }
+            }
+        } else {
+            for (String orderId : p.orders.keySet()) {
+                if (containsIgnoreCase(orderId, q)) {
+                    result.add(orderId);
+                }
+            }
+        }
+        for (Integer workId : candidates(p.workGrams, q)) {
+            if (nameContains(p, workId, q)) {
+                result.addAll(p.ordersByWork.getOrDefault(workId, Collections.emptySet()));
+            }
+        }
+        return result;
+    }
+
+    private static boolean nameContains(Postings p, Integer workId, String q) {
+        for (String name : p.workNames.getOrDefault(workId, Collections.emptySet())) {
+            if (containsIgnoreCase(name, q)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 关键字各 gram 的倒排表中最短的一个（每个真正的匹配都一定在其中）；任一 gram 不存在时为空
+     */
+    private static <K> Set<K> candidates(Map<String, Set<K>> index, String q) {
+        Set<K> best = null;
+        for (String gram : queryGrams(q)) {
+            Set<K> posting = index.get(gram);
+            if (posting == null) {
+                return Collections.emptySet();
+            }
+            if (best == null || posting.size() < best.size()) {
+                best = posting;
+            }
+        }
+        return best == null ? Collections.emptySet() : best;
+    }
+
+    /**
+     * 文本切分为 2-gram（withUnigrams 时再加上单字），统一转为小写
+     */
+    static Set<String> grams(String text, boolean withUnigrams) {
+        String s = text.toLowerCase();
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i < s.length(); i++) {
+            if (withUnigrams) {
+                grams.add(s.substring(i, i + 1));
+            }
+            if (i + 1 < s.length()) {
+                grams.add(s.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 查询关键字的 gram：单字时就是它本身，否则为全部 2-gram
+     */
+    static Set<String> queryGrams(String q) {
+        if (q.length() == 1) {
+            return Collections.singleton(q.toLowerCase());
+        }
+        return grams(q, false);
+    }
+
+    private static boolean containsIgnoreCase(String text, String q) {
+        int max = text.length() - q.length();
+        for (int i = 0; i <= max; i++) {
+            if (text.regionMatches(true, i, q, 0, q.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
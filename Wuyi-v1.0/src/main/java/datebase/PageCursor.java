@@ -0,0 +1,63 @@
+package datebase;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 历史订单列表的分页游标（keyset / seek 分页）
+ * 记录一页边界行的排序键 (trading_at, order_id)，对外以不透明的 URL 安全字符串传递。
+ */
+public class PageCursor {
+    private static final char SEPARATOR = '\u0001';
+
+    private final LocalDateTime tradingTime;
+    private final String orderId;
+
+    public PageCursor(LocalDateTime tradingTime, String orderId) {
+        this.tradingTime = tradingTime;
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getTradingTime() {
+        return tradingTime;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * 编码为不透明令牌；边界行没有 trading_at（旧数据未能回填）时时间部分为空，定位到 NULL 行之间
+     */
+    public String encode() {
+        String raw = (tradingTime == null ? "" : tradingTime.toString()) + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析令牌；为空或格式不正确时返回 null（调用方回退到普通分页）
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int idx = raw.indexOf(SEPARATOR);
+            if (idx < 0 || idx == raw.length() - 1) {
+                return null;
+            }
+            LocalDateTime time = idx == 0 ? null : LocalDateTime.parse(raw.substring(0, idx));
+            return new PageCursor(time, raw.substring(idx + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor [tradingTime=" + tradingTime + ", orderId=" + orderId + "]";
+    }
+}
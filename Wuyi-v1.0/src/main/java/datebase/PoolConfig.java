@@ -0,0 +1,204 @@
+package datebase;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+/**
+ * 连接池配置：数据库连接信息、连接池参数与工作单元的事务隔离级别
+ * 作为 AppConfig 的一部分从 db.properties 读取（见 AppConfig.load）
+ */
+public class PoolConfig {
+
+    private String driver = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
+    private String url = "jdbc:sqlserver://localhost:1433;databaseName=Wuyi;encrypt=true;trustServerCertificate=true";
+    private String user = "sa";
+    private String password = "ye041017";
+    // 连接池保持的最少空闲连接数
+    private int minSize = 2;
+    // 连接池允许的最大连接数（空闲 + 借出）
+    private int maxSize = 10;
+    // 借连接时的最长等待时间（毫秒），超时抛 SQLTimeoutException
+    private long acquireTimeoutMs = 5000;
+    // Connection.isValid 校验超时（秒）
+    private int validationTimeoutSeconds = 2;
+    // 空闲超过该时长（毫秒）的连接在借出前会先做有效性校验
+    private long validationIntervalMs = 30000;
+    // 空闲超过该时长（毫秒）且连接数高于 minSize 时回收
+    private long idleTimeoutMs = 600000;
+    // 借出超过该时长（毫秒）未归还视为疑似泄漏，0 表示关闭检测
+    private long leakDetectionThresholdMs = 60000;
+    // 后台维护线程执行周期（毫秒）
+    private long housekeepingIntervalMs = 30000;
+    // 每个物理连接缓存的预编译语句数，0 表示不缓存
+    private int statementCacheSize = 64;
+    // 工作单元（UnitOfWork）使用的事务隔离级别
+    private int transactionIsolation = Connection.TRANSACTION_READ_COMMITTED;
+
+    /** SQL Server 快照隔离级别（需先执行 ALTER DATABASE ... SET ALLOW_SNAPSHOT_ISOLATION ON） */
+    public static final int TRANSACTION_SNAPSHOT = 4096;
+
+    public PoolConfig() {}
+
+    /**
+     * 根据属性集构建配置（系统属性优先）
+     */
+    public static PoolConfig from(Properties props) {
+        PoolConfig c = new PoolConfig();
+        c.setDriver(value(props, "db.driver", c.getDriver()));
+        c.setUrl(value(props, "db.url", c.getUrl()));
+        c.setUser(value(props, "db.user", c.getUser()));
+        c.setPassword(value(props, "db.password", c.getPassword()));
+        c.setMinSize(Integer.parseInt(value(props, "pool.minSize", String.valueOf(c.getMinSize()))));
+        c.setMaxSize(Integer.parseInt(value(props, "pool.maxSize", String.valueOf(c.getMaxSize()))));
+        c.setAcquireTimeoutMs(Long.parseLong(value(props, "pool.acquireTimeoutMs", String.valueOf(c.getAcquireTimeoutMs()))));
+        c.setValidationTimeoutSeconds(Integer.parseInt(value(props, "pool.validationTimeoutSeconds", String.valueOf(c.getValidationTimeoutSeconds()))));
+        c.setValidationIntervalMs(Long.parseLong(value(props, "pool.validationIntervalMs", String.valueOf(c.getValidationIntervalMs()))));
+        c.setIdleTimeoutMs(Long.parseLong(value(props, "pool.idleTimeoutMs", String.valueOf(c.getIdleTimeoutMs()))));
+        c.setLeakDetectionThresholdMs(Long.parseLong(value(props, "pool.leakDetectionThresholdMs", String.valueOf(c.getLeakDetectionThresholdMs()))));
+        c.setHousekeepingIntervalMs(Long.parseLong(value(props, "pool.housekeepingIntervalMs", String.valueOf(c.getHousekeepingIntervalMs()))));
+        c.setStatementCacheSize(Integer.parseInt(value(props, "pool.statementCacheSize", String.valueOf(c.getStatementCacheSize()))));
+        c.setTransactionIsolation(parseIsolation(value(props, "uow.isolation", "read_committed")));
+        if (c.getMinSize() < 0 || c.getMaxSize() < 1 || c.getMinSize() > c.getMaxSize()) {
+            throw new IllegalArgumentException("连接池大小配置错误：需满足 0 <= minSize <= maxSize 且 maxSize >= 1");
+        }
+        return c;
+    }
+
+    /**
+     * 隔离级别名称 → JDBC 常量：read_committed | repeatable_read | serializable | snapshot
+     */
+    static int parseIsolation(String name) {
+        switch (name.toLowerCase()) {
+            case "read_committed":
+                return Connection.TRANSACTION_READ_COMMITTED;
+            case "repeatable_read":
+                return Connection.TRANSACTION_REPEATABLE_READ;
+            case "serializable":
+                return Connection.TRANSACTION_SERIALIZABLE;
+            case "snapshot":
+                return TRANSACTION_SNAPSHOT;
+            default:
+                throw new IllegalArgumentException("不支持的事务隔离级别：" + name);
+        }
+    }
+
+    static String value(Properties props, String key, String def) {
+        String v = System.getProperty(key);
+        if (v == null) {
+            v = props.getProperty(key);
+        }
+        return v == null || v.trim().isEmpty() ? def : v.trim();
+    }
+
+    public String getDriver() {
+        return driver;
+    }
+
+    public void setDriver(String driver) {
+        this.driver = driver;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getAcquireTimeoutMs() {
+        return acquireTimeoutMs;
+    }
+
+    public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getValidationIntervalMs() {
+        return validationIntervalMs;
+    }
+
+    public void setValidationIntervalMs(long validationIntervalMs) {
+        this.validationIntervalMs = validationIntervalMs;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public void setIdleTimeoutMs(long idleTimeoutMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    public long getLeakDetectionThresholdMs() {
+        return leakDetectionThresholdMs;
+    }
+
+    public void setLeakDetectionThresholdMs(long leakDetectionThresholdMs) {
+        this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+    }
+
+    public long getHousekeepingIntervalMs() {
+        return housekeepingIntervalMs;
+    }
+
+    public void setHousekeepingIntervalMs(long housekeepingIntervalMs) {
+        this.housekeepingIntervalMs = housekeepingIntervalMs;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public int getTransactionIsolation() {
+        return transactionIsolation;
+    }
+
+    public void setTransactionIsolation(int transactionIsolation) {
+        this.transactionIsolation = transactionIsolation;
+    }
+}
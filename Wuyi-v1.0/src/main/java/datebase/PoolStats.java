@@ -0,0 +1,103 @@
+package datebase;
+
+/**
+ * 连接池运行指标快照（只读）
+ */
+public class PoolStats {
+    private final int totalConnections;
+    private final int idleConnections;
+    private final int activeConnections;
+    private final int threadsAwaiting;
+    private final long acquiredCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long timeoutCount;
+    private final long validationFailureCount;
+    private final long leakCount;
+    private final double averageAcquireMillis;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    public PoolStats(int totalConnections, int idleConnections, int activeConnections, int threadsAwaiting,
+                     long acquiredCount, long createdCount, long destroyedCount, long timeoutCount,
+                     long validationFailureCount, long leakCount, double averageAcquireMillis,
+                     long statementCacheHits, long statementCacheMisses) {
+        this.totalConnections = totalConnections;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.threadsAwaiting = threadsAwaiting;
+        this.acquiredCount = acquiredCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.timeoutCount = timeoutCount;
+        this.validationFailureCount = validationFailureCount;
+        this.leakCount = leakCount;
+        this.averageAcquireMillis = averageAcquireMillis;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getThreadsAwaiting() {
+        return threadsAwaiting;
+    }
+
+    public long getAcquiredCount() {
+        return acquiredCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailureCount;
+    }
+
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    public double getAverageAcquireMillis() {
+        return averageAcquireMillis;
+    }
+
+    /** 预编译语句缓存命中次数 */
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    /** 预编译语句缓存未命中（新建语句）次数 */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats [total=" + totalConnections + ", idle=" + idleConnections + ", active=" + activeConnections
+                + ", awaiting=" + threadsAwaiting + ", acquired=" + acquiredCount + ", created=" + createdCount
+                + ", destroyed=" + destroyedCount + ", timeouts=" + timeoutCount + ", validationFailures="
+                + validationFailureCount + ", leaks=" + leakCount + ", avgAcquireMs="
+                + String.format("%.3f", averageAcquireMillis) + ", statementHits=" + statementCacheHits
+                + ", statementMisses=" + statementCacheMisses + "]";
+    }
+}
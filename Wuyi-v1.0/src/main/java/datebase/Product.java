@@ -8,12 +8,12 @@ public class Product {
     private String name;
     private String description;
     private String imageUrl;
-    private double price;
+    private Money price = Money.ZERO;
     private String status;
     
     public Product() {}
     
-    public Product(String id, String name, String description, String imageUrl, double price, String status) {
+    public Product(String id, String name, String description, String imageUrl, Money price, String status) {
         this.id = id;
         this.name = name;
         this.description = description;
@@ -55,11 +55,11 @@ public class Product {
         this.imageUrl = imageUrl;
     }
     
-    public double getPrice() {
+    public Money getPrice() {
         return price;
     }
     
-    public void setPrice(double price) {
+    public void setPrice(Money price) {
         this.price = price;
     }
     
@@ -71,9 +71,9 @@ public class Product {
         this.status = status;
     }
     
-    // 格式化价格显示
+    // 格式化价格显示（未设置价格时按 0 显示）
     public String getFormattedPrice() {
-        return String.format("¥%.2f", price);
+        return price != null ? price.format() : Money.ZERO.format();
     }
     
     // 获取状态对应的CSS类
@@ -0,0 +1,422 @@
+package datebase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * 执行计划检查：在 SET SHOWPLAN_XML ON 的会话中提交各条 SQL，取回估计执行计划（语句只编译、不执行，不改数据），
+ * 从计划 XML 中找出三类问题：
+ * 1) 扫描：Table Scan / Clustered Index Scan / Index Scan（表变量、过滤索引、受 TOP/OFFSET 行目标限制提前结束的扫描除外）
+ * 2) 缺失索引：优化器在 MissingIndexGroup 中给出的索引建议，整理为 CREATE INDEX 语句
+ * 3) 隐式转换导致无法索引查找（PlanAffectingConvert ConvertIssue="Seek Plan"），例如 VARCHAR 列与 NVARCHAR 参数比较
+ *
+ * 参数以同类型的局部变量代入（字符串按驱动默认的 NVARCHAR 发送），优化器按平均密度估算，反映的是"任意参数值"下的计划。
+ * 会话级的 SHOWPLAN 设置不能流入连接池，检查使用单独创建的物理连接，用完即关闭。
+ */
+public class QueryPlanAdvisor {
+
+    private static final Log LOG = Log.get(QueryPlanAdvisor.class);
+
+    private static final Set<String> SCAN_OPS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("Table Scan", "Clustered Index Scan", "Index Scan")));
+
+    /**
+     * 一条待检查的 SQL 及示例参数（按 ? 顺序）
+     */
+    public static final class Query {
+        private final String name;
+        private final String sql;
+        private final List<Object> params;
+        private final boolean scanExpected;
+
+        public Query(String name, String sql, Object... params) {
+            this(name, sql, Arrays.asList(params), false);
+        }
+
+        private Query(String name, String sql, List<Object> params, boolean scanExpected) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+            this.scanExpected = scanExpected;
+        }
+
+        /**
+         * 本身就要读取全表的语句（不带条件的列表、计数）：只报告缺失索引与隐式转换，不报告扫描
+         */
+        public static Query fullScan(String name, String sql, Object... params) {
+            return new Query(name, sql, Arrays.asList(params), true);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Object> getParams() {
+            return params;
+        }
+
+        public boolean isScanExpected() {
+            return scanExpected;
+        }
+    }
+
+    /** 问题类别 */
+    public enum Kind { SCAN, MISSING_INDEX, IMPLICIT_CONVERSION, ERROR }
+
+    /**
+     * 一条检查结果
+     */
+    public static final class Finding {
+        private final String query;
+        private final Kind kind;
+        private final String table;
+        private final String detail;
+
+        Finding(String query, Kind kind, String table, String detail) {
+            this.query = query;
+            this.kind = kind;
+            this.table = table;
+            this.detail = detail;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /** 涉及的表（不含方括号），无法确定时为 null */
+        public String getTable() {
+            return table;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + query + "] " + kind + "：" + detail;
+        }
+    }
+
+    private final ConnectionPool.ConnectionFactory connections;
+
+    /**
+     * @param connections 创建物理连接的方式（不要传连接池：SHOWPLAN 是会话级设置）
+     */
+    public QueryPlanAdvisor(ConnectionPool.ConnectionFactory connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * 按 db.properties 中的连接信息直接连接数据库
+     */
+    public static QueryPlanAdvisor forConfig(PoolConfig config) {
+        return new QueryPlanAdvisor(ConnectionPool.driverManagerFactory(config));
+    }
+
+    /**
+     * BuyerDaoimpl（含交易时执行的 WorkStateMachine 语句）与 WorksDaoIplm 的全部 SQL
+     */
+    public static List<Query> daoQueries() {
+        List<Query> queries = new ArrayList<>(BuyerDaoimpl.planQueries());
+        queries.addAll(WorksDaoIplm.planQueries());
+        return queries;
+    }
+
+    /**
+     * 逐条取回估计执行计划并分析；单条语句无法编译时记为 ERROR 继续检查其余语句
+     * @return 发现的问题，按语句顺序排列
+     */
+    public List<Finding> check(List<Query> queries) throws SQLException {
+        List<Finding> findings = new ArrayList<>();
+        try (Connection conn = connections.create();
+             Statement st = conn.createStatement()) {
+            st.execute("SET SHOWPLAN_XML ON");
+            try {
+                for (Query query : queries) {
+                    try {
+                        findings.addAll(analyze(query, showplan(st, toBatch(query.getSql(), query.getParams()))));
+                    } catch (SQLException e) {
+                        findings.add(new Finding(query.getName(), Kind.ERROR, null, "无法生成执行计划：" + e.getMessage()));
+                    }
+                }
+            } finally {
+                st.execute("SET SHOWPLAN_XML OFF");
+            }
+        }
+        LOG.debug("执行计划检查：{} 条语句，发现 {} 个问题", queries.size(), findings.size());
+        return findings;
+    }
+
+    /**
+     * 提交批次并收集所有结果集中的计划 XML（一个批次可能返回多份计划）
+     */
+    private static List<String> showplan(Statement st, String batch) throws SQLException {
+        List<String> plans = new ArrayList<>();
+        boolean isResultSet = st.execute(batch);
+        while (true) {
+            if (isResultSet) {
+                try (ResultSet rs = st.getResultSet()) {
+                    while (rs.next()) {
+                        plans.add(rs.getString(1));
+                    }
+                }
+            } else if (st.getUpdateCount() == -1) {
+                break;
+            }
+            isResultSet = st.getMoreResults();
+        }
+        return plans;
+    }
+
+    /**
+     * 把 ? 占位符换成局部变量 @p1、@p2……，并在批次开头按示例参数的类型声明这些变量（字符串常量中的 ? 不替换）
+     */
+    static String toBatch(String sql, List<Object> params) {
+        StringBuilder body = new StringBuilder(sql.length() + 16);
+        int n = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                body.append("@p").append(++n);
+            } else {
+                body.append(c);
+            }
+        }
+        if (n != params.size()) {
+            throw new IllegalArgumentException("占位符个数（" + n + "）与示例参数个数（" + params.size() + "）不一致：" + sql);
+        }
+        if (n == 0) {
+            return sql;
+        }
+        StringBuilder batch = new StringBuilder("DECLARE ");
+        for (int i = 0; i < n; i++) {
+            Object value = params.get(i);
+            if (i > 0) {
+                batch.append(", ");
+            }
+            batch.append("@p").append(i + 1).append(' ').append(sqlType(value)).append(" = ").append(literal(value));
+        }
+        return batch.append(";\n").append(body).toString();
+    }
+
+    /** 与驱动 setObject 发送的参数类型一致 */
+    private static String sqlType(Object value) {
+        if (value instanceof String) {
+            return "NVARCHAR(4000)";
+        }
+        if (value instanceof Integer || value instanceof Short) {
+            return "INT";
+        }
+        if (value instanceof Long) {
+            return "BIGINT";
+        }
+        if (value instanceof BigDecimal) {
+            return "DECIMAL(38," + Math.max(0, ((BigDecimal) value).scale()) + ")";
+        }
+        if (value instanceof Timestamp || value instanceof LocalDateTime) {
+            return "DATETIME2";
+        }
+        if (value instanceof Boolean) {
+            return "BIT";
+        }
+        throw new IllegalArgumentException("不支持的示例参数类型：" + (value == null ? "null" : value.getClass().getName()));
+    }
+
+    private static String literal(Object value) {
+        if (value instanceof String) {
+            return "N'" + ((String) value).replace("'", "''") + "'";
+        }
+        if (value instanceof LocalDateTime) {
+            value = Timestamp.valueOf((LocalDateTime) value);
+        }
+        if (value instanceof Timestamp) {
+            return "'" + value + "'";
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "1" : "0";
+        }
+        return value.toString();
+    }
+
+    /**
+     * 分析一条语句的计划 XML（同一问题在多份计划或 UNION 分支中重复出现时只报告一次）
+     */
+    public static List<Finding> analyze(Query query, List<String> planXml) {
+        Map<String, Finding> found = new LinkedHashMap<>();
+        for (String xml : planXml) {
+            Document doc;
+            try {
+                doc = parse(xml);
+            } catch (SAXException | IOException e) {
+                found.put("error", new Finding(query.getName(), Kind.ERROR, null, "执行计划无法解析：" + e.getMessage()));
+                continue;
+            }
+            if (!query.isScanExpected()) {
+                collectScans(query.getName(), doc, found);
+            }
+            collectMissingIndexes(query.getName(), doc, found);
+            collectConversions(query.getName(), doc, found);
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    private static void collectScans(String query, Document doc, Map<String, Finding> found) {
+        NodeList ops = doc.getElementsByTagNameNS("*", "RelOp");
+        for (int i = 0; i < ops.getLength(); i++) {
+            Element op = (Element) ops.item(i);
+            String physical = op.getAttribute("PhysicalOp");
+            // 行目标：TOP / OFFSET FETCH 之下的有序扫描读够行数即停止
+            if (!SCAN_OPS.contains(physical) || op.hasAttribute("EstimateRowsWithoutRowGoal")) {
+                continue;
+            }
+            Element object = scanObject(op);
+            if (object == null || "true".equals(object.getAttribute("Filtered"))) {
+                continue;
+            }
+            String table = unquote(object.getAttribute("Table"));
+            if (table.startsWith("@") || table.startsWith("#")) {
+                continue;
+            }
+            String index = unquote(object.getAttribute("Index"));
+            String detail = physical + " " + table + (index.isEmpty() ? "" : "." + index)
+                    + "，估计 " + op.getAttribute("EstimateRows") + " 行";
+            found.putIfAbsent("scan:" + table + "." + index, new Finding(query, Kind.SCAN, table, detail));
+        }
+    }
+
+    /** RelOp 下 IndexScan / TableScan 元素中的 Object（被扫描的表与索引） */
+    private static Element scanObject(Element op) {
+        for (Node n = op.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element && ("IndexScan".equals(n.getLocalName()) || "TableScan".equals(n.getLocalName()))) {
+                for (Node c = n.getFirstChild(); c != null; c = c.getNextSibling()) {
+                    if (c instanceof Element && "Object".equals(c.getLocalName())) {
+                        return (Element) c;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void collectMissingIndexes(String query, Document doc, Map<String, Finding> found) {
+        NodeList groups = doc.getElementsByTagNameNS("*", "MissingIndexGroup");
+        for (int i = 0; i < groups.getLength(); i++) {
+            Element group = (Element) groups.item(i);
+            NodeList indexes = group.getElementsByTagNameNS("*", "MissingIndex");
+            for (int j = 0; j < indexes.getLength(); j++) {
+                Element index = (Element) indexes.item(j);
+                String ddl = createIndexStatement(index);
+                found.putIfAbsent("missing:" + ddl, new Finding(query, Kind.MISSING_INDEX,
+                        unquote(index.getAttribute("Table")),
+                        "预计改善 " + group.getAttribute("Impact") + "%，建议：" + ddl));
+            }
+        }
+    }
+
+    /**
+     * 把缺失索引建议整理为 CREATE INDEX：等值列在前、范围列在后作为键，INCLUDE 列附加在叶级
+     */
+    static String createIndexStatement(Element index) {
+        List<String> equality = new ArrayList<>();
+        List<String> inequality = new ArrayList<>();
+        List<String> include = new ArrayList<>();
+        NodeList groups = index.getElementsByTagNameNS("*", "ColumnGroup");
+        for (int i = 0; i < groups.getLength(); i++) {
+            Element group = (Element) groups.item(i);
+            String usage = group.getAttribute("Usage");
+            List<String> target = "EQUALITY".equals(usage) ? equality : "INEQUALITY".equals(usage) ? inequality : include;
+            NodeList columns = group.getElementsByTagNameNS("*", "Column");
+            for (int j = 0; j < columns.getLength(); j++) {
+                target.add(unquote(((Element) columns.item(j)).getAttribute("Name")));
+            }
+        }
+        List<String> keys = new ArrayList<>(equality);
+        keys.addAll(inequality);
+        String table = unquote(index.getAttribute("Table"));
+        String schema = unquote(index.getAttribute("Schema"));
+        StringBuilder ddl = new StringBuilder("CREATE INDEX IX_").append(table);
+        for (String key : keys) {
+            ddl.append('_').append(key);
+        }
+        ddl.append(" ON ").append(schema.isEmpty() ? "" : schema + ".").append(table)
+           .append(" (").append(String.join(", ", keys)).append(')');
+        if (!include.isEmpty()) {
+            ddl.append(" INCLUDE (").append(String.join(", ", include)).append(')');
+        }
+        return ddl.toString();
+    }
+
+    private static void collectConversions(String query, Document doc, Map<String, Finding> found) {
+        NodeList converts = doc.getElementsByTagNameNS("*", "PlanAffectingConvert");
+        for (int i = 0; i < converts.getLength(); i++) {
+            Element convert = (Element) converts.item(i);
+            if (!"Seek Plan".equals(convert.getAttribute("ConvertIssue"))) {
+                continue;
+            }
+            String expression = convert.getAttribute("Expression");
+            found.putIfAbsent("convert:" + expression, new Finding(query, Kind.IMPLICIT_CONVERSION, null,
+                    "隐式转换使索引无法查找：" + expression));
+        }
+    }
+
+    private static Document parse(String xml) throws SAXException, IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(new InputSource(new StringReader(xml)));
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("XML 解析器配置失败", e);
+        }
+    }
+
+    /** 去掉计划中标识符两侧的方括号：[dbo] → dbo */
+    private static String unquote(String name) {
+        if (name.length() >= 2 && name.charAt(0) == '[' && name.charAt(name.length() - 1) == ']') {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+}
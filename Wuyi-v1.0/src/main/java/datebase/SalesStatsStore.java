@@ -0,0 +1,134 @@
+package datebase;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * 销售统计物化汇总（表 SalesStats，见 V2 迁移）
+ * 按日(D)、月(M)、累计(A) 三种粒度保存交易数、已售数、已售金额；
+ * 写入方在自己的事务连接上调用 recordTrade / recordSale 增量维护，读取只按主键取三行，与订单总量无关。
+ */
+public class SalesStatsStore {
+    /** 累计行使用的固定日期 */
+    static final LocalDate ALL_TIME = LocalDate.of(1900, 1, 1);
+
+    // 一次 MERGE 同时累加日、月、累计三行；HOLDLOCK 避免并发首次插入同一行时主键冲突
+    private static final String UPSERT =
+            "MERGE SalesStats WITH (HOLDLOCK) AS t " +
+            "USING (VALUES ('D', ?), ('M', ?), ('A', ?)) AS s (period_type, period_start) " +
+            "ON t.period_type = s.period_type AND t.period_start = s.period_start " +
+            "WHEN MATCHED THEN UPDATE SET trade_count = t.trade_count + ?, sold_count = t.sold_count + ?, " +
+            "sold_amount = t.sold_amount + ? " +
+            "WHEN NOT MATCHED THEN INSERT (period_type, period_start, trade_count, sold_count, sold_amount) " +
+            "VALUES (s.period_type, s.period_start, ?, ?, ?);";
+
+    private static final String LOAD =
+            "SELECT period_type, period_start, trade_count, sold_count, sold_amount FROM SalesStats " +
+            "WHERE (period_type = 'A' AND period_start = ?) OR (period_type = 'M' AND period_start IN (?, ?))";
+
+    /**
+     * 记一笔新交易（Trade 表新增一行）
+     */
+    public void recordTrade(Connection con, LocalDate day) throws SQLException {
+        recordTrades(con, day, 1);
+    }
+
+    /**
+     * 记多笔新交易（批量交易时合并为一次更新）
+     */
+    public void recordTrades(Connection con, LocalDate day, int count) throws SQLException {
+        if (count == 0) {
+            return;
+        }
+        apply(con, day, count, 0, Money.ZERO);
+    }
+
+    /**
+     * 记录已售数与已售金额的变化（商品改为 sold 时为正，撤销 sold 时为负）
+     */
+    public void recordSale(Connection con, LocalDate day, int soldDelta, Money amountDelta) throws SQLException {
+        if (soldDelta == 0 && amountDelta.signum() == 0) {
+            return;
+        }
+        apply(con, day, 0, soldDelta, amountDelta);
+    }
+
+    private void apply(Connection con, LocalDate day, int trades, int sold, Money amount) throws SQLException {
+        if (con == null) {
+            throw new SQLException("数据库连接不能为null");
+        }
+        try (PreparedStatement ps = con.prepareStatement(UPSERT)) {
+            ps.setDate(1, Date.valueOf(day));
+            ps.setDate(2, Date.valueOf(day.withDayOfMonth(1)));
+            ps.setDate(3, Date.valueOf(ALL_TIME));
+            ps.setInt(4, trades);
+            ps.setInt(5, sold);
+            ps.setBigDecimal(6, amount.toBigDecimal());
+            ps.setInt(7, trades);
+            ps.setInt(8, sold);
+            ps.setBigDecimal(9, amount.toBigDecimal());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 读取累计数据及指定月份相对上月的增长率（百分比）
+     * 交易增长率对应 Statistics.monthlyGrowth
+     */
+    public Statistics load(Connection con, YearMonth month) throws SQLException {
+        if (con == null) {
+            throw new SQLException("数据库连接不能为null");
+        }
+        LocalDate current = month.atDay(1);
+        LocalDate previous = month.minusMonths(1).atDay(1);
+        int curTrades = 0, curSold = 0;
+        int prevTrades = 0, prevSold = 0;
+        Money curAmount = Money.ZERO;
+        Money prevAmount = Money.ZERO;
+        Statistics stats = new Statistics();
+        try (PreparedStatement ps = con.prepareStatement(LOAD)) {
+            ps.setDate(1, Date.valueOf(ALL_TIME));
+            ps.setDate(2, Date.valueOf(current));
+            ps.setDate(3, Date.valueOf(previous));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int trades = rs.getInt("trade_count");
+                    int sold = rs.getInt("sold_count");
+                    Money amount = Money.of(rs.getBigDecimal("sold_amount"));
+                    if ("A".equals(rs.getString("period_type"))) {
+                        stats.setTotalTransactions(trades);
+                        stats.setSoldProducts(sold);
+                        stats.setTotalAmount(amount);
+                    } else if (rs.getDate("period_start").toLocalDate().equals(current)) {
+                        curTrades = trades;
+                        curSold = sold;
+                        curAmount = amount;
+                    } else {
+                        prevTrades = trades;
+                        prevSold = sold;
+                        prevAmount = amount;
+                    }
+                }
+            }
+        }
+        stats.setMonthlyGrowth(growth(curTrades, prevTrades));
+        stats.setSoldGrowth(growth(curSold, prevSold));
+        stats.setAmountGrowth(growth(curAmount.getCents(), prevAmount.getCents()));
+        return stats;
+    }
+
+    /**
+     * 环比增长率（百分比）；上期为 0 时，本期有数据记为 100%，否则为 0
+     */
+    public static double growth(double current, double previous) {
+        if (previous == 0) {
+            return current > 0 ? 100.0 : 0.0;
+        }
+        return (current - previous) * 100.0 / previous;
+    }
+}
@@ -0,0 +1,229 @@
+package datebase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+/**
+ * 数据库版本迁移
+ * 按 db/migration/index.txt 中的顺序执行 V<版本>__<说明>.sql 脚本，已执行的版本记录在 schema_version 表中，只执行一次。
+ * 脚本以单独一行的 GO 分隔批次，每个批次自动提交执行（便于分批回填大表），因此脚本本身需要可重复执行。
+ * 全新的空库（还没有 Works 表）先执行基线脚本 db/baseline/base_tables.sql 建表，已有表的库跳过；基线脚本不属于版本链，不记录版本。
+ * 多个实例同时启动时，迁移前在会话级应用锁（sp_getapplock）上排队：同一时刻只有一个实例执行脚本，
+ * 后拿到锁的实例重新读取 schema_version，不会再执行一遍已完成的版本。
+ */
+public class SchemaMigrator {
+
+    private static final Log LOG = Log.get(SchemaMigrator.class);
+
+    /** 迁移脚本所在的类路径目录 */
+    public static final String LOCATION = "/db/migration/";
+    /** 空库建表的基线脚本 */
+    public static final String BASELINE = "/db/baseline/base_tables.sql";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("^V(\\d+)__(.+)\\.sql$");
+    private static final Pattern BATCH_SEPARATOR = Pattern.compile("(?im)^\\s*GO\\s*$");
+    /** 迁移应用锁的资源名与最长等待时间（毫秒） */
+    private static final String LOCK_RESOURCE = "wuyi_schema_migration";
+    private static final int LOCK_TIMEOUT_MS = 10 * 60 * 1000;
+
+    private final DataSource dataSource;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * 执行所有尚未执行的迁移脚本
+     * @return 本次执行的脚本数
+     */
+    public int migrate() throws SQLException {
+        List<String> scripts = readIndex();
+        try (Connection conn = dataSource.getConnection()) {
+            acquireLock(conn);
+            try {
+                return migrate(conn, scripts);
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    private int migrate(Connection conn, List<String> scripts) throws SQLException {
+        int applied = 0;
+        applyBaseline(conn);
+        ensureVersionTable(conn);
+        Set<Integer> done = appliedVersions(conn);
+        for (String script : scripts) {
+            Matcher m = SCRIPT_NAME.matcher(script);
+            if (!m.matches()) {
+                throw new SQLException("迁移脚本命名不符合 V<版本>__<说明>.sql：" + script);
+            }
+            int version = Integer.parseInt(m.group(1));
+            if (done.contains(version)) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            for (String batch : splitBatches(readScript(script))) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute(batch);
+                }
+            }
+            recordVersion(conn, version, m.group(2).replace('_', ' '));
+            applied++;
+            LOG.info("数据库迁移完成：{}，耗时{}ms", script, System.currentTimeMillis() - start);
+        }
+        return applied;
+    }
+
+    /**
+     * 基线建表：只在库中还没有 Works 表时执行，已有库整体跳过
+     */
+    private void applyBaseline(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT OBJECT_ID('Works', 'U')")) {
+            if (rs.next() && rs.getObject(1) != null) {
+                return;
+            }
+        }
+        long start = System.currentTimeMillis();
+        for (String batch : splitBatches(readResource(BASELINE))) {
+            try (Statement st = conn.createStatement()) {
+                st.execute(batch);
+            }
+        }
+        LOG.info("空库基线建表完成：{}，耗时{}ms", BASELINE, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 会话级排他应用锁：批次各自提交，锁不能挂在事务上；等待超时或被选为死锁牺牲者时抛出异常，不执行迁移
+     */
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DECLARE @result INT; " +
+                "EXEC @result = sp_getapplock @Resource = ?, @LockMode = 'Exclusive', @LockOwner = 'Session', @LockTimeout = ?; " +
+                "SELECT @result")) {
+            ps.setString(1, LOCK_RESOURCE);
+            ps.setInt(2, LOCK_TIMEOUT_MS);
+            try (ResultSet rs = ps.executeQuery()) {
+                int result = rs.next() ? rs.getInt(1) : -999;
+                if (result < 0) {
+                    throw new SQLException("获取数据库迁移锁失败（sp_getapplock 返回 " + result + "），可能有其他实例正在迁移");
+                }
+            }
+        }
+    }
+
+    /**
+     * 释放应用锁；失败时只记录日志（连接已断开时锁随会话释放），不掩盖迁移本身的异常
+     */
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "EXEC sp_releaseapplock @Resource = ?, @LockOwner = 'Session'")) {
+            ps.setString(1, LOCK_RESOURCE);
+            ps.execute();
+        } catch (SQLException e) {
+            LOG.warn("释放数据库迁移锁失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按单独一行的 GO 拆分批次，忽略空批次
+     */
+    public static List<String> splitBatches(String script) {
+        List<String> batches = new ArrayList<>();
+        for (String part : BATCH_SEPARATOR.split(script)) {
+            if (!part.trim().isEmpty() && !isCommentOnly(part)) {
+                batches.add(part.trim());
+            }
+        }
+        return batches;
+    }
+
+    private static boolean isCommentOnly(String batch) {
+        for (String line : batch.split("\\R")) {
+            String t = line.trim();
+            if (!t.isEmpty() && !t.startsWith("--")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureVersionTable(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("IF OBJECT_ID('schema_version', 'U') IS NULL " +
+                       "CREATE TABLE schema_version (" +
+                       "version INT NOT NULL PRIMARY KEY, " +
+                       "description NVARCHAR(200) NOT NULL, " +
+                       "installed_on DATETIME2(0) NOT NULL DEFAULT SYSDATETIME())");
+        }
+    }
+
+    private Set<Integer> appliedVersions(Connection conn) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT version FROM schema_version");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private void recordVersion(Connection conn, int version, String description) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            ps.setInt(1, version);
+            ps.setString(2, description);
+            ps.executeUpdate();
+        }
+    }
+
+    private List<String> readIndex() throws SQLException {
+        List<String> names = new ArrayList<>();
+        for (String line : readResource(LOCATION + "index.txt").split("\\R")) {
+            String t = line.trim();
+            if (!t.isEmpty() && !t.startsWith("#")) {
+                names.add(t);
+            }
+        }
+        return names;
+    }
+
+    private String readScript(String name) throws SQLException {
+        return readResource(LOCATION + name);
+    }
+
+    private String readResource(String path) throws SQLException {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new SQLException("找不到迁移资源：" + path);
+            }
+            StringBuilder sb = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    sb.append(line).append('\n');
+                }
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            throw new SQLException("读取迁移资源失败：" + path, e);
+        }
+    }
+}
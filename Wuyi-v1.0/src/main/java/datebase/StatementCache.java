@@ -0,0 +1,248 @@
+package datebase;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个物理连接上的预编译语句缓存（按 SQL 文本与 prepareStatement 的其余参数，LRU）
+ * 同一连接上重复执行相同 SQL 时直接复用已预编译的 PreparedStatement，SQL Server 不必再次 prepare。
+ * 借出的是代理语句：close() 只是关闭其仍打开的 ResultSet、清空参数后放回缓存；getConnection() 返回借出它的连接池代理连接；
+ * 同一 SQL 同时被借出两次时第二次新建语句，归还时若缓存中已有则真正关闭。
+ * 调用过 setMaxRows / setQueryTimeout 等会改变语句状态的方法的语句不放回缓存。
+ */
+final class StatementCache {
+
+    private static final Log LOG = Log.get(StatementCache.class);
+
+    // 会改变语句状态、复用前无法复位的方法
+    private static final Set<String> STATEFUL = new HashSet<>(Arrays.asList("setMaxRows", "setLargeMaxRows",
+            "setQueryTimeout", "setFetchSize", "setFetchDirection", "setEscapeProcessing", "setCursorName",
+            "setMaxFieldSize", "setPoolable", "closeOnCompletion"));
+
+    private final Connection raw;
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    // 空闲（可复用）的语句；accessOrder = true，迭代顺序即最久未用在前
+    private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection raw, int maxSize, LongAdder hits, LongAdder misses) {
+        this.raw = raw;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * 借出 prepareStatement(args) 对应的预编译语句（缓存中没有则在物理连接上以同一重载新建）
+     * @param owner 借出语句的连接池代理连接，作为语句的 getConnection() 返回值
+     * @param method Connection.prepareStatement 的某个重载
+     */
+    PreparedStatement prepare(Connection owner, Method method, Object[] args) throws SQLException {
+        String key = key(args);
+        PreparedStatement ps;
+        synchronized (this) {
+            ps = idle.remove(key);
+        }
+        if (ps != null && !ps.isClosed()) {
+            hits.increment();
+        } else {
+            misses.increment();
+            try {
+                ps = (PreparedStatement) method.invoke(raw, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new SQLException("预编译语句失败", e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new SQLException("预编译语句失败", e);
+            }
+            if (ps == null) {
+                return null;
+            }
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, new CachedHandler(key, ps, owner));
+    }
+
+    /**
+     * 缓存键：只有 SQL 时即 SQL 文本，其余重载（自增键、结果集类型、列名等）附加参数值，
+     * 不同重载预编译出的语句互不复用
+     */
+    static String key(Object[] args) {
+        if (args.length == 1) {
+            return (String) args[0];
+        }
+        return args[0] + "\u0000" + Arrays.deepToString(Arrays.copyOfRange(args, 1, args.length));
+    }
+
+    /**
+     * 物理连接销毁前调用：关闭全部空闲语句
+     */
+    synchronized void close() {
+        for (PreparedStatement ps : idle.values()) {
+            closeQuietly(ps);
+        }
+        idle.clear();
+    }
+
+    private void giveBack(String sql, PreparedStatement ps) {
+        List<PreparedStatement> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (idle.containsKey(sql)) {
+                evicted.add(ps);
+            } else {
+                idle.put(sql, ps);
+                Iterator<PreparedStatement> it = idle.values().iterator();
+                while (idle.size() > maxSize && it.hasNext()) {
+                    evicted.add(it.next());
+                    it.remove();
+                }
+            }
+        }
+        for (PreparedStatement old : evicted) {
+            closeQuietly(old);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable c) {
+        try {
+            c.close();
+        } catch (Exception e) {
+            LOG.warn("关闭预编译语句异常：{}", e.getMessage());
+        }
+    }
+
+    private final class CachedHandler implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement ps;
+        private final Connection owner;
+        // 本次借用期间打开的结果集，归还时统一关闭
+        private final List<ResultSet> results = new ArrayList<>();
+        private boolean closed;
+        private boolean reusable = true;
+
+        CachedHandler(String sql, PreparedStatement ps, Connection owner) {
+            this.sql = sql;
+            this.ps = ps;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        recycle();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || ps.isClosed();
+                case "getConnection":
+                    if (closed) {
+                        throw new SQLException("语句已关闭，不能继续使用");
+                    }
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + sql + (closed ? ", closed" : "") + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("语句已关闭，不能继续使用");
+                    }
+                    if (STATEFUL.contains(name)) {
+                        reusable = false;
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(ps, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof ResultSet) {
+                        ResultSet rs = (ResultSet) result;
+                        results.add(rs);
+                        return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                                new Class<?>[] { ResultSet.class }, new ResultHandler(rs, proxy));
+                    }
+                    return result;
+            }
+        }
+
+        private void recycle() throws SQLException {
+            if (!reusable || ps.isClosed()) {
+                ps.close();
+                return;
+            }
+            try {
+                for (ResultSet rs : results) {
+                    rs.close();
+                }
+                ps.clearParameters();
+                ps.clearBatch();
+            } catch (SQLException e) {
+                ps.close();
+                return;
+            }
+            giveBack(sql, ps);
+        }
+
+        /**
+         * 借出的结果集：调用方关闭后不再由 recycle 重复关闭；getStatement() 返回代理语句，
+         * 调用方经由结果集关闭语句时同样只是归还缓存
+         */
+        private final class ResultHandler implements InvocationHandler {
+            private final ResultSet rs;
+            private final Object statement;
+
+            ResultHandler(ResultSet rs, Object statement) {
+                this.rs = rs;
+                this.statement = statement;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        results.remove(rs);
+                        rs.close();
+                        return null;
+                    case "getStatement":
+                        return statement;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "CachedResultSet[" + sql + "]";
+                    default:
+                        try {
+                            return method.invoke(rs, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        }
+    }
+}
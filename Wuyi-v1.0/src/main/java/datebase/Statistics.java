@@ -6,7 +6,7 @@ package datebase;
 public class Statistics {
     private int totalTransactions;
     private int soldProducts;
-    private double totalAmount;
+    private Money totalAmount = Money.ZERO;
     private double monthlyGrowth;
     private double soldGrowth;
     private double amountGrowth;
@@ -14,7 +14,7 @@ public class Statistics {
     public Statistics() {}
     
     public Statistics(int totalTransactions, int soldProducts,
-                     double totalAmount, double monthlyGrowth, double soldGrowth,
+                     Money totalAmount, double monthlyGrowth, double soldGrowth,
                      double amountGrowth) {
         this.totalTransactions = totalTransactions;
         this.soldProducts = soldProducts;
@@ -41,11 +41,11 @@ public class Statistics {
         this.soldProducts = soldProducts;
     }
     
-    public double getTotalAmount() {
+    public Money getTotalAmount() {
         return totalAmount;
     }
     
-    public void setTotalAmount(double totalAmount) {
+    public void setTotalAmount(Money totalAmount) {
         this.totalAmount = totalAmount;
     }
     
@@ -75,7 +75,7 @@ public class Statistics {
     
     // 格式化金额显示
     public String getFormattedTotalAmount() {
-        return String.format("¥%.0f", totalAmount);
+        return totalAmount.formatYuan();
     }
     
     // 格式化增长率显示
@@ -0,0 +1,74 @@
+package datebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 表格导出的输出端：逐行写入输出流，不在内存中保留已写出的行（导出 1 千行与 1 千万行内存占用相同）
+ * 单元格值可以是 String、Number（写为数字）、LocalDateTime（写为 yyyy-MM-dd HH:mm:ss）或 null（空单元格）
+ * close 时写完文件结尾（XLSX 的目录与工作簿信息）并关闭输出流。
+ */
+public abstract class TableExportWriter implements Closeable {
+
+    protected static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * CSV（RFC 4180，UTF-8 带 BOM，Excel 直接打开中文不乱码）
+     */
+    public static TableExportWriter csv(OutputStream out) {
+        return new CsvTableWriter(out);
+    }
+
+    /**
+     * XLSX（Office Open XML），超过单张工作表行数上限时自动续写到下一张工作表
+     */
+    public static TableExportWriter xlsx(OutputStream out) {
+        return new XlsxTableWriter(out);
+    }
+
+    /**
+     * 按格式名选择：xlsx 为 Excel，其余按 CSV 处理
+     */
+    public static TableExportWriter forFormat(String format, OutputStream out) {
+        if ("xlsx".equalsIgnoreCase(format)) {
+            return xlsx(out);
+        }
+        return csv(out);
+    }
+
+    /**
+     * 响应的 Content-Type
+     */
+    public abstract String getContentType();
+
+    /**
+     * 文件扩展名（不含点）
+     */
+    public abstract String getExtension();
+
+    /**
+     * 写入一行
+     */
+    public abstract void writeRow(Object... cells) throws IOException;
+
+    /**
+     * 把已写入的内容推送到底层输出流（导出过程中定期调用，让客户端尽早收到数据）
+     */
+    public abstract void flush() throws IOException;
+
+    /**
+     * 单元格的文本形式
+     */
+    protected static String text(Object cell) {
+        if (cell == null) {
+            return "";
+        }
+        if (cell instanceof LocalDateTime) {
+            return DATE_TIME.format((LocalDateTime) cell);
+        }
+        return cell.toString();
+    }
+}
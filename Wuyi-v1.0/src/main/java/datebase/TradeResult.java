@@ -0,0 +1,69 @@
+package datebase;
+
+/**
+ * 一次交易（冻结商品 + 写入 Trade）的结果
+ */
+public class TradeResult {
+
+    public enum Outcome {
+        /** 本次交易成功：商品由 available 改为 frozen，并写入 Trade */
+        TRADED,
+        /** 订单不存在 */
+        ORDER_NOT_FOUND,
+        /** 商品不是 available（已被冻结或售出），本次交易未生效 */
+        NOT_AVAILABLE
+    }
+
+    private final String orderId;
+    private final Outcome outcome;
+    private final String tradeId;
+    private final int workId;
+    private final String workStatus;
+
+    public TradeResult(String orderId, Outcome outcome, String tradeId, int workId, String workStatus) {
+        this.orderId = orderId;
+        this.outcome = outcome;
+        this.tradeId = tradeId;
+        this.workId = workId;
+        this.workStatus = workStatus;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isTraded() {
+        return outcome == Outcome.TRADED;
+    }
+
+    /**
+     * 交易成功时的 trade_id，否则为 null
+     */
+    public String getTradeId() {
+        return tradeId;
+    }
+
+    /**
+     * 订单对应的商品编号，订单不存在时为 0
+     */
+    public int getWorkId() {
+        return workId;
+    }
+
+    /**
+     * 交易后商品的状态（交易失败时为当前状态）
+     */
+    public String getWorkStatus() {
+        return workStatus;
+    }
+
+    @Override
+    public String toString() {
+        return "TradeResult [orderId=" + orderId + ", outcome=" + outcome + ", tradeId=" + tradeId + ", workId="
+                + workId + ", workStatus=" + workStatus + "]";
+    }
+}
@@ -0,0 +1,230 @@
+package datebase;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 请求级工作单元：把一个连接和一个事务绑定到当前线程
+ * 作用期间 DbUtil.getCon() 返回的都是同一个连接，DAO 无需改动即可共享连接与一致的读视图。
+ *
+ * 用法：
+ * <pre>
+ * try (UnitOfWork uow = UnitOfWork.begin()) {
+ *     buyerDao.xxx();
+ *     buyerDao.yyy();
+ *     uow.commit();
+ * }
+ * </pre>
+ * 未调用 commit() 就 close() 会回滚。嵌套 begin() 会加入外层工作单元，
+ * 只有最外层负责提交/回滚并把连接归还连接池；DAO 内部对绑定连接调用的
+ * close/commit/setAutoCommit 会被忽略，rollback() 把整个事务标记为仅回滚，由工作单元统一控制事务；
+ * 保存点（setSavepoint / rollback(Savepoint) / releaseSavepoint）直接作用于真实连接。
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+    private static final Log LOG = Log.get(UnitOfWork.class);
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    /** 根工作单元（嵌套时指向最外层） */
+    private final UnitOfWork root;
+    /** 从连接池借出的真实连接（仅根持有） */
+    private final Connection physical;
+    /** 交给 DAO 使用的连接（屏蔽 close/commit/rollback） */
+    private final Connection bound;
+    private final int originalIsolation;
+    private boolean rollbackOnly;
+    /** 根：事务已真正提交；内层：已标记成功 */
+    private boolean committed;
+    /** 事务已在 commit() 中结束（提交成功，或因仅回滚标记已回滚），close() 不再回滚 */
+    private boolean ended;
+    private boolean closed;
+    /** 事务结束（提交或回滚、连接归还）后执行的回调，仅根持有 */
+    private final List<Runnable> completions = new ArrayList<>();
+
+    private UnitOfWork(Connection physical, int originalIsolation) {
+        this.root = this;
+        this.physical = physical;
+        this.originalIsolation = originalIsolation;
+        this.bound = bind();
+    }
+
+    private UnitOfWork(UnitOfWork root) {
+        this.root = root;
+        this.physical = root.physical;
+        this.originalIsolation = root.originalIsolation;
+        this.bound = root.bound;
+    }
+
+    /**
+     * 开始（或加入）当前线程的工作单元，隔离级别取自 db.properties 中的 uow.isolation
+     */
+    public static UnitOfWork begin() throws SQLException {
+        UnitOfWork current = CURRENT.get();
+        if (current != null) {
+            return new UnitOfWork(current.root);
+        }
+        Connection conn = DbUtil.getDataSource().getConnection();
+        try {
+            int original = conn.getTransactionIsolation();
+            int isolation = DbUtil.getTransactionIsolation();
+            if (isolation != original) {
+                conn.setTransactionIsolation(isolation);
+            }
+            conn.setAutoCommit(false);
+            UnitOfWork uow = new UnitOfWork(conn, original);
+            CURRENT.set(uow);
+            return uow;
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 当前线程是否处于工作单元中
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * 当前线程绑定的连接；不在工作单元中时返回 null
+     */
+    static Connection currentConnection() {
+        UnitOfWork current = CURRENT.get();
+        return current == null ? null : current.bound;
+    }
+
+    /**
+     * 登记事务结束后要执行的动作（如缓存失效），提交成功与否都会执行；当前线程不在工作单元中时立即执行
+     */
+    public static void afterCompletion(Runnable action) {
+        UnitOfWork current = CURRENT.get();
+        if (current == null) {
+            action.run();
+            return;
+        }
+        current.root.completions.add(action);
+    }
+
+    /**
+     * 当前工作单元使用的连接
+     */
+    public Connection getConnection() {
+        return bound;
+    }
+
+    /**
+     * 标记成功；最外层工作单元会真正提交事务
+     */
+    public void commit() throws SQLException {
+        if (root != this) {
+            committed = true;
+            return;
+        }
+        if (rollbackOnly) {
+            ended = true;
+            physical.rollback();
+            throw new SQLException("内层操作失败，事务已回滚");
+        }
+        // 提交失败时保持未提交：close() 回滚并按失败结束
+        physical.commit();
+        committed = true;
+        ended = true;
+    }
+
+    /**
+     * 事务是否已真正提交（内层工作单元为是否已标记成功）
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * 结束工作单元：未提交则回滚（内层则把整个事务标记为仅回滚）
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (root != this) {
+            if (!committed) {
+                root.rollbackOnly = true;
+            }
+            return;
+        }
+        CURRENT.remove();
+        SQLException failure = null;
+        try {
+            if (!ended) {
+                // 回滚失败也要继续复位自动提交与隔离级别，失败在最后抛出
+                try {
+                    physical.rollback();
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            }
+            physical.setAutoCommit(true);
+            if (physical.getTransactionIsolation() != originalIsolation) {
+                physical.setTransactionIsolation(originalIsolation);
+            }
+        } catch (SQLException e) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        } finally {
+            physical.close();
+            for (Runnable action : completions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    LOG.error("工作单元结束回调执行失败", e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Connection bind() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                        case "commit":
+                        case "setAutoCommit":
+                            // 事务边界由工作单元控制
+                            return null;
+                        case "rollback":
+                            if (args != null && args.length == 1) {
+                                // 回滚到保存点不结束事务，交给真实连接
+                                break;
+                            }
+                            // DAO 要求回滚：整个事务只能回滚，最外层 commit 时报错
+                            rollbackOnly = true;
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
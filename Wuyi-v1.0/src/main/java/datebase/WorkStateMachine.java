@@ -0,0 +1,262 @@
+package datebase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品状态机：available → frozen → sold，frozen 可取消回 available
+ * 每次状态变化都是一条带原状态条件的 UPDATE（比较并交换）：并发交易同一商品时只有一方能改到行，
+ * 另一方影响 0 行并得到明确的失败结果，不会出现两人同时"抢到"同一件商品。
+ * 更新按主键定位单行（ROWLOCK），整批语句一次往返执行；成功后累加销售统计并失效商品目录缓存。
+ */
+public class WorkStateMachine {
+    public static final String AVAILABLE = "available";
+    public static final String FROZEN = "frozen";
+    public static final String SOLD = "sold";
+
+    // 冻结商品并写入 Trade：只有商品仍为 available 时 UPDATE 才命中，OUTPUT 出的 work_id 决定是否插入 Trade；
+    // 最后一条 SELECT 返回订单对应的商品、当前状态以及本次是否成功
+    static final String FREEZE_FOR_TRADE =
+            "SET NOCOUNT ON; " +
+            "DECLARE @won TABLE (work_id INT); " +
+            "UPDATE w SET w.work_status = 'frozen' OUTPUT inserted.work_id INTO @won " +
+            "FROM Works w WITH (ROWLOCK) JOIN Reservation r ON r.work_id = w.work_id " +
+            "WHERE r.order_id = ? AND w.work_status = 'available'; " +
+            "INSERT INTO Trade (trade_id, order_id, work_id, work_status) SELECT ?, ?, work_id, 'frozen' FROM @won; " +
+            "SELECT r.work_id, w.work_status, (SELECT COUNT(*) FROM @won) AS won " +
+            "FROM Reservation r LEFT JOIN Works w ON w.work_id = r.work_id WHERE r.order_id = ?";
+
+    // 通用状态变化：商品行按原状态比较并交换，成功时只同步该商品当前（最新）一笔交易的状态，并返回商品价格；
+    // 此前已取消的交易保持原状态
+    static final String TRANSITION =
+            "SET NOCOUNT ON; " +
+            "DECLARE @changed TABLE (work_price DECIMAL(18,2)); " +
+            "UPDATE Works WITH (ROWLOCK) SET work_status = ? OUTPUT deleted.work_price INTO @changed " +
+            "WHERE work_id = ? AND work_status = ?; " +
+            "WITH cur AS (SELECT TOP 1 work_status FROM Trade WHERE work_id = ? ORDER BY trade_id DESC) " +
+            "UPDATE cur SET work_status = ? WHERE EXISTS (SELECT 1 FROM @changed); " +
+            "SELECT work_price FROM @changed";
+
+    // 批量交易：每个订单一条带状态条件的冻结 UPDATE，成功的订单再各写一行 Trade
+    static final String FREEZE_BATCH =
+            "UPDATE w SET w.work_status = 'frozen' FROM Works w WITH (ROWLOCK) " +
+            "JOIN Reservation r ON r.work_id = w.work_id WHERE r.order_id = ? AND w.work_status = 'available'";
+    static final String INSERT_TRADE_BATCH =
+            "INSERT INTO Trade (trade_id, order_id, work_id, work_status) " +
+            "SELECT ?, order_id, work_id, 'frozen' FROM Reservation WHERE order_id = ?";
+
+    /** IN 列表每段的参数个数：固定个数，不足的用 NULL 补齐，语句文本只有一种，执行计划可以复用 */
+    static final int IN_CHUNK = 100;
+    static final String STATUS_BY_ORDER_IDS = statusByOrderIds(IN_CHUNK);
+
+    private final SalesStatsStore salesStats = new SalesStatsStore();
+    private final WorksCache cache;
+
+    public WorkStateMachine() {
+        this(WorksCache.shared());
+    }
+
+    public WorkStateMachine(WorksCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 状态变化是否合法
+     */
+    public static boolean canTransition(String from, String to) {
+        return (AVAILABLE.equals(from) && FROZEN.equals(to))
+                || (FROZEN.equals(from) && (SOLD.equals(to) || AVAILABLE.equals(to)));
+    }
+
+    /**
+     * 按订单交易：商品 available → frozen，并以 tradeId 写入 Trade（同一事务、一次往返）
+     * 调用方负责提交事务；成功时已在同一连接上累加交易统计
+     */
+    public TradeResult freezeForTrade(Connection con, String orderId, String tradeId) throws SQLException {
+        if (con == null) {
+            throw new SQLException("数据库连接不能为null");
+        }
+        try (PreparedStatement ps = con.prepareStatement(FREEZE_FOR_TRADE)) {
+            ps.setString(1, orderId);
+            ps.setString(2, tradeId);
+            ps.setString(3, orderId);
+            ps.setString(4, orderId);
+            try (ResultSet rs = firstResultSet(ps)) {
+                if (rs == null || !rs.next()) {
+                    return new TradeResult(orderId, TradeResult.Outcome.ORDER_NOT_FOUND, null, 0, null);
+                }
+                int workId = rs.getInt("work_id");
+                String status = rs.getString("work_status");
+                if (rs.getInt("won") != 1) {
+                    return new TradeResult(orderId, TradeResult.Outcome.NOT_AVAILABLE, null, workId, status);
+                }
+                salesStats.recordTrade(con, LocalDate.now());
+                cache.invalidate(workId);
+                return new TradeResult(orderId, TradeResult.Outcome.TRADED, tradeId, workId, FROZEN);
+            }
+        }
+    }
+
+    /**
+     * 批量交易：对每个订单执行与 freezeForTrade 相同的比较并交换，但按 JDBC 批处理发送，
+     * 订单数量再多也只需固定几次往返：批量冻结 → 批量写 Trade → 查询各订单的商品与状态。
+     * 同一批中多个订单指向同一商品时，只有排在前面的订单成功。调用方负责提交事务。
+     * @param orderIds 订单号（重复的只处理一次）
+     * @return 每个订单的结果，顺序与去重后的 orderIds 一致
+     */
+    public List<TradeResult> freezeForTrades(Connection con, List<String> orderIds, IdGenerator tradeIds)
+            throws SQLException {
+        if (con == null) {
+            throw new SQLException("数据库连接不能为null");
+        }
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 1. 批量冻结：每个订单一条带状态条件的 UPDATE，影响行数为 1 的订单即为成功方
+        Map<String, String> won = new LinkedHashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(FREEZE_BATCH)) {
+            for (String orderId : ids) {
+                ps.setString(1, orderId);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int i = 0; i < ids.size(); i++) {
+                if (counts[i] < 0) {
+                    // 驱动未返回影响行数（SUCCESS_NO_INFO / EXECUTE_FAILED）时无法区分成功方与失败方，
+                    // 直接报错由调用方回滚整批，不能把这些订单当作失败方静默跳过
+                    throw new SQLException("批量冻结未返回订单 " + ids.get(i) + " 的影响行数（" + counts[i]
+                            + "），无法判断交易是否成功");
+                }
+                if (counts[i] == 1) {
+                    won.put(ids.get(i), tradeIds.nextId());
+                }
+            }
+        }
+        // 2. 批量写 Trade
+        if (!won.isEmpty()) {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_TRADE_BATCH)) {
+                for (Map.Entry<String, String> e : won.entrySet()) {
+                    ps.setString(1, e.getValue());
+                    ps.setString(2, e.getKey());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            salesStats.recordTrades(con, LocalDate.now(), won.size());
+        }
+        // 3. 查询各订单对应的商品与当前状态（IN 列表按固定个数分段，最后一段用 NULL 补齐）
+        Map<String, Object[]> found = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK));
+            try (PreparedStatement ps = con.prepareStatement(STATUS_BY_ORDER_IDS)) {
+                for (int i = 0; i < IN_CHUNK; i++) {
+                    if (i < chunk.size()) {
+                        ps.setString(i + 1, chunk.get(i));
+                    } else {
+                        ps.setNull(i + 1, Types.NVARCHAR);
+                    }
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        found.put(rs.getString("order_id"), new Object[] { rs.getInt("work_id"), rs.getString("work_status") });
+                    }
+                }
+            }
+        }
+        List<TradeResult> results = new ArrayList<>(ids.size());
+        for (String orderId : ids) {
+            Object[] row = found.get(orderId);
+            String tradeId = won.get(orderId);
+            if (tradeId != null) {
+                int workId = row == null ? 0 : (Integer) row[0];
+                cache.invalidate(workId);
+                results.add(new TradeResult(orderId, TradeResult.Outcome.TRADED, tradeId, workId, FROZEN));
+            } else if (row == null) {
+                results.add(new TradeResult(orderId, TradeResult.Outcome.ORDER_NOT_FOUND, null, 0, null));
+            } else {
+                results.add(new TradeResult(orderId, TradeResult.Outcome.NOT_AVAILABLE, null, (Integer) row[0],
+                        (String) row[1]));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 确认售出：frozen → sold
+     * @return 商品当前确为 frozen 且已改为 sold 时返回 true
+     */
+    public boolean markSold(Connection con, int workId) throws SQLException {
+        return transition(con, workId, FROZEN, SOLD);
+    }
+
+    /**
+     * 取消交易：frozen → available
+     */
+    public boolean cancel(Connection con, int workId) throws SQLException {
+        return transition(con, workId, FROZEN, AVAILABLE);
+    }
+
+    /**
+     * 比较并交换商品状态：仅当当前状态为 from 时改为 to
+     * @return 是否改成功（false 表示状态已被其他操作改变）
+     */
+    public boolean transition(Connection con, int workId, String from, String to) throws SQLException {
+        if (con == null) {
+            throw new SQLException("数据库连接不能为null");
+        }
+        if (!canTransition(from, to)) {
+            throw new IllegalArgumentException("不允许的商品状态变化：" + from + " → " + to);
+        }
+        try (PreparedStatement ps = con.prepareStatement(TRANSITION)) {
+            ps.setString(1, to);
+            ps.setInt(2, workId);
+            ps.setString(3, from);
+            ps.setInt(4, workId);
+            ps.setString(5, to);
+            try (ResultSet rs = firstResultSet(ps)) {
+                if (rs == null || !rs.next()) {
+                    return false;
+                }
+                if (SOLD.equals(to)) {
+                    salesStats.recordSale(con, LocalDate.now(), 1, Money.of(rs.getBigDecimal("work_price")));
+                }
+            }
+        }
+        cache.invalidate(workId);
+        return true;
+    }
+
+    private static String statusByOrderIds(int size) {
+        StringBuilder sql = new StringBuilder("SELECT r.order_id, r.work_id, w.work_status FROM Reservation r " +
+                "LEFT JOIN Works w ON w.work_id = r.work_id WHERE r.order_id IN (");
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    /**
+     * 多语句批次中取第一个结果集（跳过可能出现的更新计数）
+     */
+    private static ResultSet firstResultSet(PreparedStatement ps) throws SQLException {
+        boolean isResultSet = ps.execute();
+        while (!isResultSet) {
+            if (ps.getUpdateCount() == -1) {
+                return null;
+            }
+            isResultSet = ps.getMoreResults();
+        }
+        return ps.getResultSet();
+    }
+}
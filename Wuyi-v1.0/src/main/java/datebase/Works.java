@@ -6,7 +6,7 @@ public class Works {
 	String work_name;
 	String work_description;
 	String work_image;
-	String work_price;
+	Money work_price;
 	public int getId() {
 		return work_id;
 	}
@@ -47,17 +47,17 @@ public class Works {
 		this.work_image = work_image;
 	}
 
-	public String getWork_price() {
+	public Money getWork_price() {
 		return work_price;
 	}
 
-	public void setWork_price(String work_price) {
+	public void setWork_price(Money work_price) {
 		this.work_price = work_price;
 	}
 	
 	public Works() {}
 	
-	public Works(int work_id,String work_status, String work_name, String work_description, String work_image, String work_price) {
+	public Works(int work_id,String work_status, String work_name, String work_description, String work_image, Money work_price) {
 		super();
 		this.work_id = work_id;
 		this.work_status = work_status;
@@ -66,7 +66,7 @@ public class Works {
 		this.work_image = work_image;
 		this.work_price = work_price;
 	}
-	public Works(String work_status, String work_name, String work_description, String work_image, String work_price) {
+	public Works(String work_status, String work_name, String work_description, String work_image, Money work_price) {
 		super();
 		this.work_status = work_status;
 		this.work_name = work_name;
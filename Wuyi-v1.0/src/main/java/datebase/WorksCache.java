@@ -0,0 +1,351 @@
+package datebase;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品目录进程内缓存（读穿透 + 写失效）
+ * 按 work_id 倒序保存商品，首个元素即最新上架的商品；完整加载且未超过上限时，
+ * 列表、分页、计数、按 id 查询与最新商品查询都直接命中，不再访问数据库。
+ * 写入方（WorksDaoIplm.insert/update、WorkStateMachine）通过 invalidate / invalidateAll 失效，
+ * 若处于 UnitOfWork 中会在事务结束后再失效一次，避免其他线程在提交前把旧数据重新载入。
+ * 单个商品失效后目录仍视为完整，下次列表查询前只按 id 重新载入失效的商品（RowLoader），不再整表重载。
+ * 缓存中保存的是副本，返回给调用方的也是副本，调用方修改不会影响缓存。
+ */
+public final class WorksCache {
+
+    /**
+     * 缓存未命中时的数据库加载逻辑
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    /**
+     * 按 work_id 重新载入单个商品，商品已不存在时返回 null
+     */
+    @FunctionalInterface
+    public interface RowLoader {
+        Works load(int workId) throws SQLException;
+    }
+
+    private static volatile WorksCache shared;
+
+    private final int maxSize;
+    // work_id 倒序：firstEntry 即最新商品，超出上限时从末尾（最旧）淘汰
+    private final ConcurrentSkipListMap<Integer, Works> byId = new ConcurrentSkipListMap<>(Collections.reverseOrder());
+    // 缓存中是否为完整的商品目录
+    private volatile boolean complete;
+    // 最近一次完整加载时目录超过上限（新增商品时重置），此后分页直接查数据库
+    private volatile boolean oversized;
+    // 已知的最新 work_id（新增商品时清空）
+    private volatile Integer latestId;
+    // 完整目录中已失效、尚未重新载入的商品：work_id → 失效时的 generation
+    private final ConcurrentHashMap<Integer, Long> stale = new ConcurrentHashMap<>();
+    // 每次失效递增；加载开始后若发生过失效，加载结果不写入缓存
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public WorksCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("商品缓存上限必须大于0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 全局共享实例，上限取自 AppConfig 中的 cache.works.maxSize（未经 init 时按 AppConfig.get() 创建）
+     */
+    public static WorksCache shared() {
+        WorksCache c = shared;
+        if (c == null) {
+            synchronized (WorksCache.class) {
+                c = shared;
+                if (c == null) {
+                    c = new WorksCache(AppConfig.get().getWorksCacheMaxSize());
+                    shared = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * 应用启动时调用：按启动时加载的配置创建共享实例
+     */
+    public static synchronized void init(AppConfig config) {
+        shared = new WorksCache(config.getWorksCacheMaxSize());
+    }
+
+    /**
+     * 全部商品（按 work_id 升序）；存在失效商品时整表重新载入
+     */
+    public List<Works> all(Loader<List<Works>> loader) throws SQLException {
+        return all(loader, null);
+    }
+
+    /**
+     * 全部商品（按 work_id 升序）
+     * @param rows 按 id 重新载入失效商品，为 null 时整表重新载入
+     */
+    public List<Works> all(Loader<List<Works>> loader, RowLoader rows) throws SQLException {
+        if (complete && refreshStale(rows)) {
+            hits.incrementAndGet();
+            List<Works> list = new ArrayList<>(byId.size());
+            for (Works wk : byId.descendingMap().values()) {
+                list.add(copyOf(wk));
+            }
+            return list;
+        }
+        misses.incrementAndGet();
+        long gen = generation.get();
+        List<Works> loaded = loader.load();
+        loads.incrementAndGet();
+        install(loaded, gen, true);
+        return loaded;
+    }
+
+    /**
+     * 按 work_id 查询，不存在时返回 null（不缓存空结果）
+     */
+    public Works get(int workId, Loader<Works> loader) throws SQLException {
+        Works cached = byId.get(workId);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return copyOf(cached);
+        }
+        misses.incrementAndGet();
+        long gen = generation.get();
+        Works loaded = loader.load();
+        loads.incrementAndGet();
+        if (loaded != null) {
+            install(Collections.singletonList(loaded), gen, false);
+        }
+        return loaded;
+    }
+
+    /**
+     * 最新上架（work_id 最大）的商品，没有商品时返回 null
+     */
+    public Works latest(Loader<Works> loader) throws SQLException {
+        Integer id = latestId;
+        if (id != null) {
+            Works cached = byId.get(id);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return copyOf(cached);
+            }
+        } else if (complete && byId.isEmpty() && stale.isEmpty()) {
+            hits.incrementAndGet();
+            return null;
+        }
+        misses.incrementAndGet();
+        long gen = generation.get();
+        Works loaded = loader.load();
+        loads.incrementAndGet();
+        if (loaded != null) {
+            install(Collections.singletonList(loaded), gen, false);
+            synchronized (this) {
+                if (generation.get() == gen) {
+                    latestId = loaded.getId();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 分页（按 work_id 倒序，status 为 null 时不筛选）
+     * 缓存不完整时先用 fullLoader 载入整个目录；目录超过上限无法完整缓存时，交给 pageLoader 在数据库中分页
+     */
+    public List<Works> page(String status, int offset, int limit, Loader<List<Works>> fullLoader,
+                            Loader<List<Works>> pageLoader) throws SQLException {
+        return page(status, offset, limit, fullLoader, pageLoader, null);
+    }
+
+    /**
+     * 分页；rows 用于按 id 重新载入失效商品（见 all）
+     */
+    public List<Works> page(String status, int offset, int limit, Loader<List<Works>> fullLoader,
+                            Loader<List<Works>> pageLoader, RowLoader rows) throws SQLException {
+        if (!ensureComplete(fullLoader, rows)) {
+            return pageLoader.load();
+        }
+        List<Works> list = new ArrayList<>(limit);
+        int skipped = 0;
+        for (Works wk : byId.values()) {
+            if (status != null && !status.equals(wk.getWork_status())) {
+                continue;
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            if (list.size() == limit) {
+                break;
+            }
+            list.add(copyOf(wk));
+        }
+        return list;
+    }
+
+    /**
+     * 满足状态筛选的商品数；规则同 page
+     */
+    public int count(String status, Loader<List<Works>> fullLoader, Loader<Integer> countLoader) throws SQLException {
+        return count(status, fullLoader, countLoader, null);
+    }
+
+    /**
+     * 计数；rows 用于按 id 重新载入失效商品（见 all）
+     */
+    public int count(String status, Loader<List<Works>> fullLoader, Loader<Integer> countLoader, RowLoader rows)
+            throws SQLException {
+        if (!ensureComplete(fullLoader, rows)) {
+            return countLoader.load();
+        }
+        if (status == null) {
+            return byId.size();
+        }
+        int n = 0;
+        for (Works wk : byId.values()) {
+            if (status.equals(wk.getWork_status())) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 确保缓存中是完整目录：命中（失效商品已按 id 重新载入）计一次 hit；否则（目录未超过上限时）整体载入一次
+     * @return 缓存是否为完整目录
+     */
+    private boolean ensureComplete(Loader<List<Works>> fullLoader, RowLoader rows) throws SQLException {
+        if (complete && refreshStale(rows)) {
+            hits.incrementAndGet();
+            return true;
+        }
+        misses.incrementAndGet();
+        if (oversized) {
+            return false;
+        }
+        long gen = generation.get();
+        List<Works> loaded = fullLoader.load();
+        loads.incrementAndGet();
+        install(loaded, gen, true);
+        return complete && stale.isEmpty();
+    }
+
+    /**
+     * 按 id 重新载入完整目录中失效的商品；载入期间同一商品再次失效时保留失效标记
+     * @return 是否已没有失效商品（rows 为 null 且存在失效商品时返回 false，由调用方整表重新载入）
+     */
+    private boolean refreshStale(RowLoader rows) throws SQLException {
+        if (stale.isEmpty()) {
+            return true;
+        }
+        if (rows == null) {
+            return false;
+        }
+        for (Map.Entry<Integer, Long> e : new ArrayList<>(stale.entrySet())) {
+            Works loaded = rows.load(e.getKey());
+            loads.incrementAndGet();
+            synchronized (this) {
+                if (stale.remove(e.getKey(), e.getValue()) && loaded != null) {
+                    byId.put(loaded.getId(), copyOf(loaded));
+                }
+            }
+        }
+        return complete && stale.isEmpty();
+    }
+
+    /**
+     * 单个商品被修改：移除该商品并记为失效，目录仍视为完整，下次列表查询前按 id 重新载入该商品
+     * 在工作单元中调用时事务结束后会再失效一次；自行管理事务（setAutoCommit(false) / commit）的调用方
+     * 须在 commit() 之后再调用一次，否则提交前被并发读取载入的旧行会留在缓存中
+     */
+    public void invalidate(int workId) {
+        evict(workId);
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCompletion(() -> evict(workId));
+        }
+    }
+
+    /**
+     * 新增商品或批量修改：清空缓存
+     */
+    public void invalidateAll() {
+        clear();
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCompletion(this::clear);
+        }
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(byId.size(), maxSize, hits.get(), misses.get(), loads.get(), evictions.get(),
+                invalidations.get());
+    }
+
+    private synchronized void evict(int workId) {
+        long gen = generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        byId.remove(workId);
+        if (complete) {
+            stale.put(workId, gen);
+        }
+    }
+
+    private synchronized void clear() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        complete = false;
+        oversized = false;
+        latestId = null;
+        byId.clear();
+        stale.clear();
+    }
+
+    private synchronized void install(List<Works> loaded, long gen, boolean full) {
+        if (generation.get() != gen) {
+            return;
+        }
+        for (Works wk : loaded) {
+            byId.put(wk.getId(), copyOf(wk));
+            stale.remove(wk.getId());
+        }
+        if (full) {
+            stale.clear();
+            complete = loaded.size() <= maxSize;
+            oversized = !complete;
+            Map.Entry<Integer, Works> first = byId.firstEntry();
+            latestId = first == null ? null : first.getKey();
+        }
+        while (byId.size() > maxSize) {
+            Map.Entry<Integer, Works> oldest = byId.pollLastEntry();
+            if (oldest == null) {
+                break;
+            }
+            evictions.incrementAndGet();
+            complete = false;
+            if (oldest.getKey().equals(latestId)) {
+                latestId = null;
+            }
+        }
+    }
+
+    private static Works copyOf(Works wk) {
+        return new Works(wk.getId(), wk.getWork_status(), wk.getWork_name(), wk.getWork_description(),
+                wk.getWork_image(), wk.getWork_price());
+    }
+}
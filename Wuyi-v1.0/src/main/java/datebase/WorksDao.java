@@ -2,13 +2,25 @@ package datebase;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 
 
 public interface WorksDao  {
+	/** 更新商品名称、描述、图片与价格；不修改状态（状态变化见 WorkStateMachine.transition） */
 	public void update(Connection con,Works wk)throws SQLException;
 	public List<Works> serachAll(Connection con)throws SQLException;
 	public void insert(Connection con,Works wk)throws SQLException;
+	/** 按 work_id 查询商品，不存在时返回 null */
+	public Works findById(Connection con,int workId)throws SQLException;
+	/** 最新上架（work_id 最大）的商品，没有商品时返回 null */
+	public Works findLatest(Connection con)throws SQLException;
+	/** 分页查询商品（按 work_id 倒序），status 为空时不筛选 */
+	public List<Works> listPage(Connection con,String status,int offset,int limit)throws SQLException;
+	/** 满足状态筛选的商品数，status 为空时统计全部 */
+	public int count(Connection con,String status)throws SQLException;
+	/** 批量新增商品：边读边写，每 chunkSize 行执行一次 executeBatch，事务由调用方控制 */
+	public ImportReport insertBatch(Connection con,Iterator<Works> works,int chunkSize)throws SQLException;
 
 }
 
@@ -1,65 +1,237 @@
 package datebase;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 
 
 
 public class WorksDaoIplm implements WorksDao {
+			private static final String COLUMNS = "work_id,work_status,work_price,work_name,work_description,work_image";
+			// Works 行映射：列序号每个结果集解析一次
+			static final IndexedRowMapper<Works> MAPPER = new IndexedRowMapper<Works>(
+					"work_id", "work_status", "work_name", "work_description", "work_image", "work_price") {
+				@Override
+				public Works mapRow(ResultSet rs, int[] col) throws SQLException {
+					return new Works(rs.getInt(col[0]), rs.getString(col[1]), rs.getString(col[2]), rs.getString(col[3]),
+							rs.getString(col[4]), getPrice(rs, col[5]));
+				}
+			};
+			private static final String INSERT = "INSERT INTO Works(work_name,work_description,work_image,work_price,work_status) VALUES(?,?,?,?,?)";
+			private static final String FIND_BY_ID = "SELECT " + COLUMNS + " FROM Works WHERE work_id = ?";
+			private static final String FIND_LATEST = "SELECT TOP 1 " + COLUMNS + " FROM Works ORDER BY work_id DESC";
+			private static final String PAGE_ALL = "SELECT " + COLUMNS + " FROM Works ORDER BY work_id DESC"
+					+ " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+			private static final String PAGE_BY_STATUS = "SELECT " + COLUMNS + " FROM Works WHERE work_status = ? ORDER BY work_id DESC"
+					+ " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+			private static final String COUNT_ALL = "SELECT COUNT(1) FROM Works";
+			private static final String COUNT_BY_STATUS = "SELECT COUNT(1) FROM Works WHERE work_status = ?";
+			private static final String LIST_ALL = "select " + COLUMNS + " from Works order by work_id";
+			private static final String LOCK_BY_ID = "SELECT " + COLUMNS + " FROM Works WITH (UPDLOCK) WHERE work_id = ?";
+			// 状态不在此更新：状态变化一律经 WorkStateMachine.transition 比较并交换
+			private static final String UPDATE = "UPDATE Works SET work_name=?,work_description=?,work_image=?,work_price=? WHERE work_id = ?";
+			private static final String MAX_ID = "SELECT ISNULL(MAX(work_id), 0) FROM Works";
+			private final SalesStatsStore salesStats = new SalesStatsStore();
+			// 商品目录缓存：读走缓存，insert/update 后失效
+			private final WorksCache cache;
+
+			public WorksDaoIplm() {
+				this(WorksCache.shared());
+			}
+
+			public WorksDaoIplm(WorksCache cache) {
+				this.cache = cache;
+			}
+
 			@Override
 			public List<Works> serachAll(Connection con)throws SQLException {
-				List<Works> wkList = new ArrayList<Works>();
 				if (con == null) {
 		            throw new SQLException("数据库连接不能为null");
 		        }
-				String sql = "select work_id,work_status,work_price,work_name,work_description,work_image from Works";
-				PreparedStatement ps = con.prepareStatement(sql);
-				ResultSet rs = ps.executeQuery();
-				while(rs.next()) {
-					Works wk = new Works(rs.getInt("work_id"),rs.getString("work_status"), rs.getString("work_name"), rs.getString("work_description"),rs.getString("work_image"), rs.getString("work_price"));
-					wkList.add(wk);
-				}
-				return wkList;
+				return Metrics.dao("WorksDaoIplm.serachAll", () -> cache.all(() -> queryAll(con), rowLoader(con)));
+			}
+
+			@Override
+			public Works findById(Connection con, int workId) throws SQLException {
+				if (con == null) {
+		            throw new SQLException("数据库连接不能为null");
+		        }
+				return Metrics.dao("WorksDaoIplm.findById", () -> cache.get(workId,
+						() -> JdbcTemplate.queryOne(con, FIND_BY_ID, MAPPER, workId)));
+			}
+
+			@Override
+			public Works findLatest(Connection con) throws SQLException {
+				if (con == null) {
+		            throw new SQLException("数据库连接不能为null");
+		        }
+				return Metrics.dao("WorksDaoIplm.findLatest", () -> cache.latest(
+						() -> JdbcTemplate.queryOne(con, FIND_LATEST, MAPPER)));
+			}
+
+			@Override
+			public List<Works> listPage(Connection con, String status, int offset, int limit) throws SQLException {
+				if (con == null) {
+		            throw new SQLException("数据库连接不能为null");
+		        }
+				String filter = normalizeStatus(status);
+				return Metrics.dao("WorksDaoIplm.listPage", () -> cache.page(filter, offset, limit, () -> queryAll(con), () -> filter == null
+						? JdbcTemplate.query(con, PAGE_ALL, MAPPER, offset, limit)
+						: JdbcTemplate.query(con, PAGE_BY_STATUS, MAPPER, filter, offset, limit), rowLoader(con)));
+			}
+
+			@Override
+			public int count(Connection con, String status) throws SQLException {
+				if (con == null) {
+		            throw new SQLException("数据库连接不能为null");
+		        }
+				String filter = normalizeStatus(status);
+				return Metrics.dao("WorksDaoIplm.count", () -> cache.count(filter, () -> queryAll(con), () -> filter == null
+						? JdbcTemplate.queryInt(con, COUNT_ALL)
+						: JdbcTemplate.queryInt(con, COUNT_BY_STATUS, filter), rowLoader(con)));
+			}
+
+			private static String normalizeStatus(String status) {
+				return status == null || status.trim().isEmpty() ? null : status.trim();
+			}
+
+			private List<Works> queryAll(Connection con) throws SQLException {
+				return JdbcTemplate.query(con, LIST_ALL, MAPPER);
 			}
+
+			// 缓存中单个商品失效后按 id 重新载入，不整表重载
+			private static WorksCache.RowLoader rowLoader(Connection con) {
+				return workId -> JdbcTemplate.queryOne(con, FIND_BY_ID, MAPPER, workId);
+			}
+
 			@Override
 			public void update(Connection con,Works wk) throws SQLException {
 				 if (con == null) {
 			            throw new SQLException("数据库连接不能为null");
 			        }
-	        String sql = "UPDATE Works SET work_name=?,work_description=?,work_image=?,work_price=?,work_status=? WHERE work_id = ?";
-		        PreparedStatement ps = con.prepareStatement(sql);
-				ps.setString(1, wk.getWork_name());
-				ps.setString(2, wk.getWork_description());
-				ps.setString(3, wk.getWork_image());
-				ps.setString(4, wk.getWork_price());
-				ps.setString(5, wk.getWork_status());
-				ps.setInt(6, wk.getId());
-				ps.executeUpdate();
-			String sql2 = "UPDATE Trade SET work_status=? WHERE work_id = ?";
-				PreparedStatement ps2 = con.prepareStatement(sql2);
-				ps2.setString(1, wk.getWork_status());
-				ps2.setInt(2, wk.getId());
-				ps2.executeUpdate();
+				Metrics.dao("WorksDaoIplm.update", rows -> rows, () -> {
+					// 先锁定并读取原状态与价格，已售商品改价时增量维护销售统计
+					Works old = JdbcTemplate.queryOne(con, LOCK_BY_ID,
+							MAPPER, wk.getId());
+					int rows = JdbcTemplate.update(con, UPDATE,
+							wk.getWork_name(), wk.getWork_description(), wk.getWork_image(), wk.getWork_price(), wk.getId());
+					recordPriceChange(con, old, wk);
+					cache.invalidate(wk.getId());
+					OrderSearchIndex.shared().putWork(wk.getId(), wk.getWork_name());
+					return rows;
+				});
 	       }
+
+			/**
+			 * 已售商品改价时，更新 SalesStats 中的已售金额（已售数量随状态变化由 WorkStateMachine 维护）
+			 */
+			private void recordPriceChange(Connection con, Works old, Works wk) throws SQLException {
+				if (old == null || !"sold".equals(old.getWork_status())) {
+					return;
+				}
+				salesStats.recordSale(con, LocalDate.now(), 0, wk.getWork_price().minus(old.getWork_price()));
+			}
 			@Override
 			public void insert(Connection con, Works wk) throws SQLException {
 				if (con == null) {
 		            throw new SQLException("数据库连接不能为null");
 		        }
-				String sql = "INSERT INTO Works(work_name,work_description,work_image,work_price,work_status) VALUES(?,?,?,?,?)";
-				PreparedStatement ps = con.prepareStatement(sql);
+				Metrics.dao("WorksDaoIplm.insert", rows -> rows, () -> {
+					int rows;
+					// 取回自增的 work_id，登记到订单搜索索引
+					try (PreparedStatement ps = con.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+						bindInsert(ps, wk);
+						rows = ps.executeUpdate();
+						try (ResultSet keys = ps.getGeneratedKeys()) {
+							if (keys.next()) {
+								wk.setId(keys.getInt(1));
+								OrderSearchIndex.shared().putWork(wk.getId(), wk.getWork_name());
+							}
+						}
+					}
+					cache.invalidateAll();
+					return rows;
+				});
+			}
+
+			@Override
+			public ImportReport insertBatch(Connection con, Iterator<Works> works, int chunkSize) throws SQLException {
+				if (con == null) {
+		            throw new SQLException("数据库连接不能为null");
+		        }
+				if (chunkSize < 1) {
+					throw new IllegalArgumentException("每批行数必须大于0");
+				}
+				return Metrics.dao("WorksDaoIplm.insertBatch", ImportReport::getRows, () -> {
+					long start = System.nanoTime();
+					long rows = 0;
+					int batches = 0;
+					int pending = 0;
+					// 批量插入拿不到每行的自增主键：记下插入前的最大 work_id，结束后把其后的商品登记到订单搜索索引
+					OrderSearchIndex index = OrderSearchIndex.shared();
+					int maxIdBefore = index.isTracking()
+							? JdbcTemplate.queryInt(con, MAX_ID) : -1;
+					// 同一条预编译语句反复 addBatch，每满 chunkSize 行发送一次，内存中最多保留一批参数
+					try (PreparedStatement ps = con.prepareStatement(INSERT)) {
+						while (works.hasNext()) {
+							bindInsert(ps, works.next());
+							ps.addBatch();
+							rows++;
+							if (++pending == chunkSize) {
+								ps.executeBatch();
+								batches++;
+								pending = 0;
+							}
+						}
+						if (pending > 0) {
+							ps.executeBatch();
+							batches++;
+						}
+					} finally {
+						if (rows > 0) {
+							cache.invalidateAll();
+						}
+					}
+					if (rows > 0 && maxIdBefore >= 0) {
+						index.loadWorksAfter(con, maxIdBefore);
+					}
+					return new ImportReport(rows, batches, System.nanoTime() - start);
+				});
+			}
+
+			private static void bindInsert(PreparedStatement ps, Works wk) throws SQLException {
 				ps.setString(1, wk.getWork_name());
 				ps.setString(2, wk.getWork_description());
 				ps.setString(3, wk.getWork_image());
-				ps.setString(4, wk.getWork_price());
+				ps.setBigDecimal(4, wk.getWork_price().toBigDecimal());
 				ps.setString(5, wk.getWork_status());
-				ps.executeUpdate();
+			}
+
+			/**
+			 * 本类执行的 SQL 及示例参数，供 QueryPlanAdvisor 检查执行计划（全表读取、不带条件的计数本身就要扫描，不报告扫描）
+			 */
+			static List<QueryPlanAdvisor.Query> planQueries() {
+				BigDecimal price = new BigDecimal("99.00");
+				return Arrays.asList(
+						new QueryPlanAdvisor.Query("WorksDaoIplm.findById", FIND_BY_ID, 1),
+						new QueryPlanAdvisor.Query("WorksDaoIplm.findLatest", FIND_LATEST),
+						new QueryPlanAdvisor.Query("WorksDaoIplm.listPage", PAGE_ALL, 0, 20),
+						new QueryPlanAdvisor.Query("WorksDaoIplm.listPage(status)", PAGE_BY_STATUS, "available", 0, 20),
+						QueryPlanAdvisor.Query.fullScan("WorksDaoIplm.count", COUNT_ALL),
+						new QueryPlanAdvisor.Query("WorksDaoIplm.count(status)", COUNT_BY_STATUS, "available"),
+						QueryPlanAdvisor.Query.fullScan("WorksDaoIplm.serachAll", LIST_ALL),
+						new QueryPlanAdvisor.Query("WorksDaoIplm.update(lock)", LOCK_BY_ID, 1),
+						new QueryPlanAdvisor.Query("WorksDaoIplm.update", UPDATE, "名称", "描述", "img/1.jpg", price, 1),
+						new QueryPlanAdvisor.Query("WorksDaoIplm.insert", INSERT, "名称", "描述", "img/1.jpg", price, "available"),
+						new QueryPlanAdvisor.Query("WorksDaoIplm.insertBatch(maxId)", MAX_ID));
 			}
 }
@@ -0,0 +1,140 @@
+package datebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 商品批量导入的数据源：逐条读取上传文件中的商品，不把整个文件读入内存
+ * 字段名与 Works 表列名一致：work_name、work_price、work_description、work_image、work_status（可省略，默认 available）
+ * 格式错误时抛 IllegalArgumentException，消息中带有出错的记录序号；读文件失败抛 UncheckedIOException。
+ */
+public abstract class WorksImportReader implements Iterator<Works>, Closeable {
+
+    private final Reader in;
+    private Works next;
+    private boolean finished;
+    // 已读取的记录数（从1开始，用于错误提示）
+    private long record;
+    private boolean started;
+
+    protected WorksImportReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * CSV：首行为表头，字段可用双引号包裹（双引号内的 "" 表示一个引号，可以包含逗号和换行）
+     */
+    public static WorksImportReader csv(Reader in) {
+        return new CsvWorksReader(in);
+    }
+
+    /**
+     * JSON：对象数组，如 [{"work_name":"茶盏","work_price":"128"}]
+     */
+    public static WorksImportReader json(Reader in) {
+        return new JsonWorksReader(in);
+    }
+
+    /**
+     * 按文件名选择格式：.json 为 JSON，其余按 CSV 处理
+     */
+    public static WorksImportReader forFile(String fileName, Reader in) {
+        if (fileName != null && fileName.toLowerCase().endsWith(".json")) {
+            return json(in);
+        }
+        return csv(in);
+    }
+
+    /**
+     * 读取下一条记录（字段名 → 值），没有更多记录时返回 null
+     */
+    protected abstract Map<String, String> readRecord() throws IOException;
+
+    /**
+     * 读取一个字符，跳过文件开头的 UTF-8 BOM
+     */
+    protected int read() throws IOException {
+        int c = in.read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = in.read();
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                Map<String, String> fields = readRecord();
+                if (fields == null) {
+                    finished = true;
+                } else {
+                    record++;
+                    next = toWorks(fields, record);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取导入文件失败：" + e.getMessage(), e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Works next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Works wk = next;
+        next = null;
+        return wk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * 校验一条记录并转换为 Works：名称不能为空，价格必须是最多两位小数的非负数字，状态只能是 available/frozen/sold
+     */
+    static Works toWorks(Map<String, String> fields, long record) {
+        String name = trim(fields.get("work_name"));
+        String priceText = trim(fields.get("work_price"));
+        String status = trim(fields.get("work_status"));
+        if (name == null) {
+            throw new IllegalArgumentException("第" + record + "条记录缺少商品名称（work_name）");
+        }
+        if (priceText == null) {
+            throw new IllegalArgumentException("第" + record + "条记录缺少商品价格（work_price）");
+        }
+        Money price;
+        try {
+            price = Money.parsePrice(priceText);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("第" + record + "条记录的" + e.getMessage());
+        }
+        if (status == null) {
+            status = WorkStateMachine.AVAILABLE;
+        } else if (!status.matches("available|frozen|sold")) {
+            throw new IllegalArgumentException("第" + record + "条记录的商品状态不正确：" + status);
+        }
+        return new Works(status, name, nullToEmpty(trim(fields.get("work_description"))),
+                nullToEmpty(trim(fields.get("work_image"))), price);
+    }
+
+    private static String trim(String s) {
+        return s == null || s.trim().isEmpty() ? null : s.trim();
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
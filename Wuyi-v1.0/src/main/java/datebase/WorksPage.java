@@ -0,0 +1,69 @@
+package datebase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 商品管理页的一页商品（只读，放在 request 中，不进 session）
+ */
+public class WorksPage {
+    private final List<Works> works;
+    private final String status;
+    private final int page;
+    private final int pageSize;
+    private final int totalRecords;
+
+    /**
+     * @param works 当前页商品（按 work_id 倒序）
+     * @param status 状态筛选（available|frozen|sold），不筛选时为 null
+     * @param page 页码（从1开始）
+     * @param pageSize 每页条数
+     * @param totalRecords 满足筛选条件的商品总数
+     */
+    public WorksPage(List<Works> works, String status, int page, int pageSize, int totalRecords) {
+        this.works = Collections.unmodifiableList(new ArrayList<>(works));
+        this.status = status;
+        this.page = page;
+        this.pageSize = pageSize;
+        this.totalRecords = totalRecords;
+    }
+
+    public List<Works> getWorks() {
+        return works;
+    }
+
+    public String getStatus() {
+        return status == null ? "" : status;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getTotalRecords() {
+        return totalRecords;
+    }
+
+    public int getTotalPages() {
+        return Math.max(1, (totalRecords + pageSize - 1) / pageSize);
+    }
+
+    public boolean isHasPrev() {
+        return page > 1;
+    }
+
+    public boolean isHasNext() {
+        return page < getTotalPages();
+    }
+
+    @Override
+    public String toString() {
+        return "WorksPage [page=" + page + "/" + getTotalPages() + ", status=" + status + ", works=" + works.size()
+                + ", totalRecords=" + totalRecords + "]";
+    }
+}
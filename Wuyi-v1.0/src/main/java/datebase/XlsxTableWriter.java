@@ -0,0 +1,198 @@
+package datebase;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * XLSX 格式的表格导出：XLSX 是若干 XML 文件组成的 zip 包，工作表 XML 边写边压缩输出，
+ * 文本用内联字符串（inlineStr）而不是共享字符串表，因此无需在内存中保留任何行。
+ * 单张工作表最多 1048576 行，写满后续写到下一张工作表，并重复第一行（表头）。
+ * 目录 [Content_Types].xml 与 workbook.xml 依赖工作表数量，在 close 时最后写入（zip 内条目顺序无关）。
+ */
+class XlsxTableWriter extends TableExportWriter {
+
+    /** Excel 单张工作表的行数上限 */
+    static final int MAX_ROWS_PER_SHEET = 1_048_576;
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final int maxRowsPerSheet;
+    private int sheets;
+    private int rowsInSheet;
+    private boolean sheetOpen;
+    // 第一行（表头），换到新工作表时重复写入
+    private Object[] header;
+
+    XlsxTableWriter(OutputStream out) {
+        this(out, MAX_ROWS_PER_SHEET);
+    }
+
+    XlsxTableWriter(OutputStream out, int maxRowsPerSheet) {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 16 * 1024);
+        this.maxRowsPerSheet = maxRowsPerSheet;
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    }
+
+    @Override
+    public String getExtension() {
+        return "xlsx";
+    }
+
+    @Override
+    public void writeRow(Object... cells) throws IOException {
+        if (header == null) {
+            header = cells.clone();
+        }
+        if (!sheetOpen) {
+            openSheet();
+        } else if (rowsInSheet == maxRowsPerSheet) {
+            closeSheet();
+            openSheet();
+            appendRow(header);
+        }
+        appendRow(cells);
+    }
+
+    private void appendRow(Object[] cells) throws IOException {
+        out.write("<row>");
+        for (Object cell : cells) {
+            if (cell == null) {
+                out.write("<c/>");
+            } else if (cell instanceof Number) {
+                out.write("<c><v>");
+                out.write(cell instanceof BigDecimal ? ((BigDecimal) cell).toPlainString() : cell.toString());
+                out.write("</v></c>");
+            } else {
+                out.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+                writeEscaped(text(cell));
+                out.write("</t></is></c>");
+            }
+        }
+        out.write("</row>");
+        rowsInSheet++;
+    }
+
+    /**
+     * 转义 XML 特殊字符，并去掉 XML 1.0 不允许出现的控制字符
+     */
+    private void writeEscaped(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                default:
+                    if (c >= 0x20 && c != '\uFFFE' && c != '\uFFFF' || c == '\t' || c == '\n' || c == '\r') {
+                        out.write(c);
+                    }
+            }
+        }
+    }
+
+    private void openSheet() throws IOException {
+        sheets++;
+        rowsInSheet = 0;
+        putEntry("xl/worksheets/sheet" + sheets + ".xml");
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        sheetOpen = true;
+    }
+
+    private void closeSheet() throws IOException {
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+        sheetOpen = false;
+    }
+
+    private void putEntry(String name) throws IOException {
+        out.flush();
+        zip.putNextEntry(new ZipEntry(name));
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        putEntry(name);
+        out.write(content);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!sheetOpen) {
+                openSheet();
+            }
+            closeSheet();
+
+            StringBuilder types = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                    + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                    + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                    + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                    + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+            StringBuilder sheetList = new StringBuilder();
+            StringBuilder rels = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+            for (int i = 1; i <= sheets; i++) {
+                types.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                     .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+                sheetList.append("<sheet name=\"Sheet").append(i).append("\" sheetId=\"").append(i)
+                         .append("\" r:id=\"rId").append(i).append("\"/>");
+                rels.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                    .append(i).append(".xml\"/>");
+            }
+            rels.append("<Relationship Id=\"rId").append(sheets + 1)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>")
+                .append("</Relationships>");
+            types.append("</Types>");
+
+            writeEntry("xl/_rels/workbook.xml.rels", rels.toString());
+            writeEntry("xl/workbook.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                    + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                    + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>"
+                    + sheetList + "</sheets></workbook>");
+            writeEntry("xl/styles.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                    + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                    + "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                    + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                    + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                    + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                    + "<cellXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/></cellXfs>"
+                    + "</styleSheet>");
+            writeEntry("_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+            writeEntry("[Content_Types].xml", types.toString());
+            zip.finish();
+        } finally {
+            zip.close();
+        }
+    }
+}
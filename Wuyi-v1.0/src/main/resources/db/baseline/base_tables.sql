@@ -0,0 +1,57 @@
+-- 基础表结构（基线脚本，不属于 db/migration 的版本链，不写入 schema_version）：
+-- 仓库中原先没有建表脚本，新环境只能照着现有库手工建表。
+-- 执行规则：SchemaMigrator 在执行迁移前检查，库中还没有 Works 表（全新的空库）时才执行本脚本，否则整体跳过；
+-- 已有库的表结构以库中现状为准，本脚本不会对其做任何检查或修改。
+-- 这里按应用当前使用的最终形态建表（work_price 为 DECIMAL(18,2)、Reservation 带 trading_at/ordered_at），
+-- 因此在空库上执行后 V1、V4 中的改列批次会自动跳过。
+-- 文本列用 NVARCHAR：驱动默认以 NVARCHAR 发送字符串参数，列类型一致时条件比较不需要隐式转换。
+-- 已有库若为 VARCHAR 列，这里的定义不会生效，由 QueryPlanAdvisor（schema.planCheckOnStartup 或 Servlet.QueryPlanCheck）报告隐式转换。
+-- 各批次以 GO 分隔，自动提交执行；脚本可重复执行。
+
+IF OBJECT_ID('Works', 'U') IS NULL
+    CREATE TABLE Works (
+        work_id          INT IDENTITY(1,1) NOT NULL,
+        work_name        NVARCHAR(100)     NOT NULL,
+        work_description NVARCHAR(1000)    NULL,
+        work_image       NVARCHAR(255)     NULL,
+        work_price       DECIMAL(18,2)     NOT NULL DEFAULT 0,
+        work_status      NVARCHAR(20)      NOT NULL DEFAULT 'available',   -- available / frozen / sold
+        CONSTRAINT PK_Works PRIMARY KEY (work_id)
+    );
+GO
+
+-- 预订（买家信息）：order_id 为 DD00001 格式，trading_time / order_time 为页面提交的原始字符串，
+-- trading_at / ordered_at 为对应的 datetime2 列（筛选与排序只用这两列）
+IF OBJECT_ID('Reservation', 'U') IS NULL
+    CREATE TABLE Reservation (
+        order_id          NVARCHAR(20)  NOT NULL,
+        order_time        NVARCHAR(30)  NULL,
+        buyer_name        NVARCHAR(50)  NOT NULL,
+        buyer_phonenumber NVARCHAR(20)  NOT NULL,
+        trading_address   NVARCHAR(200) NULL,
+        trading_time      NVARCHAR(30)  NULL,
+        work_id           INT           NOT NULL,
+        ordered_at        DATETIME2(0)  NULL,
+        trading_at        DATETIME2(0)  NULL,
+        CONSTRAINT PK_Reservation PRIMARY KEY (order_id)
+    );
+GO
+
+-- 交易：trade_id 为 TD 前缀的 Snowflake 编号，work_status 与商品状态同步
+IF OBJECT_ID('Trade', 'U') IS NULL
+    CREATE TABLE Trade (
+        trade_id    NVARCHAR(32) NOT NULL,
+        order_id    NVARCHAR(20) NOT NULL,
+        work_id     INT          NOT NULL,
+        work_status NVARCHAR(20) NOT NULL,
+        CONSTRAINT PK_Trade PRIMARY KEY (trade_id)
+    );
+GO
+
+IF OBJECT_ID('Merchant', 'U') IS NULL
+    CREATE TABLE Merchant (
+        merchant_name     NVARCHAR(50)  NOT NULL,
+        merchant_password NVARCHAR(200) NOT NULL,
+        CONSTRAINT PK_Merchant PRIMARY KEY (merchant_name)
+    );
+GO
@@ -0,0 +1,43 @@
+-- Reservation 的 trading_time / order_time 为 varchar，按时间筛选只能 TRY_CONVERT 后比较，无法走索引。
+-- 新增 datetime2 列 trading_at / ordered_at，分批回填历史数据，并按列表页排序键建立索引。
+-- 各批次以 GO 分隔，自动提交执行；脚本可重复执行。
+
+IF COL_LENGTH('Reservation', 'trading_at') IS NULL
+    ALTER TABLE Reservation ADD trading_at DATETIME2(0) NULL;
+GO
+
+IF COL_LENGTH('Reservation', 'ordered_at') IS NULL
+    ALTER TABLE Reservation ADD ordered_at DATETIME2(0) NULL;
+GO
+
+-- 分批回填（每批 5000 行，每个 UPDATE 单独提交，避免长事务与锁升级）
+DECLARE @rows INT = 1;
+WHILE @rows > 0
+BEGIN
+    UPDATE TOP (5000) Reservation
+       SET trading_at = TRY_CONVERT(DATETIME2(0), trading_time, 120)
+     WHERE trading_at IS NULL
+       AND TRY_CONVERT(DATETIME2(0), trading_time, 120) IS NOT NULL;
+    SET @rows = @@ROWCOUNT;
+END
+GO
+
+DECLARE @rows INT = 1;
+WHILE @rows > 0
+BEGIN
+    UPDATE TOP (5000) Reservation
+       SET ordered_at = TRY_CONVERT(DATETIME2(0), order_time, 120)
+     WHERE ordered_at IS NULL
+       AND TRY_CONVERT(DATETIME2(0), order_time, 120) IS NOT NULL;
+    SET @rows = @@ROWCOUNT;
+END
+GO
+
+-- 历史列表按 (trading_at DESC, order_id DESC) 排序与游标定位
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Reservation_trading_at' AND object_id = OBJECT_ID('Reservation'))
+    CREATE INDEX IX_Reservation_trading_at ON Reservation (trading_at DESC, order_id DESC) INCLUDE (work_id);
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Reservation_ordered_at' AND object_id = OBJECT_ID('Reservation'))
+    CREATE INDEX IX_Reservation_ordered_at ON Reservation (ordered_at DESC);
+GO
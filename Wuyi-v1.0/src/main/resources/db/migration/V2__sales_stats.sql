@@ -0,0 +1,45 @@
+-- 历史页统计原先只汇总当前页数据，增长率固定为 0。
+-- 新增物化汇总表 SalesStats：按日(D)、月(M)、累计(A) 三种粒度保存交易数、已售数与已售金额，
+-- 写入路径（BuyerDaoimpl.Trade / WorksDaoIplm.update）在同一事务内增量维护，读取只需按主键取几行。
+-- 各批次以 GO 分隔，自动提交执行；脚本可重复执行。
+
+IF OBJECT_ID('SalesStats', 'U') IS NULL
+    CREATE TABLE SalesStats (
+        period_type  CHAR(1)       NOT NULL,              -- D 日 / M 月 / A 累计
+        period_start DATE          NOT NULL,              -- 日期 / 当月 1 日 / 累计固定为 1900-01-01
+        trade_count  INT           NOT NULL DEFAULT 0,
+        sold_count   INT           NOT NULL DEFAULT 0,
+        sold_amount  DECIMAL(18,2) NOT NULL DEFAULT 0,
+        CONSTRAINT PK_SalesStats PRIMARY KEY (period_type, period_start)
+    );
+GO
+
+-- 按现有数据回填（仅在表为空时执行）：
+-- 交易按关联预订的交易时间归期，已售商品按其最近一笔预订的交易时间归期，缺失时记入迁移当天
+IF NOT EXISTS (SELECT 1 FROM SalesStats)
+BEGIN
+    WITH ev AS (
+        SELECT CAST(COALESCE(r.trading_at, r.ordered_at, SYSDATETIME()) AS DATE) AS d,
+               1 AS trades, 0 AS sold, CAST(0 AS DECIMAL(18,2)) AS amount
+          FROM Trade t
+          LEFT JOIN Reservation r ON r.order_id = t.order_id
+        UNION ALL
+        SELECT CAST(COALESCE(x.last_at, SYSDATETIME()) AS DATE),
+               0, 1, COALESCE(TRY_CONVERT(DECIMAL(18,2), w.work_price), 0)
+          FROM Works w
+         OUTER APPLY (SELECT MAX(COALESCE(r.trading_at, r.ordered_at)) AS last_at
+                        FROM Reservation r WHERE r.work_id = w.work_id) x
+         WHERE w.work_status = 'sold'
+    ), b AS (
+        SELECT 'D' AS period_type, d AS period_start, trades, sold, amount FROM ev
+        UNION ALL
+        SELECT 'M', DATEFROMPARTS(YEAR(d), MONTH(d), 1), trades, sold, amount FROM ev
+        UNION ALL
+        SELECT 'A', CAST('1900-01-01' AS DATE), trades, sold, amount FROM ev
+    )
+    INSERT INTO SalesStats (period_type, period_start, trade_count, sold_count, sold_amount)
+    SELECT period_type, period_start, SUM(trades), SUM(sold), SUM(amount)
+      FROM b
+     GROUP BY period_type, period_start;
+END
+GO
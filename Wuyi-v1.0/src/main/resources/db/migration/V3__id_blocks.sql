@@ -0,0 +1,18 @@
+-- 订单号原先由 SELECT MAX(order_id) + 1 生成，需要扫描索引且并发下会重复。
+-- 新增号段表 IdBlock：应用每次原子地预留一段编号（UPDATE ... OUTPUT），段内编号在内存中分配。
+-- 各批次以 GO 分隔，自动提交执行；脚本可重复执行。
+
+IF OBJECT_ID('IdBlock', 'U') IS NULL
+    CREATE TABLE IdBlock (
+        name       VARCHAR(50) NOT NULL PRIMARY KEY,
+        next_value BIGINT      NOT NULL
+    );
+GO
+
+-- 订单号（DD00001 格式）从现有最大编号之后开始
+IF NOT EXISTS (SELECT 1 FROM IdBlock WHERE name = 'order')
+    INSERT INTO IdBlock (name, next_value)
+    SELECT 'order', COALESCE(MAX(TRY_CONVERT(BIGINT, SUBSTRING(order_id, 3, 20))), 0) + 1
+      FROM Reservation
+     WHERE order_id LIKE 'DD%';
+GO
@@ -0,0 +1,37 @@
+-- Works.work_price 为 varchar，金额汇总、改价时的已售金额调整都要逐行解析字符串，非法值只能按 0 计。
+-- 改为 DECIMAL(18,2)：新增列分批回填后替换原列，列名不变（应用侧以 datebase.Money 按分读写）。
+-- 无法解析的历史价格回填为 0。各批次以 GO 分隔，自动提交执行；脚本可重复执行，
+-- 引用临时列 work_price_dec 的语句放在动态 SQL 中，列替换完成后重跑时批次仍能编译。
+
+IF TYPE_NAME((SELECT system_type_id FROM sys.columns
+               WHERE object_id = OBJECT_ID('Works') AND name = 'work_price')) <> 'decimal'
+   AND COL_LENGTH('Works', 'work_price_dec') IS NULL
+    ALTER TABLE Works ADD work_price_dec DECIMAL(18,2) NULL;
+GO
+
+-- 分批回填（每批 5000 行，每个 UPDATE 单独提交）
+IF COL_LENGTH('Works', 'work_price_dec') IS NOT NULL
+    EXEC ('DECLARE @rows INT = 1;
+           WHILE @rows > 0
+           BEGIN
+               UPDATE TOP (5000) Works
+                  SET work_price_dec = COALESCE(TRY_CONVERT(DECIMAL(18,2), work_price), 0)
+                WHERE work_price_dec IS NULL;
+               SET @rows = @@ROWCOUNT;
+           END');
+GO
+
+IF COL_LENGTH('Works', 'work_price_dec') IS NOT NULL
+BEGIN
+    ALTER TABLE Works DROP COLUMN work_price;
+    EXEC sp_rename 'Works.work_price_dec', 'work_price', 'COLUMN';
+END
+GO
+
+IF EXISTS (SELECT 1 FROM sys.columns
+            WHERE object_id = OBJECT_ID('Works') AND name = 'work_price' AND is_nullable = 1)
+BEGIN
+    UPDATE Works SET work_price = 0 WHERE work_price IS NULL;
+    ALTER TABLE Works ALTER COLUMN work_price DECIMAL(18,2) NOT NULL;
+END
+GO
@@ -0,0 +1,46 @@
+-- 热点查询的筛选/关联列索引：BuyerDaoimpl、WorksDaoIplm、WorkStateMachine、HistoryProductsServlet 的语句
+-- 都按 Reservation.order_id / Reservation.work_id / Works.work_status / Trade.order_id / Trade.work_status 定位，
+-- 原先的库只保证主键，其余列是否有索引取决于当初手工建库的方式。
+-- 交易时间只按 datetime2 列 trading_at 筛选与排序（IX_Reservation_trading_at，见 V1），字符串列 trading_time 不再参与查询，不建索引。
+-- 已有同一首列索引（例如以 order_id 为主键）的跳过，避免在老库上重复建索引；可用 QueryPlanAdvisor 检查建完后的执行计划。
+-- 过滤索引要求会话 SET QUOTED_IDENTIFIER / ANSI_NULLS ON（JDBC 连接默认即为 ON）。
+-- 各批次以 GO 分隔，自动提交执行；脚本可重复执行。
+
+-- 按订单号查预订（购买人详情、交易冻结、取消订单、历史页关联 Trade）
+IF NOT EXISTS (SELECT 1 FROM sys.index_columns ic
+                WHERE ic.object_id = OBJECT_ID('Reservation') AND ic.key_ordinal = 1
+                  AND COL_NAME(ic.object_id, ic.column_id) = 'order_id')
+    CREATE INDEX IX_Reservation_order_id ON Reservation (order_id) INCLUDE (work_id);
+GO
+
+-- 按商品查预订（冻结/可用商品的订单、搜索索引命中的商品、销售统计回填），附带历史页排序列
+IF NOT EXISTS (SELECT 1 FROM sys.index_columns ic
+                WHERE ic.object_id = OBJECT_ID('Reservation') AND ic.key_ordinal = 1
+                  AND COL_NAME(ic.object_id, ic.column_id) = 'work_id')
+    CREATE INDEX IX_Reservation_work_id ON Reservation (work_id) INCLUDE (order_id, trading_at);
+GO
+
+-- 商品列表按状态筛选并按 work_id 倒序分页，按状态计数只读该索引
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Works_status' AND object_id = OBJECT_ID('Works'))
+    CREATE INDEX IX_Works_status ON Works (work_status, work_id DESC);
+GO
+
+-- 历史页 LEFT JOIN Trade、按订单统计交易数
+IF NOT EXISTS (SELECT 1 FROM sys.index_columns ic
+                WHERE ic.object_id = OBJECT_ID('Trade') AND ic.key_ordinal = 1
+                  AND COL_NAME(ic.object_id, ic.column_id) = 'order_id')
+    CREATE INDEX IX_Trade_order_id ON Trade (order_id) INCLUDE (trade_id);
+GO
+
+-- 商品状态变化时同步 Trade 中该商品的状态
+IF NOT EXISTS (SELECT 1 FROM sys.index_columns ic
+                WHERE ic.object_id = OBJECT_ID('Trade') AND ic.key_ordinal = 1
+                  AND COL_NAME(ic.object_id, ic.column_id) = 'work_id')
+    CREATE INDEX IX_Trade_work_id ON Trade (work_id);
+GO
+
+-- 购买人页只关心未售出（frozen / available）的交易；已售交易随时间占绝大多数，过滤索引只包含未售出的行
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Trade_open' AND object_id = OBJECT_ID('Trade'))
+    CREATE INDEX IX_Trade_open ON Trade (work_status) INCLUDE (trade_id)
+        WHERE work_status IN ('frozen', 'available');
+GO
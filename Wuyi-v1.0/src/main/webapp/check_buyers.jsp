@@ -135,36 +135,60 @@
 </div>
 
 
-frozenavailableTradeIds：${sessionScope.buyerDao.getFrozenAndAvailableTradeIds()}
-frozenavailableOrderIds：${sessionScope.buyerDao.getFrozenAndAvailableOrderIds()}
-workstatus：${sessionScope.buyerDao.getWorkStatusByOrderId(sessionScope.buyerDao.getFrozenAndAvailableOrderIds())}
+<%-- 页面只读取 BuyServlet 放入 request 的只读视图模型 dashboard，渲染期间不访问数据库 --%>
+<c:set var="dashboard" value="${requestScope.dashboard}" />
+frozenavailableTradeIds：${dashboard.tradeIds}
+frozenavailableOrderIds：${dashboard.orderIds}
+workstatus：${dashboard.workStatus}
 
 
 
 <!-- 内容区 -->
 <div class="container">
+  <c:if test="${not empty requestScope.errorMsg}">
+    <div class="error-msg">${requestScope.errorMsg}</div>
+  </c:if>
+
+  <%-- 批量交易的逐单结果 --%>
+  <c:forEach items="${requestScope.tradeResults}" var="result">
+    <c:choose>
+      <c:when test="${result.traded}">
+        <div class="success-msg">订单${result.orderId}交易成功，交易ID：${result.tradeId}</div>
+      </c:when>
+      <c:when test="${result.outcome == 'ORDER_NOT_FOUND'}">
+        <div class="error-msg">订单${result.orderId}不存在</div>
+      </c:when>
+      <c:otherwise>
+        <div class="error-msg">订单${result.orderId}交易未生效：商品当前状态为${result.workStatus}</div>
+      </c:otherwise>
+    </c:choose>
+  </c:forEach>
+
   <!-- frozen/available -->
-  <c:if test="${not empty sessionScope.buyerDao.getFrozenAndAvailableTradeIds()}">
+  <c:if test="${not empty dashboard.tradeIds}">
   	<!-- 冻结 -->
-	<div class="success-msg">您已选中订单${sessionScope.buyerDao.getFrozenAndAvailableOrderIds()}的购买人</div>
-	<div class="success-msg">交易ID：${sessionScope.buyerDao.getFrozenAndAvailableTradeIds()}</div>
+	<div class="success-msg">您已选中订单${dashboard.orderIds}的购买人</div>
+	<div class="success-msg">交易ID：${dashboard.tradeIds}</div>
   	
 
   </c:if>
   
 
-  <c:if test="${empty sessionScope.buyerDao.getFrozenAndAvailableTradeIds()}">
+  <c:if test="${empty dashboard.tradeIds}">
     <!-- 售罄 -->
-  	<c:if test="${empty sessionScope.buyerDao.getFrozenAndAvailableOrderIds()}">
+  	<c:if test="${empty dashboard.orderIds}">
   		<h2 style="text-align:center; color:#e74c3c;">暂无购买人信息</h2>
   	</c:if>
   	
   	<!-- 可预订 -->
-  	<c:if test="${not empty sessionScope.buyerDao.getFrozenAndAvailableOrderIds()}">
+  	<c:if test="${not empty dashboard.orderIds}">
 		<h2>意向购买人信息</h2>
+      <form action="${pageContext.request.contextPath}/BuyServlet" method="post">
+      <input type="hidden" name="method" value="tradeBatch">
       <table>
         <thead>
           <tr>
+            <th>选择</th>
             <th>用户名</th>
             <th>订单编号</th>
             <th>交易地址</th>
@@ -173,21 +197,26 @@ workstatus：${sessionScope.buyerDao.getWorkStatusByOrderId(sessionScope.buyerDa
           </tr>
         </thead>
         <tbody>
-          <c:forEach items="${sessionScope.buyerList}" var="buyer">
+          <c:forEach items="${dashboard.buyers}" var="buyer">
             <tr>
+              <td><input type="checkbox" name="orderId" value="${buyer.order_id}"></td>
               <td>${buyer.buyer_name}</td>
               <td>${buyer.order_id}</td>
               <td>${buyer.trading_address}</td>
               <td>${buyer.buyer_phonenumber}</td>
               <td>
                 <a href="${pageContext.request.contextPath}/BuyServlet?method=trade&orderId=${buyer.order_id}">
-                  <button>与ta交易</button>
+                  <button type="button">与ta交易</button>
                 </a>
               </td>
             </tr>
           </c:forEach>
         </tbody>
       </table>
+      <div style="text-align:right; margin-top:15px;">
+        <button type="submit">批量交易</button>
+      </div>
+      </form>
   	</c:if>
   </c:if>
 
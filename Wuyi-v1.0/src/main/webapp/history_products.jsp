@@ -62,7 +62,8 @@
                     <input type="text" name="search" placeholder="搜索订单号或商品名称..." value="${search}"
                            class="pl-10 pr-4 py-2 rounded-full border border-gray-200 focus:outline-none focus:ring-2 focus:ring-primary/50 focus:border-primary transition-custom w-64">
                     <input type="hidden" name="status" value="${status}">
-                    <input type="hidden" name="date" value="${date}">
+                    <input type="hidden" name="startTime" value="${startTime}">
+                    <input type="hidden" name="endTime" value="${endTime}">
                     <i class="fa fa-search absolute left-3 top-1/2 transform -translate-y-1/2 text-gray-400"></i>
                 </form>
             </div>
@@ -114,6 +115,15 @@
                         <i class="fa fa-filter"></i>
                         <span>筛选</span>
                     </button>
+                    <!-- 按当前筛选条件导出全部记录 -->
+                    <button type="submit" formaction="HistoryExportServlet" name="format" value="csv" class="bg-white hover:bg-gray-50 text-gray-700 border border-gray-200 px-4 py-2 rounded-lg flex items-center space-x-1 transition-custom">
+                        <i class="fa fa-download"></i>
+                        <span>导出 CSV</span>
+                    </button>
+                    <button type="submit" formaction="HistoryExportServlet" name="format" value="xlsx" class="bg-white hover:bg-gray-50 text-gray-700 border border-gray-200 px-4 py-2 rounded-lg flex items-center space-x-1 transition-custom">
+                        <i class="fa fa-file-excel-o"></i>
+                        <span>导出 Excel</span>
+                    </button>
                 </form>
             </div>
         </div>
@@ -212,7 +222,11 @@
             Integer pageSize = (Integer) request.getAttribute("pageSize");
             String search = (String) request.getAttribute("search");
             String status = (String) request.getAttribute("status");
-            String date = (String) request.getAttribute("date");
+            String startTime = (String) request.getAttribute("startTime");
+            String endTime = (String) request.getAttribute("endTime");
+            // 上一页/下一页游标（keyset 分页），为空时回退为按页码跳转
+            String prevCursor = (String) request.getAttribute("prevCursor");
+            String nextCursor = (String) request.getAttribute("nextCursor");
 
             if (currentPage == null) currentPage = 1;
             if (totalPages == null) totalPages = 1;
@@ -220,7 +234,16 @@
             if (pageSize == null) pageSize = 10;
             if (search == null) search = "";
             if (status == null) status = "";
-            if (date == null) date = "";
+            if (startTime == null) startTime = "";
+            if (endTime == null) endTime = "";
+            if (prevCursor == null) prevCursor = "";
+            if (nextCursor == null) nextCursor = "";
+
+            // 翻页链接携带当前筛选条件：游标只在同一筛选结果中有意义
+            String filterQuery = "&search=" + java.net.URLEncoder.encode(search, "UTF-8")
+                    + "&status=" + java.net.URLEncoder.encode(status, "UTF-8")
+                    + "&startTime=" + java.net.URLEncoder.encode(startTime, "UTF-8")
+                    + "&endTime=" + java.net.URLEncoder.encode(endTime, "UTF-8");
 
             int startRecord = (currentPage - 1) * pageSize + 1;
             int endRecord = Math.min(currentPage * pageSize, totalRecords);
@@ -228,7 +251,7 @@
         <div class="px-6 py-4 bg-gray-50 border-t border-gray-200 flex items-center justify-between">
             <div class="flex-1 flex justify-between sm:hidden">
                 <% if (currentPage > 1) { %>
-                <a href="HistoryProductsServlet?page=<%= currentPage - 1 %>&search=<%= java.net.URLEncoder.encode(search, "UTF-8") %>&status=<%= status %>&date=<%= date %>"
+                <a href="HistoryProductsServlet?page=<%= currentPage - 1 %>&cursor=<%= prevCursor %>&dir=prev<%= filterQuery %>"
                    class="relative inline-flex items-center px-4 py-2 border border-gray-300 text-sm font-medium rounded-md text-gray-700 bg-white hover:bg-gray-50 transition-custom">
                     上一页
                 </a>
@@ -239,7 +262,7 @@
                 <% } %>
 
                 <% if (currentPage < totalPages) { %>
-                <a href="HistoryProductsServlet?page=<%= currentPage + 1 %>&search=<%= java.net.URLEncoder.encode(search, "UTF-8") %>&status=<%= status %>&date=<%= date %>"
+                <a href="HistoryProductsServlet?page=<%= currentPage + 1 %>&cursor=<%= nextCursor %>&dir=next<%= filterQuery %>"
                    class="ml-3 relative inline-flex items-center px-4 py-2 border border-gray-300 text-sm font-medium rounded-md text-gray-700 bg-white hover:bg-gray-50 transition-custom">
                     下一页
                 </a>
@@ -258,7 +281,7 @@
                 <div>
                     <nav class="relative z-0 inline-flex rounded-md shadow-sm -space-x-px" aria-label="Pagination">
                         <% if (currentPage > 1) { %>
-                        <a href="HistoryProductsServlet?page=<%= currentPage - 1 %>&search=<%= java.net.URLEncoder.encode(search, "UTF-8") %>&status=<%= status %>&date=<%= date %>"
+                        <a href="HistoryProductsServlet?page=<%= currentPage - 1 %>&cursor=<%= prevCursor %>&dir=prev<%= filterQuery %>"
                            class="relative inline-flex items-center px-2 py-2 rounded-l-md border border-gray-300 bg-white text-sm font-medium text-gray-500 hover:bg-gray-50 transition-custom">
                             <span class="sr-only">上一页</span>
                             <i class="fa fa-chevron-left text-xs"></i>
@@ -276,7 +299,7 @@
 
                             if (startPage > 1) {
                         %>
-                        <a href="HistoryProductsServlet?page=1&search=<%= java.net.URLEncoder.encode(search, "UTF-8") %>&status=<%= status %>&date=<%= date %>"
+                        <a href="HistoryProductsServlet?page=1<%= filterQuery %>"
                            class="bg-white border-gray-300 text-gray-500 hover:bg-gray-50 relative inline-flex items-center px-4 py-2 border text-sm font-medium transition-custom">1</a>
                         <% if (startPage > 2) { %>
                         <span class="relative inline-flex items-center px-4 py-2 border border-gray-300 bg-white text-sm font-medium text-gray-700">...</span>
@@ -289,7 +312,7 @@
                             <%= i %>
                         </span>
                         <% } else { %>
-                        <a href="HistoryProductsServlet?page=<%= i %>&search=<%= java.net.URLEncoder.encode(search, "UTF-8") %>&status=<%= status %>&date=<%= date %>"
+                        <a href="HistoryProductsServlet?page=<%= i %><%= filterQuery %>"
                            class="bg-white border-gray-300 text-gray-500 hover:bg-gray-50 relative inline-flex items-center px-4 py-2 border text-sm font-medium transition-custom">
                             <%= i %>
                         </a>
@@ -300,12 +323,12 @@
                         <% if (endPage < totalPages - 1) { %>
                         <span class="relative inline-flex items-center px-4 py-2 border border-gray-300 bg-white text-sm font-medium text-gray-700">...</span>
                         <% } %>
-                        <a href="HistoryProductsServlet?page=<%= totalPages %>&search=<%= java.net.URLEncoder.encode(search, "UTF-8") %>&status=<%= status %>&date=<%= date %>"
+                        <a href="HistoryProductsServlet?page=<%= totalPages %><%= filterQuery %>"
                            class="bg-white border-gray-300 text-gray-500 hover:bg-gray-50 relative inline-flex items-center px-4 py-2 border text-sm font-medium transition-custom"><%= totalPages %></a>
                         <% } %>
 
                         <% if (currentPage < totalPages) { %>
-                        <a href="HistoryProductsServlet?page=<%= currentPage + 1 %>&search=<%= java.net.URLEncoder.encode(search, "UTF-8") %>&status=<%= status %>&date=<%= date %>"
+                        <a href="HistoryProductsServlet?page=<%= currentPage + 1 %>&cursor=<%= nextCursor %>&dir=next<%= filterQuery %>"
                            class="relative inline-flex items-center px-2 py-2 rounded-r-md border border-gray-300 bg-white text-sm font-medium text-gray-500 hover:bg-gray-50 transition-custom">
                             <span class="sr-only">下一页</span>
                             <i class="fa fa-chevron-right text-xs"></i>
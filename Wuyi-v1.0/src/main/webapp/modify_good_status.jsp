@@ -280,6 +280,13 @@
 		transform: translateY(-3px); /* 向上移动3像素 */
         ox-shadow: 0 4px 8px rgba(0, 0, 0, 0.2); /* 添加阴影增强上浮效果 */
 	}
+	.filter, .pager{
+		margin: 10px auto;
+		text-align: center;
+	}
+	.pager a{
+		margin: 0 10px;
+	}
 </style>
 <body>
 	<nav>
@@ -310,6 +317,26 @@
 			</form>
 		</div> 
  
+	<%-- 批量导入：CSV/JSON 文件，结果由 import_goodsServlet 放入 session，显示一次后清除 --%>
+	<form action="import_goodsServlet" method="post" enctype="multipart/form-data" class="filter">
+		批量导入(CSV/JSON):<input type="file" name="file" accept=".csv,.json">
+		<input type="submit" value="导入">
+	</form>
+	<c:if test="${not empty sessionScope.importMsg}">
+		<div class="filter">${sessionScope.importMsg}</div>
+		<c:remove var="importMsg" scope="session"/>
+	</c:if>
+	<%-- 商品列表由 get_workServlet 按页放入 request（worksPage），不再整表放进 session --%>
+	<c:set var="worksPage" value="${requestScope.worksPage}"/>
+	<form action="get_workServlet" method="get" class="filter">
+		商品状态:<select name="status">
+			<option value="" ${empty worksPage.status ? 'selected' : ''}>全部</option>
+			<option value="available" ${worksPage.status eq 'available' ? 'selected' : ''}>可预订</option>
+			<option value="frozen" ${worksPage.status eq 'frozen' ? 'selected' : ''}>冻结</option>
+			<option value="sold" ${worksPage.status eq 'sold' ? 'selected' : ''}>售罄</option>
+		</select>
+		<input type="submit" value="筛选">
+	</form>
 	<table>
 		<th>商品Id</th>
 		<th>商品名称</th>
@@ -318,7 +345,7 @@
 		<th>商品图片</th>
 		<th>商品状态</th>
 		<th>操作</th>
-		<c:forEach items="${sessionScope.wklist}" var="wk" >
+		<c:forEach items="${worksPage.works}" var="wk" >
 		<tr>
 		<td>${wk.getId()}</td>
 		<td>${wk.getWork_name()}</td>
@@ -379,6 +406,9 @@
             		</li>
             		</c:if>
             		<input type="hidden" name="work_id" value="${wk.getId()}">
+            		<input type="hidden" name="work_status0" value="${wk.getWork_status()}">
+            		<input type="hidden" name="page" value="${worksPage.page}">
+            		<input type="hidden" name="status" value="${worksPage.status}">
             	</ul>
 					<input type="submit" value="确认修改">
 					<input type="buttom" class="modifybtm" value="取消">
@@ -386,6 +416,17 @@
 		</div>
 	</c:forEach>
 	</table>
+	<c:if test="${not empty worksPage}">
+	<div class="pager">
+		<c:if test="${worksPage.hasPrev}">
+			<a href="get_workServlet?page=${worksPage.page - 1}&status=${worksPage.status}">上一页</a>
+		</c:if>
+		<span>第 ${worksPage.page} / ${worksPage.totalPages} 页，共 ${worksPage.totalRecords} 件商品</span>
+		<c:if test="${worksPage.hasNext}">
+			<a href="get_workServlet?page=${worksPage.page + 1}&status=${worksPage.status}">下一页</a>
+		</c:if>
+	</div>
+	</c:if>
 	<span class="tips">tips:售罄与冻结状态下，商品只允许修改商品状态这一信息，可预订状态下商品信息可随意修改</span>
 	<script type="text/javascript">
 		const add = document.querySelector('.add');
@@ -434,6 +475,12 @@
         form.work_price.focus();
         return false;
     }
+
+    if (!/^\d+(\.\d{1,2})?$/.test(workPrice)) {
+        alert('商品价格必须是数字，最多两位小数');
+        form.work_price.focus();
+        return false;
+    }
     
     if (!workDescription) {
         alert('商品描述不能为空');
@@ -467,6 +514,12 @@
 	        form.work_price1.focus();
 	        return false;
 	    }
+
+	    if (!/^\d+(\.\d{1,2})?$/.test(workPrice)) {
+	        alert('商品价格必须是数字，最多两位小数');
+	        form.work_price1.focus();
+	        return false;
+	    }
 	    
 	    if (!workDescription) {
 	        alert('商品描述不能为空');
@@ -1,6 +1,6 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%-- 导入所有必需的Java SQL库 --%>
-<%@ page import="java.sql.Connection, java.sql.DriverManager, java.sql.PreparedStatement, java.sql.ResultSet, java.sql.SQLException" %>
+<%@ page import="java.sql.Connection, datebase.DbUtil, datebase.Log, datebase.Works, datebase.WorksDaoIplm" %>
 
 <html>
 <head>
@@ -31,41 +31,22 @@
         String work_price = "¥9,999.00";
         String work_status = "available";
 
-        // 2. 声明数据库连接对象
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
+        // 2. 从商品目录缓存读取最新商品（缓存命中时不访问数据库）
+        try (Connection conn = DbUtil.getCon()) {
+            Works latest = new WorksDaoIplm().findLatest(conn);
 
-        try {
-            // 3. 连接数据库
-            String jdbcURL = "jdbc:sqlserver://localhost:1433;DatabaseName=Wuyi;trustServerCertificate=true";
-            String dbUser = "sa";
-            String dbPassword = "123456";
-            Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-            conn = DriverManager.getConnection(jdbcURL, dbUser, dbPassword);
-
-            // 4. 创建并执行SQL查询
-            String sql = "SELECT TOP 1 work_name, work_description, work_image, work_price, work_status FROM Works ORDER BY work_id DESC";
-            pstmt = conn.prepareStatement(sql);
-            rs = pstmt.executeQuery();
-
-            // 5. 如果查询到数据，则覆盖默认值
-            if (rs.next()) {
-                work_name = rs.getString("work_name");
-                work_description = rs.getString("work_description");
-                work_image = rs.getString("work_image");
-                work_price = rs.getString("work_price");
-                work_status = rs.getString("work_status");
+            // 3. 如果查询到数据，则覆盖默认值
+            if (latest != null) {
+                work_name = latest.getWork_name();
+                work_description = latest.getWork_description();
+                work_image = latest.getWork_image();
+                work_price = latest.getWork_price().format();
+                work_status = latest.getWork_status();
             }
 
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.get("work_message.jsp").warn("读取最新商品失败，显示默认内容", e);
             // 发生错误时，页面将显示上面的默认值
-        } finally {
-            // 6. 关闭所有数据库资源
-            try { if (rs != null) rs.close(); } catch (SQLException e) {}
-            try { if (pstmt != null) pstmt.close(); } catch (SQLException e) {}
-            try { if (conn != null) conn.close(); } catch (SQLException e) {}
         }
     %>
 
@@ -2,15 +2,38 @@ package soft_practice01;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.RequestDispatcher;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
@@ -20,18 +43,42 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import datebase.AppConfig;
 import datebase.Buyer;
 import datebase.BuyerDao;
 import datebase.BuyerDaoimpl;
+import datebase.ConnectionPool;
 import datebase.DbUtil;
+import datebase.ImportReport;
+import datebase.IndexedRowMapper;
+import datebase.JdbcTemplate;
 import datebase.Merchant;
+import datebase.Metrics;
+import datebase.Money;
 import datebase.Order;
+import datebase.OrderIdAllocator;
+import datebase.OrderSearchIndex;
+import datebase.PageCursor;
+import datebase.PoolConfig;
 import datebase.Product;
+import datebase.QueryPlanAdvisor;
+import datebase.SalesStatsStore;
+import datebase.SchemaMigrator;
+import datebase.SnowflakeIdGenerator;
 import datebase.Statistics;
+import datebase.TableExportWriter;
+import datebase.UnitOfWork;
+import datebase.TradeResult;
 import datebase.User;
 import datebase.Works;
+import datebase.WorksCache;
 import datebase.WorksDaoIplm;
+import datebase.WorksImportReader;
+import datebase.WorksPage;
+import datebase.WorkStateMachine;
+import Servlet.AsyncRequestExecutor;
 import Servlet.BuyServlet;
+import Servlet.TaskScope;
 import Servlet.insert_goodServlet;
 import Servlet.get_workServlet;
 
@@ -67,7 +114,7 @@ public class AllInOneUnitTest {
             "测试商品", 
             "这是一个测试商品", 
             "/images/test.jpg", 
-            "99.99"
+            Money.parse("99.99")
         );
 
         // 初始化Product对象
@@ -76,7 +123,7 @@ public class AllInOneUnitTest {
             "测试商品", 
             "这是一个测试商品", 
             "/images/test.jpg", 
-            99.99, 
+            Money.parse("99.99"), 
             "available"
         );
 
@@ -95,7 +142,7 @@ public class AllInOneUnitTest {
         );
 
         // 初始化Statistics对象
-        testStats = new Statistics(100, 50, 9999.99, 15.5, 10.2, 20.3);
+        testStats = new Statistics(100, 50, Money.parse("9999.99"), 15.5, 10.2, 20.3);
     }
 
     @After
@@ -166,6 +213,700 @@ public class AllInOneUnitTest {
         assertTrue(testStats.isMonthlyGrowthPositive());
     }
 
+    @Test
+    public void testMoneyIsExact() {
+        Money sum = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            sum = sum.plus(Money.parse("0.1"));
+        }
+        assertEquals(Money.parse("1"), sum);
+        assertEquals("1.00", sum.toString());
+        assertEquals(Money.ofCents(-150), Money.parse("1.5").minus(Money.parse("3")));
+        assertEquals(Money.parse("128.5"), Money.of(new BigDecimal("128.50")));
+        assertEquals(new BigDecimal("88.50"), Money.parse("88.5").toBigDecimal());
+        assertEquals("¥0.30", Money.parse("0.30").format());
+        try {
+            Money.parse("9.999");
+            fail("超过两位小数的金额应拒绝");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("两位小数"));
+        }
+        try {
+            Money.parsePrice("-1");
+            fail("负数价格应拒绝");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("负数"));
+        }
+        assertEquals("¥0.00", new Product().getFormattedPrice());
+    }
+
+    @Test
+    public void testPageCursorRoundTrip() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2024, 12, 31, 16, 0), "DD00042");
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+        assertEquals(LocalDateTime.of(2024, 12, 31, 16, 0), decoded.getTradingTime());
+        assertEquals("DD00042", decoded.getOrderId());
+        // 没有 trading_at 的旧数据行也能作为游标
+        decoded = PageCursor.decode(new PageCursor(null, "DD00007").encode());
+        assertNull(decoded.getTradingTime());
+        assertEquals("DD00007", decoded.getOrderId());
+        assertNull(PageCursor.decode(""));
+        assertNull(PageCursor.decode("%%%"));
+    }
+
+    @Test
+    public void testWorksCacheReadThroughAndInvalidate() throws Exception {
+        WorksCache cache = new WorksCache(10);
+        AtomicInteger loads = new AtomicInteger();
+        List<Works> catalog = Arrays.asList(
+                new Works(1, "available", "青瓷", "描述", "a.png", Money.parse("100")),
+                new Works(2, "sold", "白瓷", "描述", "b.png", Money.parse("200")));
+        WorksCache.Loader<List<Works>> loader = () -> {
+            loads.incrementAndGet();
+            return new ArrayList<>(catalog);
+        };
+
+        assertEquals(2, cache.all(loader).size());
+        assertEquals(2, cache.all(loader).size());
+        assertEquals(2, cache.latest(() -> null).getId());
+        assertEquals(1, loads.get());
+
+        // 调用方修改返回的对象不影响缓存
+        cache.all(loader).get(0).setWork_name("已修改");
+        assertEquals("青瓷", cache.get(1, () -> null).getWork_name());
+
+        cache.invalidate(1);
+        cache.all(loader);
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getStats().getInvalidationCount());
+    }
+
+    @Test
+    public void testWorksCacheReloadsSingleInvalidatedEntry() throws Exception {
+        WorksCache cache = new WorksCache(10);
+        List<Works> catalog = Arrays.asList(
+                new Works(1, "available", "青瓷", "描述", "a.png", Money.parse("100")),
+                new Works(2, "available", "白瓷", "描述", "b.png", Money.parse("200")));
+        WorksCache.Loader<List<Works>> fullFromDb = () -> {
+            throw new SQLException("单个商品失效后不应整表重载");
+        };
+        cache.all(() -> new ArrayList<>(catalog));
+
+        cache.invalidate(2);
+        AtomicInteger rowLoads = new AtomicInteger();
+        WorksCache.RowLoader rows = id -> {
+            rowLoads.incrementAndGet();
+            return new Works(id, "frozen", "白瓷", "描述", "b.png", Money.parse("200"));
+        };
+        assertEquals(1, cache.count("frozen", fullFromDb, () -> -1, rows));
+        assertEquals(2, cache.all(fullFromDb, rows).size());
+        assertEquals(1, rowLoads.get());
+    }
+
+    @Test
+    public void testWorksCacheEvictsOldest() throws Exception {
+        WorksCache cache = new WorksCache(2);
+        List<Works> catalog = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            catalog.add(new Works(i, "available", "商品" + i, "", "", Money.parse("10")));
+        }
+        cache.all(() -> catalog);
+        assertEquals(2, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getEvictionCount());
+        assertEquals(3, cache.latest(() -> null).getId());
+        assertNull(cache.get(1, () -> null));
+    }
+
+    @Test
+    public void testWorksCachePagesByStatus() throws Exception {
+        WorksCache cache = new WorksCache(100);
+        List<Works> catalog = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            catalog.add(new Works(i, i % 5 == 0 ? "sold" : "available", "商品" + i, "", "", Money.parse("10")));
+        }
+        WorksCache.Loader<List<Works>> pageFromDb = () -> {
+            throw new SQLException("完整缓存时不应查询数据库");
+        };
+        assertEquals(5, cache.count("sold", () -> catalog, () -> -1));
+        List<Works> page2 = cache.page(null, 10, 10, () -> catalog, pageFromDb);
+        assertEquals(10, page2.size());
+        assertEquals(15, page2.get(0).getId());
+        assertEquals(2, cache.page("sold", 3, 10, () -> catalog, pageFromDb).size());
+
+        WorksPage page = new WorksPage(page2, null, 2, 10, 25);
+        assertEquals(3, page.getTotalPages());
+        assertTrue(page.isHasPrev());
+        assertTrue(page.isHasNext());
+    }
+
+    @Test
+    public void testOrderIdAllocatorUniqueAcrossThreads() throws Exception {
+        AtomicInteger reserves = new AtomicInteger();
+        AtomicInteger nextStart = new AtomicInteger(1);
+        OrderIdAllocator allocator = new OrderIdAllocator(size -> {
+            reserves.incrementAndGet();
+            return nextStart.getAndAdd(size);
+        }, 50);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 1000; i++) {
+                        ids.add(allocator.nextOrderId());
+                    }
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8000, ids.size());
+        assertTrue(ids.contains("DD00001"));
+        assertTrue(ids.contains("DD08000"));
+        assertEquals(160, reserves.get());
+    }
+
+    @Test
+    public void testSnowflakeIdsUniqueAndMonotonicAcrossThreads() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator("TD", 3);
+        int threadCount = 8;
+        // 每毫秒只有 256 个序号，8 个线程各取 5000 个已足以多次用尽同一毫秒的序号
+        // 百万级编号的吞吐与唯一性见 benchmarks 模块的 IdGeneratorBenchmark（16 线程，每轮 4,000,000 个）
+        int perThread = 5_000;
+        long[][] results = new long[threadCount][perThread];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            long[] out = results[t];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    out[i] = generator.nextValue();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] all = new long[threadCount * perThread];
+        for (int t = 0; t < threadCount; t++) {
+            for (int i = 1; i < perThread; i++) {
+                assertTrue("同一线程内编号应递增", results[t][i] > results[t][i - 1]);
+            }
+            System.arraycopy(results[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue("编号重复：" + all[i], all[i] != all[i - 1]);
+        }
+        String id = generator.nextId();
+        assertTrue(id.matches("TD\\d{16}"));
+    }
+
+    @Test
+    public void testWorkStateMachineTransitions() {
+        assertTrue(WorkStateMachine.canTransition("available", "frozen"));
+        assertTrue(WorkStateMachine.canTransition("frozen", "sold"));
+        assertTrue(WorkStateMachine.canTransition("frozen", "available"));
+        assertFalse(WorkStateMachine.canTransition("available", "sold"));
+        assertFalse(WorkStateMachine.canTransition("sold", "available"));
+        assertFalse(WorkStateMachine.canTransition("frozen", "frozen"));
+    }
+
+    @Test
+    public void testFreezeForTradeLosesWhenAlreadyFrozen() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(conn.prepareStatement(Mockito.anyString())).thenReturn(ps);
+        Mockito.when(ps.execute()).thenReturn(true);
+        Mockito.when(ps.getResultSet()).thenReturn(rs);
+        Mockito.when(rs.next()).thenReturn(true);
+        Mockito.when(rs.getInt("work_id")).thenReturn(7);
+        Mockito.when(rs.getString("work_status")).thenReturn("frozen");
+        Mockito.when(rs.getInt("won")).thenReturn(0);
+
+        WorkStateMachine machine = new WorkStateMachine(new WorksCache(10));
+        TradeResult result = machine.freezeForTrade(conn, "DD00007", "TD0000000000000001");
+        assertEquals(TradeResult.Outcome.NOT_AVAILABLE, result.getOutcome());
+        assertEquals(7, result.getWorkId());
+        assertNull(result.getTradeId());
+        // 失败方只执行一条语句，不会再写销售统计
+        Mockito.verify(conn, Mockito.times(1)).prepareStatement(Mockito.anyString());
+    }
+
+    @Test
+    public void testFreezeForTradesReportsEachOrder() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(conn.prepareStatement(Mockito.anyString())).thenReturn(ps);
+        // 第一批为冻结（A 成功，B 已被冻结，C 不存在），第二批为写入 Trade
+        Mockito.when(ps.executeBatch()).thenReturn(new int[] { 1, 0, 0 }, new int[] { 1 });
+        Mockito.when(ps.executeQuery()).thenReturn(rs);
+        Mockito.when(rs.next()).thenReturn(true, true, false);
+        Mockito.when(rs.getString("order_id")).thenReturn("A", "B");
+        Mockito.when(rs.getInt("work_id")).thenReturn(1, 2);
+        Mockito.when(rs.getString("work_status")).thenReturn("frozen", "frozen");
+
+        WorkStateMachine machine = new WorkStateMachine(new WorksCache(10));
+        List<TradeResult> results = machine.freezeForTrades(conn, Arrays.asList("A", "B", "A", "C"),
+                () -> "TD0000000000000001");
+        assertEquals(3, results.size());
+        assertEquals(TradeResult.Outcome.TRADED, results.get(0).getOutcome());
+        assertEquals(1, results.get(0).getWorkId());
+        assertEquals(TradeResult.Outcome.NOT_AVAILABLE, results.get(1).getOutcome());
+        assertEquals(TradeResult.Outcome.ORDER_NOT_FOUND, results.get(2).getOutcome());
+        // 重复的订单只处理一次：冻结 3 条 + 写 Trade 1 条
+        Mockito.verify(ps, Mockito.times(4)).addBatch();
+        Mockito.verify(ps, Mockito.times(2)).executeBatch();
+    }
+
+    @Test(expected = SQLException.class)
+    public void testFreezeForTradesRejectsBatchWithoutUpdateCounts() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        Mockito.when(conn.prepareStatement(Mockito.anyString())).thenReturn(ps);
+        Mockito.when(ps.executeBatch()).thenReturn(new int[] { Statement.SUCCESS_NO_INFO });
+
+        new WorkStateMachine(new WorksCache(10)).freezeForTrades(conn, Arrays.asList("A"), () -> "TD0000000000000001");
+    }
+
+    @Test
+    public void testWorksImportReaderParsesCsvAndJson() throws Exception {
+        List<Works> csv = new ArrayList<>();
+        WorksImportReader reader = WorksImportReader.csv(new StringReader(
+                "work_name,work_price,work_description\r\n茶盏,128,\"青瓷, \"\"宋\"\"\"\r\n\r\n壶,88.5,\n"));
+        reader.forEachRemaining(csv::add);
+        assertEquals(2, csv.size());
+        assertEquals("青瓷, \"宋\"", csv.get(0).getWork_description());
+        assertEquals("available", csv.get(1).getWork_status());
+
+        List<Works> json = new ArrayList<>();
+        WorksImportReader.json(new StringReader(
+                "[{\"work_name\":\"\\u8336\\u76cf\",\"work_price\":128,\"work_status\":\"sold\"}]"))
+                .forEachRemaining(json::add);
+        assertEquals(1, json.size());
+        assertEquals("茶盏", json.get(0).getWork_name());
+        assertEquals(Money.ofCents(12800), json.get(0).getWork_price());
+        assertEquals("sold", json.get(0).getWork_status());
+
+        try {
+            WorksImportReader.csv(new StringReader("work_name,work_price\n茶盏,abc\n")).next();
+            fail("价格不是数字时应拒绝导入");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("第1条"));
+        }
+    }
+
+    @Test
+    public void testInsertBatchExecutesInChunks() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        Mockito.when(conn.prepareStatement(Mockito.anyString())).thenReturn(ps);
+        List<Works> rows = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            rows.add(new Works("available", "商品" + i, "", "", Money.parse("10")));
+        }
+        ImportReport report = new WorksDaoIplm(new WorksCache(10)).insertBatch(conn, rows.iterator(), 500);
+        assertEquals(1001, report.getRows());
+        assertEquals(3, report.getBatches());
+        Mockito.verify(conn, Mockito.times(1)).prepareStatement(Mockito.anyString());
+        Mockito.verify(ps, Mockito.times(1001)).addBatch();
+        Mockito.verify(ps, Mockito.times(3)).executeBatch();
+        Mockito.verify(ps).close();
+    }
+
+    @Test
+    public void testSalesStatsGrowth() {
+        assertEquals(50.0, SalesStatsStore.growth(15, 10), 0.0001);
+        assertEquals(-20.0, SalesStatsStore.growth(8, 10), 0.0001);
+        assertEquals(100.0, SalesStatsStore.growth(3, 0), 0.0001);
+        assertEquals(0.0, SalesStatsStore.growth(0, 0), 0.0001);
+    }
+
+    @Test
+    public void testTableExportWriterCsvAndXlsx() throws Exception {
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        TableExportWriter writer = TableExportWriter.csv(csv);
+        writer.writeRow("订单号", "备注", "价格");
+        writer.writeRow("DD1", "含,逗号与\"引号\"", new BigDecimal("12.50"));
+        writer.writeRow("DD2", "=HYPERLINK()", null);
+        writer.close();
+        assertEquals("\uFEFF订单号,备注,价格\r\nDD1,\"含,逗号与\"\"引号\"\"\",12.50\r\nDD2,'=HYPERLINK(),\r\n",
+                csv.toString("UTF-8"));
+
+        ByteArrayOutputStream xlsx = new ByteArrayOutputStream();
+        writer = TableExportWriter.xlsx(xlsx);
+        writer.writeRow("订单号", "价格");
+        writer.writeRow("A&B", new BigDecimal("12.50"));
+        writer.close();
+        Set<String> entries = new java.util.HashSet<>();
+        String sheet = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(xlsx.toByteArray()))) {
+            for (ZipEntry e; (e = zip.getNextEntry()) != null; ) {
+                entries.add(e.getName());
+                if (e.getName().equals("xl/worksheets/sheet1.xml")) {
+                    sheet = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        assertTrue(entries.containsAll(Arrays.asList("[Content_Types].xml", "_rels/.rels", "xl/workbook.xml",
+                "xl/_rels/workbook.xml.rels", "xl/worksheets/sheet1.xml")));
+        assertTrue(sheet.contains("A&amp;B"));
+        assertTrue(sheet.contains("<v>12.50</v>"));
+    }
+
+    @Test
+    public void testOrderSearchIndexMatchesOrderIdsAndWorkNames() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        ResultSet works = Mockito.mock(ResultSet.class);
+        ResultSet orders = Mockito.mock(ResultSet.class);
+        Mockito.when(conn.prepareStatement(Mockito.anyString())).thenReturn(ps);
+        Mockito.when(ps.executeQuery()).thenReturn(works, orders);
+        Mockito.when(works.next()).thenReturn(true, true, false);
+        Mockito.when(works.getInt(1)).thenReturn(1, 2);
+        Mockito.when(works.getString(2)).thenReturn("武夷岩茶大红袍", "正山小种红茶");
+        Mockito.when(orders.next()).thenReturn(true, true, false);
+        Mockito.when(orders.getString(1)).thenReturn("DD00001", "DD00002");
+        Mockito.when(orders.getInt(2)).thenReturn(1, 2);
+
+        OrderSearchIndex index = new OrderSearchIndex();
+        assertFalse(index.isReady());
+        assertEquals(2, index.rebuild(conn));
+        assertTrue(index.isReady());
+
+        OrderSearchIndex.Match match = index.match("红茶", 100);
+        assertEquals(Arrays.asList(2), match.getWorkIds());
+        assertTrue(match.getOrderIds().isEmpty());
+        assertEquals(Arrays.asList("DD00001"), index.match("dd00001", 100).getOrderIds());
+        // 候选超过上限时返回 null，由调用方退回 LIKE
+        assertNull(index.match("DD", 1).getOrderIds());
+        assertEquals(new java.util.HashSet<>(Arrays.asList("DD00001", "DD00002")), index.searchOrderIds("红"));
+
+        // 增量登记：新预订与改名后的商品可立即搜到，取消的订单被移除
+        index.putOrder("DD00003", 2);
+        index.putWork(2, "金骏眉");
+        assertTrue(index.searchOrderIds("骏眉").contains("DD00003"));
+        index.removeOrder("DD00003");
+        assertFalse(index.searchOrderIds("DD00003").contains("DD00003"));
+    }
+
+    @Test
+    public void testSchemaMigratorSplitsOnGo() {
+        List<String> batches = SchemaMigrator.splitBatches(
+                "-- 说明\nALTER TABLE t ADD c INT;\nGO\n\ngo\nUPDATE t SET c = 1;\n  GO  \n-- 结尾注释\n");
+        assertEquals(2, batches.size());
+        assertTrue(batches.get(0).endsWith("ALTER TABLE t ADD c INT;"));
+        assertEquals("UPDATE t SET c = 1;", batches.get(1));
+    }
+
+    @Test
+    public void testQueryPlanAdvisorReportsScansAndMissingIndexes() {
+        String plan = "<ShowPlanXML xmlns=\"http://schemas.microsoft.com/sqlserver/2004/07/showplan\"><BatchSequence><Batch>"
+                + "<Statements><StmtSimple><QueryPlan>"
+                + "<MissingIndexes><MissingIndexGroup Impact=\"91.2\">"
+                + "<MissingIndex Database=\"[Wuyi]\" Schema=\"[dbo]\" Table=\"[Trade]\">"
+                + "<ColumnGroup Usage=\"EQUALITY\"><Column Name=\"[order_id]\"/></ColumnGroup>"
+                + "<ColumnGroup Usage=\"INCLUDE\"><Column Name=\"[trade_id]\"/></ColumnGroup>"
+                + "</MissingIndex></MissingIndexGroup></MissingIndexes>"
+                + "<RelOp PhysicalOp=\"Clustered Index Scan\" EstimateRows=\"5000\">"
+                + "<IndexScan><Object Table=\"[Trade]\" Index=\"[PK_Trade]\"/></IndexScan>"
+                // 表变量与受行目标限制的扫描不报告
+                + "<RelOp PhysicalOp=\"Table Scan\" EstimateRows=\"1\"><TableScan><Object Table=\"[@won]\"/></TableScan></RelOp>"
+                + "<RelOp PhysicalOp=\"Index Scan\" EstimateRows=\"20\" EstimateRowsWithoutRowGoal=\"9000\">"
+                + "<IndexScan><Object Table=\"[Works]\" Index=\"[PK_Works]\"/></IndexScan></RelOp>"
+                + "</RelOp></QueryPlan></StmtSimple></Statements></Batch></BatchSequence></ShowPlanXML>";
+
+        List<QueryPlanAdvisor.Finding> findings = QueryPlanAdvisor.analyze(
+                new QueryPlanAdvisor.Query("q", "SELECT trade_id FROM Trade WHERE order_id = ?", "DD00001"),
+                Arrays.asList(plan, plan));
+        assertEquals(2, findings.size());
+        assertEquals(QueryPlanAdvisor.Kind.SCAN, findings.get(0).getKind());
+        assertEquals("Trade", findings.get(0).getTable());
+        assertEquals(QueryPlanAdvisor.Kind.MISSING_INDEX, findings.get(1).getKind());
+        assertTrue(findings.get(1).getDetail().endsWith(
+                "CREATE INDEX IX_Trade_order_id ON dbo.Trade (order_id) INCLUDE (trade_id)"));
+
+        // 全表读取的语句只报告缺失索引
+        findings = QueryPlanAdvisor.analyze(QueryPlanAdvisor.Query.fullScan("q", "SELECT trade_id FROM Trade"),
+                Arrays.asList(plan));
+        assertEquals(1, findings.size());
+        assertEquals(QueryPlanAdvisor.Kind.MISSING_INDEX, findings.get(0).getKind());
+    }
+
+    // ==================== 连接池测试 ====================
+
+    @Test
+    public void testAppConfigDerivesAsyncLimitFromPoolSize() {
+        Properties props = new Properties();
+        props.setProperty("pool.maxSize", "10");
+        AppConfig config = AppConfig.from(props);
+        assertEquals(10, config.getPool().getMaxSize());
+        assertEquals(10 / AppConfig.ASYNC_CONNECTIONS_PER_REQUEST, config.getAsyncMaxConcurrent());
+        props.setProperty("async.maxConcurrent", "20");
+        try {
+            AppConfig.from(props);
+            fail("async.maxConcurrent 超过连接池可支撑的并发数时应拒绝");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("async.maxConcurrent"));
+        }
+    }
+
+    private PoolConfig testPoolConfig(int maxSize) {
+        PoolConfig config = new PoolConfig();
+        config.setMinSize(0);
+        config.setMaxSize(maxSize);
+        config.setAcquireTimeoutMs(50);
+        config.setLeakDetectionThresholdMs(0);
+        config.setHousekeepingIntervalMs(60000);
+        return config;
+    }
+
+    @Test
+    public void testPoolReusesConnection() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        try (ConnectionPool pool = new ConnectionPool(testPoolConfig(2), () -> {
+            created.incrementAndGet();
+            return Mockito.mock(Connection.class);
+        })) {
+            Connection first = pool.getConnection();
+            first.close();
+            assertTrue(first.isClosed());
+            pool.getConnection().close();
+            assertEquals(1, created.get());
+            assertEquals(2, pool.getStats().getAcquiredCount());
+            assertEquals(1, pool.getStats().getIdleConnections());
+        }
+    }
+
+    @Test(expected = SQLTimeoutException.class)
+    public void testPoolAcquireTimeout() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(testPoolConfig(1), () -> Mockito.mock(Connection.class))) {
+            pool.getConnection();
+            pool.getConnection();
+        }
+    }
+
+    @Test
+    public void testPoolRollsBackOnReturn() throws Exception {
+        Connection raw = Mockito.mock(Connection.class);
+        Mockito.when(raw.getAutoCommit()).thenReturn(false);
+        try (ConnectionPool pool = new ConnectionPool(testPoolConfig(1), () -> raw)) {
+            Connection conn = pool.getConnection();
+            conn.setAutoCommit(false);
+            conn.close();
+            Mockito.verify(raw).rollback();
+            Mockito.verify(raw).setAutoCommit(true);
+            Mockito.verify(raw, Mockito.never()).close();
+        }
+    }
+
+    @Test
+    public void testPoolCachesPreparedStatements() throws Exception {
+        Connection raw = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(raw.getAutoCommit()).thenReturn(true);
+        Mockito.when(raw.prepareStatement(Mockito.anyString())).thenReturn(ps);
+        Mockito.when(ps.executeQuery()).thenReturn(rs);
+        try (ConnectionPool pool = new ConnectionPool(testPoolConfig(1), () -> raw)) {
+            for (int i = 0; i < 3; i++) {
+                try (Connection conn = pool.getConnection()) {
+                    JdbcTemplate.queryInt(conn, "SELECT COUNT(1) FROM Works WHERE work_status = ?", "sold");
+                }
+            }
+            // 同一物理连接上相同 SQL 只 prepare 一次，逻辑关闭只关结果集、清参数
+            Mockito.verify(raw, Mockito.times(1)).prepareStatement(Mockito.anyString());
+            Mockito.verify(rs, Mockito.times(3)).close();
+            Mockito.verify(ps, Mockito.times(3)).clearParameters();
+            Mockito.verify(ps, Mockito.never()).close();
+            assertEquals(2, pool.getStats().getStatementCacheHits());
+        }
+        Mockito.verify(ps).close();
+    }
+
+    @Test
+    public void testPooledStatementsReturnPooledConnection() throws Exception {
+        Connection raw = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        PreparedStatement keyed = Mockito.mock(PreparedStatement.class);
+        Statement plain = Mockito.mock(Statement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(raw.getAutoCommit()).thenReturn(true);
+        Mockito.when(raw.prepareStatement(Mockito.anyString())).thenReturn(ps);
+        Mockito.when(ps.executeQuery()).thenReturn(rs);
+        Mockito.when(raw.prepareStatement(Mockito.anyString(), Mockito.eq(Statement.RETURN_GENERATED_KEYS)))
+                .thenReturn(keyed);
+        Mockito.when(raw.createStatement()).thenReturn(plain);
+        String sql = "INSERT INTO Works (work_name) VALUES (?)";
+        try (ConnectionPool pool = new ConnectionPool(testPoolConfig(1), () -> raw)) {
+            for (int i = 0; i < 2; i++) {
+                try (Connection conn = pool.getConnection()) {
+                    try (PreparedStatement a = conn.prepareStatement(sql);
+                         PreparedStatement b = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                         Statement c = conn.createStatement()) {
+                        assertSame(conn, a.getConnection());
+                        assertSame(conn, b.getConnection());
+                        assertSame(conn, c.getConnection());
+                        // 经由结果集关闭语句只是归还缓存，不关闭物理语句
+                        a.executeQuery().getStatement().close();
+                        assertTrue(a.isClosed());
+                    }
+                }
+            }
+            // 两个重载各自缓存，第二次借用都命中
+            Mockito.verify(raw, Mockito.times(1)).prepareStatement(sql);
+            Mockito.verify(raw, Mockito.times(1)).prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            assertEquals(2, pool.getStats().getStatementCacheHits());
+            Mockito.verify(ps, Mockito.never()).close();
+            Mockito.verify(rs, Mockito.times(2)).close();
+        }
+    }
+
+    @Test
+    public void testIndexedRowMapperResolvesColumnsOnce() throws Exception {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        ResultSetMetaData md = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(conn.prepareStatement(Mockito.anyString())).thenReturn(ps);
+        Mockito.when(ps.executeQuery()).thenReturn(rs);
+        Mockito.when(rs.getMetaData()).thenReturn(md);
+        Mockito.when(md.getColumnCount()).thenReturn(2);
+        Mockito.when(md.getColumnLabel(1)).thenReturn("WORK_ID");
+        Mockito.when(md.getColumnLabel(2)).thenReturn("work_price");
+        Mockito.when(rs.next()).thenReturn(true, true, true, false);
+        Mockito.when(rs.getInt(1)).thenReturn(1, 2, 3);
+        Mockito.when(rs.getBigDecimal(2)).thenReturn(new BigDecimal("10.50"), new BigDecimal("20"), null);
+        IndexedRowMapper<String> mapper = new IndexedRowMapper<String>("work_price", "work_id") {
+            @Override
+            public String mapRow(ResultSet rs, int[] col) throws SQLException {
+                return rs.getInt(col[1]) + ":" + getPrice(rs, col[0]);
+            }
+        };
+        List<String> rows = JdbcTemplate.query(conn, "SELECT work_id, work_price FROM Works", mapper);
+        assertEquals(Arrays.asList("1:10.50", "2:20.00", "3:0.00"), rows);
+        // 元数据只读取一次，逐行按序号取值
+        Mockito.verify(rs, Mockito.times(1)).getMetaData();
+        Mockito.verify(rs, Mockito.never()).getString(Mockito.anyString());
+
+        IndexedRowMapper<String> missing = new IndexedRowMapper<String>("work_name") {
+            @Override
+            public String mapRow(ResultSet rs, int[] col) throws SQLException {
+                return rs.getString(col[0]);
+            }
+        };
+        try {
+            missing.resolve(rs);
+            fail("缺少列时应抛出 SQLException");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("work_name"));
+        }
+    }
+
+    @Test
+    public void testUnitOfWorkSharesOneConnection() throws Exception {
+        Connection raw = Mockito.mock(Connection.class);
+        Mockito.when(raw.getAutoCommit()).thenReturn(true);
+        AtomicInteger created = new AtomicInteger();
+        DbUtil.setDataSource(new ConnectionPool(testPoolConfig(2), () -> {
+            created.incrementAndGet();
+            return raw;
+        }));
+        try {
+            try (UnitOfWork uow = UnitOfWork.begin()) {
+                Connection first = DbUtil.getCon();
+                first.close();
+                Connection second = DbUtil.getCon();
+                assertSame(first, second);
+                assertFalse(second.isClosed());
+                uow.commit();
+            }
+            assertFalse(UnitOfWork.isActive());
+            assertEquals(1, created.get());
+            Mockito.verify(raw).commit();
+            Mockito.verify(raw, Mockito.never()).rollback();
+        } finally {
+            DbUtil.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnitOfWorkDaoRollbackMarksRollbackOnly() throws Exception {
+        Connection raw = Mockito.mock(Connection.class);
+        Mockito.when(raw.getAutoCommit()).thenReturn(true);
+        DbUtil.setDataSource(new ConnectionPool(testPoolConfig(2), () -> raw));
+        try {
+            try (UnitOfWork uow = UnitOfWork.begin()) {
+                DbUtil.getCon().rollback();
+                uow.commit();
+                fail("DAO 回滚后工作单元不应提交");
+            } catch (SQLException e) {
+                assertTrue(e.getMessage().contains("回滚"));
+            }
+            Mockito.verify(raw, Mockito.never()).commit();
+            Mockito.verify(raw).rollback();
+        } finally {
+            DbUtil.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnitOfWorkCommitFailureRollsBack() throws Exception {
+        Connection raw = Mockito.mock(Connection.class);
+        Mockito.when(raw.getAutoCommit()).thenReturn(true);
+        Mockito.doThrow(new SQLException("commit failed")).when(raw).commit();
+        DbUtil.setDataSource(new ConnectionPool(testPoolConfig(2), () -> raw));
+        AtomicBoolean completed = new AtomicBoolean();
+        try {
+            UnitOfWork uow = UnitOfWork.begin();
+            try {
+                UnitOfWork.afterCompletion(() -> completed.set(true));
+                uow.commit();
+                fail("提交失败应抛出异常");
+            } catch (SQLException e) {
+                assertEquals("commit failed", e.getMessage());
+                assertFalse(uow.isCommitted());
+            } finally {
+                uow.close();
+            }
+            // 提交失败的事务在 close() 中回滚，结束回调照常执行
+            Mockito.verify(raw).rollback();
+            assertTrue(completed.get());
+        } finally {
+            DbUtil.shutdown();
+        }
+    }
+
+    @Test
+    public void testMetricsRecordsDaoCalls() throws Exception {
+        List<String> rows = Metrics.dao("TestDao.list", () -> Arrays.asList("a", "b", "c"));
+        assertEquals(3, rows.size());
+        try {
+            Metrics.dao("TestDao.list", () -> {
+                throw new SQLException("boom");
+            });
+            fail("SQLException 应原样抛出");
+        } catch (SQLException e) {
+            assertEquals("boom", e.getMessage());
+        }
+
+        StringBuilder out = new StringBuilder();
+        Metrics.writePrometheus(out);
+        String text = out.toString();
+        assertTrue(text.contains("# TYPE wuyi_dao_duration_seconds histogram"));
+        assertTrue(text.contains("wuyi_dao_duration_seconds_bucket{method=\"TestDao.list\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("wuyi_dao_duration_seconds_count{method=\"TestDao.list\"} 2\n"));
+        assertTrue(text.contains("wuyi_dao_rows_total{method=\"TestDao.list\"} 3\n"));
+        assertTrue(text.contains("wuyi_dao_errors_total{method=\"TestDao.list\"} 1\n"));
+    }
+
     // ==================== WorksDaoIplm 测试 ====================
 
     @Test
@@ -210,10 +951,10 @@ public class AllInOneUnitTest {
     @Test
     public void testInsertGoodServletLogic() throws Exception {
         insert_goodServlet servlet = new insert_goodServlet();
-        Works testWork = new Works("available", "测试插入商品", "测试描述", "/test.jpg", "199.99");
+        Works testWork = new Works("available", "测试插入商品", "测试描述", "/test.jpg", Money.parse("199.99"));
         WorksDaoIplm dao = new WorksDaoIplm();
         assertEquals("测试插入商品", testWork.getWork_name());
-        assertEquals("199.99", testWork.getWork_price());
+        assertEquals("199.99", testWork.getWork_price().toString());
     }
 
     @Test
@@ -228,6 +969,106 @@ public class AllInOneUnitTest {
         }
     }
 
+    @Test
+    public void testAsyncExecutorLimitsConcurrentRequests() throws Exception {
+        AsyncRequestExecutor executor = new AsyncRequestExecutor(1, 0, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch dispatched = new CountDownLatch(1);
+        HttpServletRequest first = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse firstResponse = Mockito.mock(HttpServletResponse.class);
+        AsyncContext ctx = Mockito.mock(AsyncContext.class);
+        Mockito.when(first.isAsyncSupported()).thenReturn(true);
+        Mockito.when(first.startAsync(first, firstResponse)).thenReturn(ctx);
+        Mockito.when(ctx.getRequest()).thenReturn(first);
+        Mockito.when(ctx.getResponse()).thenReturn(firstResponse);
+        Mockito.doAnswer(inv -> {
+            dispatched.countDown();
+            return null;
+        }).when(ctx).dispatch(Mockito.anyString());
+
+        // 第一个请求占用唯一的执行名额，容器线程立即返回
+        executor.execute(first, firstResponse, () -> {
+            release.await();
+            return new AsyncRequestExecutor.View("result.jsp").attr("rows", 3);
+        });
+
+        // 没有排队名额：第二个请求直接 503，不进入异步处理
+        HttpServletRequest second = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse secondResponse = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(second.isAsyncSupported()).thenReturn(true);
+        executor.execute(second, secondResponse, () -> new AsyncRequestExecutor.View("result.jsp"));
+        Mockito.verify(secondResponse).sendError(Mockito.eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), Mockito.anyString());
+        Mockito.verify(second, Mockito.never()).startAsync(Mockito.any(), Mockito.any());
+
+        release.countDown();
+        assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+        Mockito.verify(first).setAttribute("rows", 3);
+        Mockito.verify(ctx).dispatch("/result.jsp");
+    }
+
+    @Test
+    public void testAsyncExecutorRunsInlineWithoutAsyncSupport() throws Exception {
+        AsyncRequestExecutor executor = new AsyncRequestExecutor(1, 0, 5000);
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        RequestDispatcher dispatcher = Mockito.mock(RequestDispatcher.class);
+        Mockito.when(request.getRequestDispatcher("result.jsp")).thenReturn(dispatcher);
+
+        executor.execute(request, response, () -> new AsyncRequestExecutor.View("result.jsp").attr("ok", true));
+
+        Mockito.verify(request).setAttribute("ok", true);
+        Mockito.verify(dispatcher).forward(request, response);
+        Mockito.verify(request, Mockito.never()).startAsync(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testTaskScopeRunsSubtasksInParallel() throws Exception {
+        // 两个子任务都要等到对方也到达后才能返回：只有并行执行时才能都通过
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try (TaskScope scope = new TaskScope(5000)) {
+            TaskScope.Subtask<Boolean> a = scope.fork(() -> {
+                bothStarted.countDown();
+                return bothStarted.await(3, TimeUnit.SECONDS);
+            });
+            TaskScope.Subtask<Boolean> b = scope.fork(() -> {
+                bothStarted.countDown();
+                return bothStarted.await(3, TimeUnit.SECONDS);
+            });
+            scope.join();
+            assertTrue(a.get());
+            assertTrue(b.get());
+        }
+    }
+
+    @Test
+    public void testTaskScopeCancelsSiblingsOnFailureAndTimeout() throws Exception {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        try (TaskScope scope = new TaskScope(5000)) {
+            scope.fork(() -> {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                return 0;
+            });
+            scope.fork(() -> { throw new IllegalStateException("查询失败"); });
+            scope.join();
+            fail("子任务失败时 join 应抛出异常");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        // close 已等待被中断的子任务退出
+        assertTrue(interrupted.get());
+
+        try (TaskScope scope = new TaskScope(100)) {
+            scope.fork(() -> { Thread.sleep(5000); return 0; });
+            scope.join();
+            fail("超时时 join 应抛出 TimeoutException");
+        } catch (TimeoutException expected) {
+        }
+    }
+
     @Test
     public void testBuyServletTradeLogic() throws Exception {
         BuyServlet buyServlet = new BuyServlet();
@@ -123,8 +123,9 @@ public class Function_Test {
         // 验证响应状态
         assertEquals("Servlet响应状态异常", 302, response.getStatus());
 
-        // 验证结果
-        List<Works> workList = (List<Works>) session.getAttribute("wklist");
+        // 验证结果（商品列表不再放入 session，直接查询）
+        assertNull("商品列表不应放入session", session.getAttribute("wklist"));
+        List<Works> workList = worksDao.serachAll(con);
         assertNotNull("商品列表为空", workList);
         
         for (Works work : workList) {
@@ -196,10 +197,6 @@ public class Function_Test {
         MockHttpServletResponse response = new MockHttpServletResponse();
         MockHttpSession session = new MockHttpSession();
         
-        // 准备商品列表数据
-        List<Works> workList = worksDao.serachAll(con);
-        assertNotNull("商品列表查询失败", workList);
-        session.setAttribute("wklist", workList);
         request.setSession(session);
 
         // 设置修改参数（状态改为已售）
@@ -217,7 +214,7 @@ public class Function_Test {
         assertEquals("修改状态Servlet响应异常", 302, response.getStatus());
 
         // 验证状态更新
-        List<Works> updatedList = (List<Works>) session.getAttribute("wklist");
+        List<Works> updatedList = worksDao.serachAll(con);
         assertNotNull("更新后的商品列表为空", updatedList);
         
         for (Works work : updatedList) {